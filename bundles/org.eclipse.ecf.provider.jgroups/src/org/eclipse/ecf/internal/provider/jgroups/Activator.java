@@ -14,6 +14,7 @@ import org.eclipse.ecf.core.util.LogHelper;
 import org.eclipse.ecf.provider.jgroups.container.JGroupsClientContainer;
 import org.eclipse.ecf.provider.jgroups.container.JGroupsContainerInstantiator;
 import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerContainer;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsPeerContainer;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
 import org.eclipse.ecf.provider.remoteservice.generic.RemoteServiceContainerAdapterFactory;
 import org.eclipse.ecf.remoteservice.provider.AdapterConfig;
@@ -51,6 +52,7 @@ public class Activator implements BundleActivator {
 
 	public static final String JGROUPS_MANAGER_CONFIG = "ecf.jgroups.manager";
 	public static final String JGROUPS_CLIENT_CONFIG = "ecf.jgroups.client";
+	public static final String JGROUPS_PEER_CONFIG = "ecf.jgroups.peer";
 
 	/*
 	 * (non-Javadoc)
@@ -80,6 +82,14 @@ public class Activator implements BundleActivator {
 								JGroupsClientContainer.class))
 						.build(),
 				null);
+		// and peer, which needs no manager
+		context.registerService(IRemoteServiceDistributionProvider.class,
+				new RemoteServiceDistributionProvider.Builder().setName(JGROUPS_PEER_CONFIG)
+						.setInstantiator(instantiator).setDescription("ECF JGroups Peer").setServer(true)
+						.setAdapterConfig(new AdapterConfig(new RemoteServiceContainerAdapterFactory(),
+								JGroupsPeerContainer.class))
+						.build(),
+				null);
 
 	}
 
@@ -9,15 +9,34 @@
 package org.eclipse.ecf.provider.jgroups.container;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDCreateException;
 import org.eclipse.ecf.core.util.ECFException;
 import org.eclipse.ecf.internal.provider.jgroups.Activator;
 import org.eclipse.ecf.provider.comm.AsynchEvent;
@@ -26,9 +45,9 @@ import org.eclipse.ecf.provider.comm.IAsynchConnection;
 import org.eclipse.ecf.provider.comm.IConnectionListener;
 import org.eclipse.ecf.provider.comm.ISynchAsynchConnection;
 import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
-import org.eclipse.ecf.remoteservice.util.ObjectSerializationUtil;
 import org.eclipse.osgi.util.NLS;
 import org.jgroups.Address;
 import org.jgroups.JChannel;
@@ -36,17 +55,193 @@ import org.jgroups.Message;
 import org.jgroups.Receiver;
 import org.jgroups.ReceiverAdapter;
 import org.jgroups.View;
+import org.jgroups.fork.ForkChannel;
+import org.jgroups.util.Buffer;
+import org.jgroups.util.MessageBatch;
 
 public abstract class AbstractJGroupsConnection implements ISynchAsynchConnection {
 
 	public static final int DEFAULT_BUFFER_SIZE = 4096;
 	public static final int DEFAULT_DISCONNECT_TIMEOUT = 3000;
+	/**
+	 * System property that, when set to true, makes this connection send Java
+	 * serialized messages rather than the {@link MessageCodec} binary format.
+	 */
+	public static final String JAVA_SERIALIZATION_PROP = "org.eclipse.ecf.provider.jgroups.javaSerialization";
+	/**
+	 * Property naming the initial size of buffers messages are serialized
+	 * into. Defaults to {@link #DEFAULT_BUFFER_SIZE}.
+	 */
+	public static final String BUFFER_SIZE_PROP = "bufferSize";
+	/**
+	 * Container property giving the number of threads that deliver received
+	 * messages to the container. Messages from one sender are always
+	 * delivered in order. If not set or 0, messages are delivered on the
+	 * JGroups receiver thread.
+	 */
+	public static final String DISPATCH_THREADS_PROP = "dispatchThreads";
+	/**
+	 * System property giving the number of threads joining channels for
+	 * asynchronous connects, shared by all connections. Further connects wait
+	 * for a thread.
+	 */
+	public static final String CONNECT_THREADS_PROP = "org.eclipse.ecf.provider.jgroups.connectThreads";
+	public static final int DEFAULT_CONNECT_THREADS = 16;
+	/**
+	 * System property giving the number of threads running services invoked
+	 * by remote calls, shared by all connections. Further calls wait for a
+	 * thread.
+	 */
+	public static final String CALL_THREADS_PROP = "org.eclipse.ecf.provider.jgroups.callThreads";
+	public static final int DEFAULT_CALL_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+	/**
+	 * Container property giving the maximum size in bytes of a frame of
+	 * coalesced async messages. If not set or 0, messages are not coalesced.
+	 */
+	public static final String COALESCE_MAX_BYTES_PROP = "coalesceMaxBytes";
+	/**
+	 * Container property giving the time in microseconds after which a frame
+	 * of coalesced messages is sent even if it is not full.
+	 */
+	public static final String COALESCE_DELAY_MICROS_PROP = "coalesceDelayMicros";
+	public static final int DEFAULT_COALESCE_DELAY_MICROS = 100;
+	/**
+	 * Container property giving the capacity of the queue of outbound
+	 * messages. If not set or 0, messages are sent on the calling thread.
+	 */
+	public static final String OUTBOUND_QUEUE_CAPACITY_PROP = "outboundQueueCapacity";
+	/**
+	 * Container property giving the {@link OutboundQueue.Policy} name for
+	 * async messages offered to a full outbound queue. Defaults to BLOCK.
+	 */
+	public static final String OUTBOUND_QUEUE_POLICY_PROP = "outboundQueuePolicy";
+	/**
+	 * Container property giving the milliseconds a sender waits for space in a
+	 * full outbound queue, 0 meaning no limit.
+	 */
+	public static final String OUTBOUND_QUEUE_BLOCK_TIMEOUT_PROP = "outboundQueueBlockTimeout";
+	public static final int DEFAULT_OUTBOUND_QUEUE_BLOCK_TIMEOUT = 3000;
+
+	/**
+	 * Property naming whether a connection without a channel takes a fork
+	 * channel from the {@link SharedChannelRegistry} rather than creating its
+	 * own channel. Defaults to false.
+	 */
+	public static final String SHARED_CHANNEL_PROP = "sharedChannel";
+
+	/**
+	 * Property naming whether a connection without a channel takes one from
+	 * the {@link ChannelPool} and gives it back on disconnect, rather than
+	 * building and closing its own. Defaults to false.
+	 */
+	public static final String CHANNEL_POOL_PROP = "channelPool";
+
+	/**
+	 * Property naming the protocol stack configuration of channels the
+	 * connection creates, shares or takes from the pool: one of the
+	 * {@link ChannelPresets} or a JGroups configuration. Defaults to the
+	 * JGroups default stack.
+	 */
+	public static final String CHANNEL_CONFIG_PROP = "channelConfigProperty";
+
+	/**
+	 * Property naming whether the connection runs over the in-JVM
+	 * {@link ChannelPresets#SHARED_LOOPBACK} stack, for groups whose members
+	 * are all in one process, and hands messages to local members directly.
+	 * An explicit {@link #CHANNEL_CONFIG_PROP} takes precedence for the
+	 * stack. Defaults to false.
+	 */
+	public static final String LOOPBACK_PROP = "loopback";
+
+	/**
+	 * Property naming whether messages for a member whose connection is in
+	 * this JVM, and hands off too, are passed to that connection as objects
+	 * instead of being serialized and sent through the channel. Defaults to
+	 * the value of {@link #LOOPBACK_PROP}.
+	 */
+	public static final String LOCAL_HANDOFF_PROP = "localHandoff";
 
-	private JChannel channel;
-	private boolean started = false;
+	// Sends read the channel once and run without holding the connection
+	// lock. disconnect() clears it before closing, so later sends fail fast.
+	private volatile JChannel channel;
+	private volatile boolean started = false;
 	private final ISynchAsynchEventHandler eventHandler;
 	private int bufferSize = DEFAULT_BUFFER_SIZE;
 	private int disconnectTimeout = DEFAULT_DISCONNECT_TIMEOUT;
+	private final MessageCodec codec = new MessageCodec(new OutputBufferPool(DEFAULT_BUFFER_SIZE));
+	private volatile DispatchExecutor dispatchExecutor;
+	private volatile OutboundCoalescer coalescer;
+	private volatile OutboundQueue outboundQueue;
+	private volatile RemoteCallRegistry callRegistry;
+	private volatile SharedChannelRegistry sharedChannelRegistry;
+	private volatile ChannelPool channelPool;
+	private volatile String channelConfig;
+	// transport overrides for channels the connection creates or takes
+	private Map<String, ?> channelProperties;
+	// the channel taken from the pool, given back on disconnect
+	private volatile JChannel pooledChannel;
+	private volatile boolean localHandoff;
+	private final MemberIndex memberIndex = new MemberIndex();
+	private final AtomicLong localHandoffs = new AtomicLong();
+	private boolean javaSerialization = Boolean.getBoolean(JAVA_SERIALIZATION_PROP);
+	// peers that have sent us java serialized messages and so get them back
+	private final Set<Address> javaSerializationPeers = Collections
+			.newSetFromMap(new ConcurrentHashMap<Address, Boolean>());
+	private final AtomicLong nextRequestId = new AtomicLong();
+	private final ConcurrentMap<Long, CompletableFuture<SyncMessage>> pendingRequests = new ConcurrentHashMap<Long, CompletableFuture<SyncMessage>>();
+	private final ConcurrentMap<Long, FanOutResult> pendingFanOuts = new ConcurrentHashMap<Long, FanOutResult>();
+
+	// Times out outstanding requests for all connections
+	private static final ScheduledThreadPoolExecutor REQUEST_TIMER = new ScheduledThreadPoolExecutor(1,
+			new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "JGroups request timer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	// Joins channels for asynchronous connects, so many can proceed at once
+	private static final ExecutorService CONNECT_EXECUTOR = createExecutor("JGroups connect ",
+			Integer.getInteger(CONNECT_THREADS_PROP, DEFAULT_CONNECT_THREADS).intValue());
+	// Runs services invoked by remote calls, off the receive path
+	private static final ExecutorService CALL_EXECUTOR = createExecutor("JGroups call ",
+			Integer.getInteger(CALL_THREADS_PROP, DEFAULT_CALL_THREADS).intValue());
+	// Reports departed members, in order for each connection
+	private static final DispatchExecutor MEMBERSHIP_EXECUTOR = new DispatchExecutor("JGroups membership",
+			Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+	// Connected connections that take messages handed to them directly
+	private static final ConcurrentMap<JGroupsID, AbstractJGroupsConnection> localConnections = new ConcurrentHashMap<JGroupsID, AbstractJGroupsConnection>();
+
+	/**
+	 * @return executor with at most the given number of threads, which are
+	 *         started as needed and stop when idle, and a queue for tasks
+	 *         waiting for one
+	 */
+	private static ExecutorService createExecutor(final String name, int threads) {
+		final int max = Math.max(1, threads);
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(max, max, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, name + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	static Executor getConnectExecutor() {
+		return CONNECT_EXECUTOR;
+	}
+
+	static {
+		JGroupsMessageHeader.register();
+		REQUEST_TIMER.setRemoveOnCancelPolicy(true);
+	}
 
 	protected ISynchAsynchEventHandler getEventHandler() {
 		return eventHandler;
@@ -58,6 +253,7 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 
 	protected void setBufferSize(int bufferSize) {
 		this.bufferSize = bufferSize;
+		codec.getOutputBufferPool().setBufferSize(bufferSize);
 	}
 
 	protected int getDisconnectTimeout() {
@@ -68,35 +264,523 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 		this.disconnectTimeout = timeout;
 	}
 
+	public MessageCodec getMessageCodec() {
+		return codec;
+	}
+
+	protected boolean isJavaSerialization() {
+		return javaSerialization;
+	}
+
+	protected void setJavaSerialization(boolean javaSerialization) {
+		this.javaSerialization = javaSerialization;
+	}
+
+	protected boolean useJavaSerialization(Address dest) {
+		if (javaSerialization)
+			return true;
+		return (dest == null) ? !javaSerializationPeers.isEmpty() : javaSerializationPeers.contains(dest);
+	}
+
 	private final Receiver receiver = new ReceiverAdapter() {
 		@Override
 		public void receive(Message arg0) {
 			handleJGroupsReceive(arg0);
 		}
 
+		@Override
+		public void receive(MessageBatch batch) {
+			handleJGroupsReceive(batch);
+		}
+
 		@Override
 		public void viewAccepted(View arg0) {
-			handleViewAccepted(arg0);
+			// indexed first, so that handlers resolve the new members
+			memberIndex.viewAccepted(arg0);
+			final View previous = currentView;
+			currentView = arg0;
+			handleViewAccepted(arg0, new ViewDelta(previous, arg0));
 		}
 	};
 
 	public AbstractJGroupsConnection(ISynchAsynchEventHandler eventHandler, JChannel channel) {
+		this(eventHandler, channel, null);
+	}
+
+	public AbstractJGroupsConnection(ISynchAsynchEventHandler eventHandler, JChannel channel,
+			Map<String, ?> properties) {
 		Assert.isNotNull(eventHandler);
 		this.eventHandler = eventHandler;
 		this.channel = channel;
+		configure(properties);
+	}
+
+	/**
+	 * Apply container properties to this connection. Called from the
+	 * constructor, so not overridable: subclasses read their own properties
+	 * in their constructors.
+	 */
+	private void configure(Map<String, ?> properties) {
+		final int bufferSize = getIntProperty(properties, BUFFER_SIZE_PROP, 0);
+		if (bufferSize > 0)
+			setBufferSize(bufferSize);
+		channelProperties = properties;
+		final int dispatchThreads = getIntProperty(properties, DISPATCH_THREADS_PROP, 0);
+		if (dispatchThreads > 0)
+			setDispatchExecutor(new DispatchExecutor("JGroups dispatch " + getLocalID().getName(), dispatchThreads));
+		final int coalesceMaxBytes = getIntProperty(properties, COALESCE_MAX_BYTES_PROP, 0);
+		if (coalesceMaxBytes > 0)
+			setOutboundCoalescer(new OutboundCoalescer(this, coalesceMaxBytes,
+					getIntProperty(properties, COALESCE_DELAY_MICROS_PROP, DEFAULT_COALESCE_DELAY_MICROS)));
+		final int queueCapacity = getIntProperty(properties, OUTBOUND_QUEUE_CAPACITY_PROP, 0);
+		if (queueCapacity > 0) {
+			final Object policy = (properties == null) ? null : properties.get(OUTBOUND_QUEUE_POLICY_PROP);
+			setOutboundQueue(new OutboundQueue(this, queueCapacity,
+					(policy == null) ? OutboundQueue.Policy.BLOCK
+							: OutboundQueue.Policy.valueOf(policy.toString().trim().toUpperCase()),
+					getIntProperty(properties, OUTBOUND_QUEUE_BLOCK_TIMEOUT_PROP, DEFAULT_OUTBOUND_QUEUE_BLOCK_TIMEOUT)));
+		}
+		final Object config = (properties == null) ? null : properties.get(CHANNEL_CONFIG_PROP);
+		final boolean loopback = getBooleanProperty(properties, LOOPBACK_PROP, false);
+		setChannelConfig((config != null) ? config.toString() : (loopback ? ChannelPresets.SHARED_LOOPBACK : null));
+		setLocalHandoff(getBooleanProperty(properties, LOCAL_HANDOFF_PROP, loopback));
+		if (getBooleanProperty(properties, SHARED_CHANNEL_PROP, false))
+			setSharedChannelRegistry(SharedChannelRegistry.getDefault());
+		if (getBooleanProperty(properties, CHANNEL_POOL_PROP, false))
+			setChannelPool(ChannelPool.getDefault());
+	}
+
+	protected static int getIntProperty(Map<String, ?> properties, String key, int defaultValue) {
+		final Object value = (properties == null) ? null : properties.get(key);
+		if (value instanceof Number)
+			return ((Number) value).intValue();
+		if (value instanceof String)
+			return Integer.parseInt(((String) value).trim());
+		return defaultValue;
+	}
+
+	protected static boolean getBooleanProperty(Map<String, ?> properties, String key, boolean defaultValue) {
+		final Object value = (properties == null) ? null : properties.get(key);
+		if (value instanceof Boolean)
+			return ((Boolean) value).booleanValue();
+		if (value instanceof String)
+			return Boolean.parseBoolean(((String) value).trim());
+		return defaultValue;
+	}
+
+	/**
+	 * @return the executor delivering received messages to the container, or
+	 *         null if they are delivered on the JGroups receiver thread
+	 */
+	public DispatchExecutor getDispatchExecutor() {
+		return dispatchExecutor;
+	}
+
+	public void setDispatchExecutor(DispatchExecutor dispatchExecutor) {
+		final DispatchExecutor old = this.dispatchExecutor;
+		this.dispatchExecutor = dispatchExecutor;
+		if (old != null && old != dispatchExecutor)
+			old.shutdown();
+	}
+
+	/**
+	 * @return the coalescer packing outbound async messages into frames, or
+	 *         null if every message is sent on its own
+	 */
+	public OutboundCoalescer getOutboundCoalescer() {
+		return coalescer;
+	}
+
+	public void setOutboundCoalescer(OutboundCoalescer coalescer) {
+		this.coalescer = coalescer;
+	}
+
+	/**
+	 * @return the queue outbound messages go through, whose occupancy and
+	 *         blocked state tell producers when to hold back, or null if
+	 *         messages are sent on the calling thread
+	 */
+	public OutboundQueue getOutboundQueue() {
+		return outboundQueue;
+	}
+
+	public void setOutboundQueue(OutboundQueue outboundQueue) {
+		final OutboundQueue old = this.outboundQueue;
+		this.outboundQueue = outboundQueue;
+		if (old != null && old != outboundQueue)
+			old.close(getDisconnectTimeout());
+	}
+
+	/**
+	 * @return the registry a channel is taken from when none was given, or
+	 *         null if the connection creates its own
+	 */
+	public SharedChannelRegistry getSharedChannelRegistry() {
+		return sharedChannelRegistry;
+	}
+
+	/**
+	 * Take the channel from the given registry when the connection has none.
+	 */
+	public void setSharedChannelRegistry(SharedChannelRegistry registry) {
+		this.sharedChannelRegistry = registry;
+	}
+
+	/**
+	 * @return the pool a channel is taken from when none was given and the
+	 *         channel is not shared, or null if the connection builds its own
+	 */
+	public ChannelPool getChannelPool() {
+		return channelPool;
+	}
+
+	public void setChannelPool(ChannelPool channelPool) {
+		this.channelPool = channelPool;
+	}
+
+	/**
+	 * @return protocol stack configuration of channels the connection creates,
+	 *         or null for the default stack
+	 */
+	public String getChannelConfig() {
+		return channelConfig;
+	}
+
+	public void setChannelConfig(String channelConfig) {
+		this.channelConfig = channelConfig;
+	}
+
+	public boolean isLocalHandoff() {
+		return localHandoff;
+	}
+
+	/**
+	 * Pass messages to members in this JVM that hand off too as objects,
+	 * skipping serialization and the protocol stack. Received messages are
+	 * then shared with the sender rather than copied, and are not ordered
+	 * with messages the sender multicasts. Messages handed over are
+	 * dispatched off the sender's thread, so a connection without a
+	 * {@link DispatchExecutor} gets one.
+	 */
+	public void setLocalHandoff(boolean localHandoff) {
+		if (localHandoff && dispatchExecutor == null)
+			setDispatchExecutor(new DispatchExecutor("JGroups dispatch " + getLocalID().getName(), 1));
+		this.localHandoff = localHandoff;
+		if (!localHandoff)
+			localConnections.remove(getLocalID(), this);
+		else if (isConnected())
+			localConnections.putIfAbsent(getLocalID(), this);
+	}
+
+	/**
+	 * @return number of messages handed to local members directly
+	 */
+	public long getLocalHandoffCount() {
+		return localHandoffs.get();
+	}
+
+	/**
+	 * @return the services remote calls to this connection are invoked on, or
+	 *         null if it accepts none
+	 */
+	public RemoteCallRegistry getRemoteCallRegistry() {
+		return callRegistry;
+	}
+
+	public void setRemoteCallRegistry(RemoteCallRegistry callRegistry) {
+		this.callRegistry = callRegistry;
+	}
+
+	/**
+	 * Invoke a service method on another member. The future is completed on
+	 * the thread receiving the response, so no thread waits for the call.
+	 * 
+	 * @return future completed with the value returned by the remote method,
+	 *         or exceptionally with the exception it threw, a
+	 *         TimeoutException or an IOException
+	 */
+	public CompletableFuture<Object> callAsync(JGroupsID targetID, RemoteCall call, long timeout) {
+		byte[] data = null;
+		try {
+			data = serializeToBytes(call);
+		} catch (final IOException e) {
+			final CompletableFuture<Object> result = new CompletableFuture<Object>();
+			result.completeExceptionally(e);
+			return result;
+		}
+		return sendRequest(targetID, new CallRequestMessage(getLocalID(), targetID, data), timeout)
+				.thenApply(response -> {
+					RemoteCallResult result = null;
+					try {
+						result = readCallResult(response);
+					} catch (final IOException e) {
+						throw new CompletionException(e);
+					}
+					if (result.getException() != null)
+						throw new CompletionException(result.getException());
+					return result.getResult();
+				});
+	}
+
+	/**
+	 * Invoke a service method on every other member with one multicast, and
+	 * gather the responses as the policy says. Members without the service
+	 * respond with a NoSuchMethodException failure.
+	 * 
+	 * @param deadline
+	 *            milliseconds after which the call completes with the
+	 *            responses received so far
+	 * @return future completed with the responses, or exceptionally if the
+	 *         call could not be sent
+	 */
+	public CompletableFuture<FanOutResult> callFanOut(RemoteCall call, FanOutPolicy policy, long deadline) {
+		final FanOutResult result = new FanOutResult(policy, getOtherMemberCount());
+		if (result.future.isDone())
+			return result.future;
+		final Long requestId = Long.valueOf(nextRequestId.incrementAndGet());
+		pendingFanOuts.put(requestId, result);
+		// Kept until the deadline even if completed earlier, so that late
+		// responses are recognized and ignored
+		REQUEST_TIMER.schedule(() -> {
+			result.timeout();
+			pendingFanOuts.remove(requestId);
+		}, deadline, TimeUnit.MILLISECONDS);
+		try {
+			final CallRequestMessage request = new CallRequestMessage(getLocalID(), null, serializeToBytes(call));
+			request.setRequestId(requestId.longValue());
+			sendMessage(null, request);
+		} catch (final IOException e) {
+			result.future.completeExceptionally(e);
+		}
+		return result.future;
+	}
+
+	/**
+	 * @return the number of other members of the group, which a multicast
+	 *         call is answered by. Taken from the view, which on a shared
+	 *         channel also has members of other groups, unless the subclass
+	 *         knows the group's membership.
+	 */
+	protected int getOtherMemberCount() {
+		final JChannel ch = getChannel();
+		final View view = (ch == null) ? null : ch.getView();
+		return (view == null) ? 0 : view.size() - 1;
+	}
+
+	private static RemoteCallResult readCallResult(SyncMessage response) throws IOException {
+		final Object o = (response.getRawData() == null) ? null
+				: MessageCodec.readObject(response.getRawData(), response.getOffset(), response.getLength());
+		if (!(o instanceof RemoteCallResult))
+			throw new InvalidObjectException("response is not a RemoteCallResult");
+		return (RemoteCallResult) o;
+	}
+
+	private void handleCallRequest(final CallRequestMessage request) {
+		final RemoteCallRegistry registry = callRegistry;
+		RemoteCall call = null;
+		try {
+			if (registry == null)
+				throw new NoSuchMethodException("no remote call registry");
+			final Object o = MessageCodec.readObject(request.getRawData(), request.getOffset(), request.getLength());
+			if (!(o instanceof RemoteCall))
+				throw new InvalidObjectException("request is not a RemoteCall");
+			call = (RemoteCall) o;
+		} catch (final Exception e) {
+			sendCallResult(request, new RemoteCallResult(null, e));
+			return;
+		}
+		final RemoteCall c = call;
+		CompletableFuture.supplyAsync(() -> registry.invoke(c), CALL_EXECUTOR).thenCompose(f -> f)
+				.whenComplete((value, t) -> {
+					final Throwable cause = (t instanceof CompletionException && t.getCause() != null) ? t.getCause()
+							: t;
+					sendCallResult(request, new RemoteCallResult(value, cause));
+				});
+	}
+
+	private void sendCallResult(CallRequestMessage request, RemoteCallResult result) {
+		try {
+			byte[] data = null;
+			try {
+				data = serializeToBytes(result);
+			} catch (final IOException e) {
+				// result or exception not serializable
+				data = serializeToBytes(new RemoteCallResult(null, e));
+			}
+			sendResponse(request, new SyncResponseMessage(getLocalID(), request.getFromID(), data));
+		} catch (final IOException e) {
+			logException("sendCallResult: could not send result for request=" + request.getRequestId(), e);
+		}
+	}
+
+	/**
+	 * @return the address to send messages for targetID to, or null to
+	 *         multicast them with the target in the header. Members of a
+	 *         shared channel's group are named by the channel rather than by
+	 *         their ids, so a member of one that has not yet sent us a
+	 *         message can only be reached by multicast. Addresses are
+	 *         this connection's own, as ids are shared by every connection in
+	 *         the JVM; an address set on targetID by the application is used
+	 *         only on a channel of its own.
+	 * @throws IOException
+	 *             if targetID is not a member of the group
+	 */
+	protected Address resolveAddress(JGroupsID targetID) throws IOException {
+		final Address addr = memberIndex.get(targetID.getName());
+		if (addr != null)
+			return addr;
+		if (getChannel() instanceof ForkChannel)
+			return null;
+		if (targetID.getAddress() != null)
+			return targetID.getAddress();
+		throw new IOException("targetID=" + targetID.getName() + " is not a member of the group");
+	}
+
+	/**
+	 * @return the index of group members this connection resolves ids with
+	 */
+	protected MemberIndex getMemberIndex() {
+		return memberIndex;
 	}
 
 	protected void sendMessage(JGroupsID targetID, Object data) throws IOException {
-		sendMessage(targetID, serializeToBytes(data));
+		if (data instanceof AbstractMessage)
+			sendMessage(targetID, (AbstractMessage) data);
+		else
+			sendMessage(targetID, serializeToBytes(data));
+	}
+
+	protected void sendMessage(JGroupsID targetID, AbstractMessage message) throws IOException {
+		final OutboundCoalescer c = coalescer;
+		final AbstractJGroupsConnection local = (targetID == null || !localHandoff) ? null
+				: getLocalConnection(targetID);
+		if (local != null) {
+			if (c != null)
+				c.flush(targetID);
+			// counted first, as a response completes the request right away
+			localHandoffs.incrementAndGet();
+			local.receiveLocal(message, getLocalAddress());
+			return;
+		}
+		final Address dest = (targetID == null) ? null : resolveAddress(targetID);
+		if (c != null) {
+			if (isCoalesced(dest, message, c)) {
+				c.add(targetID, message);
+				return;
+			}
+			c.flush(targetID);
+		}
+		final Message msg = codec.encode(dest, message, useJavaSerialization(dest));
+		// Our own multicasts would only be dropped again on receive
+		if (dest == null)
+			msg.setTransientFlag(Message.TransientFlag.DONT_LOOPBACK);
+		sendMessage(msg);
+	}
+
+	private boolean isCoalesced(Address dest, AbstractMessage message, OutboundCoalescer c) {
+		if (message instanceof AsyncContainerMessage)
+			return !useJavaSerialization(dest);
+		if (message instanceof AsyncMessage)
+			return message.getLength() < c.getMaxFrameSize() && !useJavaSerialization(dest);
+		return false;
+	}
+
+	private AbstractJGroupsConnection getLocalConnection(JGroupsID targetID) {
+		final AbstractJGroupsConnection local = localConnections.get(targetID);
+		if (local == null || local == this)
+			return null;
+		// the target ID may name a member of another group
+		final JChannel ch = getChannel();
+		final JChannel localChannel = local.getChannel();
+		if (ch == null || localChannel == null || !localChannel.isConnected()
+				|| !ch.getClusterName().equals(localChannel.getClusterName()))
+			return null;
+		return local;
+	}
+
+	/**
+	 * Receive a message handed over by a connection in this JVM, as if it had
+	 * come through the channel from source.
+	 */
+	void receiveLocal(final AbstractMessage o, Address source) {
+		// carries the addresses for handlers and logging
+		final Message message = new Message(getLocalAddress()).src(source);
+		final DispatchExecutor executor = dispatchExecutor;
+		// The sender's thread runs responses only, so that handlers do not
+		// take this connection's locks while the sender holds its own
+		if (executor == null || o instanceof SyncResponseMessage || o instanceof ConnectResponseMessage)
+			receiveLocal(o, message);
+		else if (!executor.execute(source, new Runnable() {
+			public void run() {
+				receiveLocal(o, message);
+			}
+		}))
+			logMessageError("receiveLocal: dispatch executor shut down, message dropped", message);
+	}
+
+	private void receiveLocal(AbstractMessage o, Message message) {
+		final Object data = receiveDecoded(o, message, isStarted());
+		if (data != NO_EVENT)
+			fireAsynchEvent(data, message);
+	}
+
+	protected void sendMessage(Message msg) throws IOException {
+		final OutboundQueue queue = outboundQueue;
+		if (queue == null) {
+			transmit(msg);
+			return;
+		}
+		final JGroupsMessageHeader header = MessageCodec.getHeader(msg);
+		if (header != null && MessageCodec.isResponse(header.getType())) {
+			// Responses are sent from the receive and dispatch threads, which
+			// must not wait for a full queue or for credits while a request
+			// is pending on the other side
+			msg.setFlag(Message.Flag.NO_FC);
+			transmit(msg);
+		} else
+			// Only async messages may be dropped
+			queue.add(msg, header != null && !MessageCodec.isSync(header.getType()));
+	}
+
+	/**
+	 * Send a message without waiting for space in the outbound queue.
+	 * 
+	 * @return false if the queue is full and the message was not sent
+	 */
+	protected boolean offerMessage(Message msg) throws IOException {
+		final OutboundQueue queue = outboundQueue;
+		if (queue == null) {
+			sendMessage(msg);
+			return true;
+		}
+		return queue.offer(msg);
+	}
+
+	protected void transmit(Message msg) throws IOException {
+		final JChannel ch = getChannel();
+		if (ch == null)
+			throw new IOException("not connected");
+		try {
+			ch.send(msg);
+		} catch (Exception e) {
+			IOException except = new IOException("Exception sending message");
+			except.setStackTrace(e.getStackTrace());
+			throw except;
+		}
 	}
 
 	protected void sendMessage(JGroupsID targetID, byte[] data) throws IOException {
+		final JChannel ch = getChannel();
+		if (ch == null)
+			throw new IOException("not connected");
 		try {
 			// Trace.trace(Activator.PLUGIN_ID,
 			// JGroupsDebugOptions.JGROUPS_SEND_MESSAGE, getClass(),
 			// "sendMessage",
 			// "fromID=" + getLocalID() + ";targetID=" + targetID + ";<bytes>");
-			getChannel().send(targetID == null ? null : targetID.getAddress(), data);
+			ch.send(targetID == null ? null : resolveAddress(targetID), data);
+		} catch (IOException e) {
+			throw e;
 		} catch (Exception e) {
 			IOException except = new IOException("Exception sending message");
 			except.setStackTrace(e.getStackTrace());
@@ -111,11 +795,8 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 	 * org.eclipse.ecf.provider.comm.IAsynchConnection#sendAsynch(org.eclipse
 	 * .ecf.core.identity.ID, byte[])
 	 */
-	public synchronized void sendAsynch(ID targetID, byte[] data) throws IOException {
-		if (!isConnected())
-			throw new IOException("not connected");
-		if (targetID != null && !targetID.getNamespace().equals(JGroupsNamespace.INSTANCE))
-			throw new IOException("targetID=" + targetID.getName() + " is not in JGroupsNamespace");
+	public void sendAsynch(ID targetID, byte[] data) throws IOException {
+		checkAsynchTarget(targetID);
 		try {
 			sendMessage((JGroupsID) targetID, new AsyncMessage(getLocalID(), (JGroupsID) targetID, data));
 		} catch (final Exception e) {
@@ -125,60 +806,144 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 		}
 	}
 
-	private Object syncResponse;
-
-	private Object getSyncResponse() {
-		synchronized (this) {
-			Object response = syncResponse;
-			syncResponse = null;
-			return response;
+	/**
+	 * Send a container message without first serializing it to bytes. The
+	 * routing fields and the container message are written into one buffer,
+	 * and receivers hand the deserialized container message (rather than
+	 * bytes) to the event handler.
+	 */
+	public void sendAsynch(ID targetID, ContainerMessage message) throws IOException {
+		checkAsynchTarget(targetID);
+		try {
+			sendMessage((JGroupsID) targetID, new AsyncContainerMessage(getLocalID(), (JGroupsID) targetID, message));
+		} catch (final Exception e) {
+			IOException ioe = new IOException(e.getLocalizedMessage());
+			ioe.setStackTrace(e.getStackTrace());
+			throw ioe;
 		}
 	}
 
-	protected void setSyncResponse(Object response) {
-		synchronized (this) {
-			this.syncResponse = response;
-			this.notify();
-		}
+	private void checkAsynchTarget(ID targetID) throws IOException {
+		if (!isConnected())
+			throw new IOException("not connected");
+		if (targetID != null && !targetID.getNamespace().equals(JGroupsNamespace.INSTANCE))
+			throw new IOException("targetID=" + targetID.getName() + " is not in JGroupsNamespace");
 	}
 
-	ObjectSerializationUtil osu = new ObjectSerializationUtil();
-
 	byte[] serializeToBytes(Object obj) throws IOException {
-		return osu.serializeToBytes(obj);
+		return codec.serializeToBytes(obj);
 	}
 
-	public synchronized Object sendSynch(ID targetID, byte[] data) throws IOException {
-		Object result = null;
+	/**
+	 * @return the data of the response, or null if this connection is not
+	 *         active
+	 */
+	public Object sendSynch(ID targetID, byte[] data) throws IOException {
 		if (targetID == null || !(targetID instanceof JGroupsID))
 			throw new IOException("invalid receiver id for disconnect request");
-		if (isActive())
-			result = sendMessageAndWait((JGroupsID) targetID,
-					new DisconnectRequestMessage((JGroupsID) receiver, getLocalID(), data), getDisconnectTimeout());
-		return result;
-	}
-
-	protected Object sendMessageAndWait(JGroupsID targetID, Object data, int timeout) throws IOException {
-		long timeoutTime = System.currentTimeMillis() + timeout;
-		Object response = null;
-		synchronized (this) {
-			sendMessage(targetID, data);
-			while (System.currentTimeMillis() < timeoutTime) {
-				response = getSyncResponse();
-				if (response != null)
-					break;
-				try {
-					wait(timeout / 10);
-				} catch (InterruptedException e) {
-					IOException except = new IOException("sendMessageAndWait interrupted=" + timeout);
-					except.setStackTrace(e.getStackTrace());
-					throw except;
-				}
+		if (!isActive())
+			return null;
+		final JGroupsID receiverID = (JGroupsID) targetID;
+		return sendMessageAndWait(receiverID, new DisconnectRequestMessage(getLocalID(), receiverID, data),
+				getDisconnectTimeout()).getData();
+	}
+
+	/**
+	 * Send a request and return a future for its response. Any number of
+	 * requests may be outstanding at once; each is matched with its response
+	 * by request id and fails with a {@link TimeoutException} if no response
+	 * arrives within timeout ms.
+	 */
+	protected CompletableFuture<SyncMessage> sendRequest(JGroupsID targetID, SyncMessage request, long timeout) {
+		final Long requestId = Long.valueOf(nextRequestId.incrementAndGet());
+		request.setRequestId(requestId.longValue());
+		final CompletableFuture<SyncMessage> future = new CompletableFuture<SyncMessage>();
+		pendingRequests.put(requestId, future);
+		final ScheduledFuture<?> timer = REQUEST_TIMER.schedule(
+				() -> future.completeExceptionally(new TimeoutException("request timed out=" + timeout)), timeout,
+				TimeUnit.MILLISECONDS);
+		future.whenComplete((response, t) -> {
+			pendingRequests.remove(requestId);
+			timer.cancel(false);
+		});
+		try {
+			sendMessage(targetID, request);
+		} catch (final IOException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	protected SyncMessage sendMessageAndWait(JGroupsID targetID, SyncMessage request, int timeout)
+			throws IOException {
+		try {
+			return sendRequest(targetID, request, timeout).get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			IOException except = new IOException("sendMessageAndWait interrupted=" + timeout);
+			except.setStackTrace(e.getStackTrace());
+			throw except;
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof TimeoutException)
+				throw new IOException("sendMessageAndWait timed out=" + timeout);
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			IOException except = new IOException("sendMessageAndWait failed");
+			except.initCause(cause);
+			throw except;
+		}
+	}
+
+	/**
+	 * Send the response to a request received through
+	 * {@link #handleSyncMessage(SyncMessage)}.
+	 */
+	protected void sendResponse(SyncMessage request, SyncMessage response) throws IOException {
+		response.setRequestId(request.getRequestId());
+		sendMessage(request.getFromID(), response);
+	}
+
+	private void handleSyncResponse(SyncMessage response, Message message) {
+		final FanOutResult fanOut = pendingFanOuts.get(Long.valueOf(response.getRequestId()));
+		if (fanOut != null) {
+			try {
+				final RemoteCallResult result = readCallResult(response);
+				if (result.getException() != null)
+					fanOut.addFailure(response.getFromID(), result.getException());
+				else
+					fanOut.addResult(response.getFromID(), result.getResult());
+			} catch (final IOException e) {
+				fanOut.addFailure(response.getFromID(), e);
 			}
-			if (response == null) 
-				throw new IOException("sendMessageAndWait timed out="+ timeout);
+			return;
 		}
-		return response;
+		// removed before completing, as stages added by callers run first
+		final CompletableFuture<SyncMessage> future = pendingRequests.remove(Long.valueOf(response.getRequestId()));
+		if (future == null) {
+			logMessageError("handleJGroupsReceive: no pending request for response", message);
+			return;
+		}
+		handleResponseSource(response, message.getSrc());
+		future.complete(response);
+	}
+
+	/**
+	 * Called with the address a response to one of this connection's requests
+	 * came from, before the request completes.
+	 */
+	protected void handleResponseSource(SyncMessage response, Address source) {
+	}
+
+	protected int getPendingRequestCount() {
+		return pendingRequests.size();
+	}
+
+	private void failPendingRequests(Throwable t) {
+		for (final CompletableFuture<SyncMessage> future : pendingRequests.values())
+			future.completeExceptionally(t);
+		for (final FanOutResult fanOut : pendingFanOuts.values())
+			fanOut.future.completeExceptionally(t);
 	}
 
 	public void addListener(IConnectionListener listener) {
@@ -210,54 +975,246 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 		Activator.getDefault().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, errorString, t));
 	}
 
+	/**
+	 * Decide from the message header alone whether a message is for this
+	 * connection, so that messages for other members are dropped before their
+	 * payload is deserialized.
+	 */
+	protected boolean acceptHeader(JGroupsMessageHeader header, Message message) {
+		if (!isAddressed(header, message, getLocalID().getChannelName()))
+			return false;
+		// If not started, we can't handle any other messages
+		if (!MessageCodec.isSync(header.getType()) && !isStarted()) {
+			logMessageError("handleJGroupsReceive: connection not yet started", message);
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean isAddressed(JGroupsMessageHeader header, Message message, String localName) {
+		// indices are only sent by, and to, the member they were agreed with
+		if (header.getFromIndex() < 0
+				&& (header.getFromName() == null || localName.equals(header.getFromName())))
+			return false;
+		if (header.getTargetIndex() >= 0)
+			return message.getDest() != null;
+		final String targetName = header.getTargetName();
+		// Calls may be multicast, other sync messages are for one member
+		if (MessageCodec.isSync(header.getType()) && header.getType() != MessageCodec.TYPE_CALL_REQUEST)
+			return localName.equals(targetName);
+		return targetName == null || localName.equals(targetName);
+	}
+
 	protected void handleJGroupsReceive(final Message message) {
 		// Trace.trace(Activator.PLUGIN_ID,
 		// JGroupsDebugOptions.JGROUPS_RECEIVE_MESSAGE, getClass(),
 		// "handleJGroupsReceive", "msg=" + message);
+		final JGroupsMessageHeader header = MessageCodec.getHeader(message);
+		if (header != null && !acceptHeader(header, message))
+			return;
+		final DispatchExecutor executor = dispatchExecutor;
+		// Responses complete waiting requests and so must not queue behind
+		// handlers that may be waiting for them. Messages without a header
+		// can't be told apart before decoding, and keep their sender's order
+		if (executor == null || (header != null && MessageCodec.isResponse(header.getType())))
+			processMessage(message, header);
+		else if (!executor.execute(message.getSrc(), new Runnable() {
+			public void run() {
+				processMessage(message, header);
+			}
+		}))
+			logMessageError("handleJGroupsReceive: dispatch executor shut down, message dropped", message);
+	}
+
+	/**
+	 * Filter a batch of messages from one sender on their headers in one pass,
+	 * then decode and deliver the accepted ones together.
+	 */
+	protected void handleJGroupsReceive(final MessageBatch batch) {
+		final String localName = getLocalID().getChannelName();
+		final boolean started = isStarted();
+		final List<Message> accepted = new ArrayList<Message>(batch.size());
+		int notStarted = 0;
+		for (final Message message : batch) {
+			final JGroupsMessageHeader header = MessageCodec.getHeader(message);
+			// Messages without a header are filtered once decoded, in order
+			// with the others from their sender
+			if (header == null)
+				accepted.add(message);
+			else if (!isAddressed(header, message, localName))
+				continue;
+			else if (!started && !MessageCodec.isSync(header.getType()))
+				notStarted++;
+			else if (MessageCodec.isResponse(header.getType()))
+				processMessage(message, header);
+			else
+				accepted.add(message);
+		}
+		// If not started, we can't handle any other messages
+		if (notStarted > 0)
+			logException("handleJGroupsReceive: connection not yet started, dropped " + notStarted
+					+ " message(s) from " + batch.sender(), null);
+		if (accepted.isEmpty())
+			return;
+		final DispatchExecutor executor = dispatchExecutor;
+		if (executor == null)
+			processBatch(accepted);
+		else if (!executor.execute(batch.sender(), new Runnable() {
+			public void run() {
+				processBatch(accepted);
+			}
+		}))
+			logException("handleJGroupsReceive: dispatch executor shut down, dropped " + accepted.size()
+					+ " message(s) from " + batch.sender(), null);
+	}
+
+	/**
+	 * Decode a received message and deliver it to the event handler.
+	 */
+	protected void processMessage(Message message, JGroupsMessageHeader header) {
+		final List<Object> payloads = new ArrayList<Object>(1);
+		receiveMessage(message, header, isStarted(), payloads);
+		deliverAsynchEvents(payloads, message);
+	}
+
+	/**
+	 * Decode and deliver messages that have passed the header checks. Async
+	 * payloads are handed to the event handler together, as an
+	 * {@link AsynchEventBatch} if {@link #isBatchDelivery()}.
+	 */
+	protected void processBatch(List<Message> messages) {
+		final boolean started = isStarted();
+		final List<Object> payloads = new ArrayList<Object>(messages.size());
+		for (final Message message : messages)
+			receiveMessage(message, MessageCodec.getHeader(message), started, payloads);
+		deliverAsynchEvents(payloads, messages.get(0));
+	}
+
+	private void deliverAsynchEvents(List<Object> payloads, Message message) {
+		if (payloads.isEmpty())
+			return;
+		if (payloads.size() == 1 || !isBatchDelivery()) {
+			for (int i = 0; i < payloads.size(); i++)
+				fireAsynchEvent(payloads.get(i), message);
+		} else
+			fireAsynchEvent(new AsynchEventBatch(payloads), message);
+	}
+
+	/**
+	 * @return true if the event handler understands {@link AsynchEventBatch}
+	 *         event data
+	 */
+	protected boolean isBatchDelivery() {
+		return false;
+	}
+
+	private void fireAsynchEvent(Object data, Message message) {
+		try {
+			eventHandler.handleAsynchEvent(new AsynchEvent(this, data));
+		} catch (final IOException e) {
+			logMessageError("handleJGroupsReceive", message, e);
+		}
+	}
+
+	// Returned by receiveDecoded if there is no async event to deliver
+	private static final Object NO_EVENT = new Object();
+
+	/**
+	 * Decode a message, which may be a frame of several, handle it if it is a
+	 * sync message and otherwise add the data for its async event to payloads.
+	 */
+	private void receiveMessage(Message message, JGroupsMessageHeader header, boolean started,
+			List<Object> payloads) {
+		if (header != null && MessageCodec.isFrame(header.getType())) {
+			List<AbstractMessage> entries = null;
+			try {
+				entries = codec.decodeFrame(message);
+			} catch (Exception e1) {
+				logMessageError("handleJGroupsReceive: could not decode message frame", message, e1);
+				return;
+			}
+			for (final AbstractMessage o : entries) {
+				final Object data = receiveDecoded(o, message, started);
+				if (data != NO_EVENT)
+					payloads.add(data);
+			}
+			return;
+		}
 		AbstractMessage o = null;
 		try {
-			o = (AbstractMessage) new ObjectSerializationUtil().deserializeFromBytes(message.getBuffer());
+			if (header == null && message.getSrc() != null && !message.getSrc().equals(getLocalAddress()))
+				javaSerializationPeers.add(message.getSrc());
+			o = codec.decode(message);
 		} catch (Exception e1) {
 			logMessageError("handleJGroupsReceive: could not deserialize message buffer", message, e1);
 			return;
 		}
+		final Object data = receiveDecoded(o, message, started);
+		if (data != NO_EVENT)
+			payloads.add(data);
+	}
+
+	private Object receiveDecoded(AbstractMessage o, Message message, boolean started) {
 		if (o == null) {
 			logMessageError("object in message is null", message);
-			return;
+			return NO_EVENT;
 		}
 		JGroupsID fromID = o.getFromID();
 		if (fromID == null) {
 			logMessageError("handleJGroupsReceive: fromID is null", message);
-			return;
+			return NO_EVENT;
 		}
+		// so that replies to members not named by their channel are unicast
+		if (message.getSrc() != null)
+			memberIndex.add(fromID.getName(), message.getSrc());
 		JGroupsID localID = getLocalID();
 		JGroupsID targetID = o.getTargetID();
 		// Handle SyncMessages
-		if (o instanceof SyncMessage && localID.equals(targetID) && !fromID.equals(localID)) {
-			handleSyncMessage((SyncMessage) o);
-			return;
+		if (o instanceof SyncMessage && !fromID.equals(localID)
+				&& (localID.equals(targetID) || (targetID == null && o instanceof CallRequestMessage))) {
+			if (o instanceof SyncResponseMessage || o instanceof ConnectResponseMessage)
+				handleSyncResponse((SyncMessage) o, message);
+			else if (o instanceof CallRequestMessage)
+				handleCallRequest((CallRequestMessage) o);
+			else
+				handleSyncMessage((SyncMessage) o);
+			return NO_EVENT;
 		}
-		synchronized (this) {
-			// If not started, we can't handle any other messages
-			if (!isStarted()) {
-				logMessageError("handleJGroupsReceive: connection not yet started", message);
-				return;
-			}
+		// If not started, we can't handle any other messages
+		if (!started) {
+			logMessageError("handleJGroupsReceive: connection not yet started", message);
+			return NO_EVENT;
 		}
 		// Handle AsyncMessages
 		if (o instanceof AsyncMessage && !localID.equals(fromID) && (targetID == null || localID.equals(targetID))) {
-			try {
-				eventHandler.handleAsynchEvent(new AsynchEvent(this, o.getData()));
-			} catch (final IOException e) {
-				logMessageError("handleJGroupsReceive", message, e);
+			if (o instanceof MembershipMessage) {
+				handleMembershipMessage((MembershipMessage) o);
+				return NO_EVENT;
 			}
+			// Other payloads are handed over as a view of the received buffer
+			return (o instanceof AsyncContainerMessage) ? ((AsyncContainerMessage) o).getContainerMessage()
+					: toBuffer(o);
 		}
+		return NO_EVENT;
+	}
+
+	/**
+	 * Handle a membership delta, snapshot or snapshot request. Membership
+	 * messages are not delivered to the event handler.
+	 */
+	protected void handleMembershipMessage(MembershipMessage message) {
+	}
+
+	static Buffer toBuffer(AbstractMessage message) {
+		return (message.getRawData() == null) ? null
+				: new Buffer(message.getRawData(), message.getOffset(), message.getLength());
 	}
 
 	protected abstract void handleSyncMessage(SyncMessage sm);
 
 	protected Address getLocalAddress() {
-		return channel.getAddress();
+		final JChannel ch = channel;
+		return (ch == null) ? null : ch.getAddress();
 	}
 
 	protected JChannel getChannel() {
@@ -266,13 +1223,17 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 
 	protected void setupJGroups(JGroupsID targetID) throws ECFException {
 		try {
-			if (channel == null)
-				channel = new JChannel();
+			JChannel ch = channel;
+			if (ch == null)
+				channel = ch = createChannel(targetID);
 			JGroupsID localID = getLocalID();
-			channel.setName(localID.getName());
-			channel.setReceiver(receiver);
-			channel.connect(targetID.getChannelName());
-			localID.setAddress(channel.getAddress());
+			// a fork channel has the name and address of the shared channel
+			if (!(ch instanceof ForkChannel))
+				ch.setName(localID.getName());
+			ch.setReceiver(receiver);
+			ch.connect(targetID.getChannelName());
+			if (localHandoff)
+				localConnections.putIfAbsent(localID, this);
 		} catch (final Exception e) {
 			ECFException t = new ECFException("JGroups channel creation exception", e);
 			t.setStackTrace(e.getStackTrace());
@@ -280,13 +1241,55 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 		}
 	}
 
+	protected JChannel createChannel(JGroupsID targetID) throws Exception {
+		final String config = channelConfig;
+		final SharedChannelRegistry registry = sharedChannelRegistry;
+		if (registry != null) {
+			final JChannel fork = registry.getChannel(config, channelProperties, targetID.getChannelName());
+			if (fork != null)
+				return fork;
+		}
+		final ChannelPool pool = channelPool;
+		if (pool != null) {
+			return pooledChannel = pool.getChannel(config, channelProperties);
+		}
+		return ChannelPresets.createChannel(config, channelProperties);
+	}
+
 	public synchronized void disconnect() {
+		// nothing is received while the dispatch executor is shut down
+		final JChannel receiving = channel;
+		if (receiving != null)
+			receiving.setReceiver(null);
 		stop();
-		if (channel != null) {
-			channel.disconnect();
-			channel.close();
-			channel = null;
+		localConnections.remove(getLocalID(), this);
+		final OutboundCoalescer c = coalescer;
+		if (c != null)
+			try {
+				c.flushAll();
+			} catch (final IOException e) {
+				logException("disconnect: could not send coalesced messages", e);
+			}
+		final OutboundQueue queue = outboundQueue;
+		if (queue != null)
+			queue.close(getDisconnectTimeout());
+		final JChannel ch = channel;
+		channel = null;
+		if (ch != null) {
+			final ChannelPool pool = channelPool;
+			if (pool != null && ch == pooledChannel)
+				pool.releaseChannel(channelConfig, channelProperties, ch);
+			else {
+				ch.disconnect();
+				ch.close();
+			}
+			pooledChannel = null;
 		}
+		memberIndex.clear();
+		final DispatchExecutor executor = dispatchExecutor;
+		if (executor != null)
+			executor.shutdown();
+		failPendingRequests(new IOException("disconnected"));
 	}
 
 	public JGroupsID getLocalID() {
@@ -297,11 +1300,12 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 		return null;
 	}
 
-	public synchronized boolean isConnected() {
-		return (channel != null && channel.isConnected());
+	public boolean isConnected() {
+		final JChannel ch = channel;
+		return (ch != null && ch.isConnected());
 	}
 
-	protected synchronized boolean isActive() {
+	protected boolean isActive() {
 		return isConnected() && isStarted();
 	}
 
@@ -321,39 +1325,70 @@ public abstract class AbstractJGroupsConnection implements ISynchAsynchConnectio
 		return null;
 	}
 
-	private View oldView = null;
+	// the last view, read and written on the view thread only
+	private View currentView;
 
-	private List<Address> memberDiff(List<Address> oldMembers, List<Address> newMembers) {
-		final List<Address> result = new ArrayList<Address>();
-		for (final Iterator<Address> i = oldMembers.iterator(); i.hasNext();) {
-			final Address addr1 = i.next();
-			if (!newMembers.contains(addr1))
-				result.add(addr1);
+	/**
+	 * Handle a new view. Clients of members that left are passed to
+	 * {@link #handleDeparted(List)} in one batch, off the view thread.
+	 * 
+	 * @param delta
+	 *            members that joined and left since the previous view
+	 */
+	protected void handleViewAccepted(View view, ViewDelta delta) {
+		if (delta.getLeft().isEmpty())
+			return;
+		final List<IAsynchConnection> departed = new ArrayList<IAsynchConnection>(delta.getLeft().size());
+		for (final Address addr : delta.getLeft()) {
+			javaSerializationPeers.remove(addr);
+			final IAsynchConnection client = getClientForAddress(addr);
+			if (client != null)
+				departed.add(client);
 		}
-		return result;
-	}
-
-	protected void handleViewAccepted(View view) {
-		if (oldView == null) {
-			oldView = view;
+		if (departed.isEmpty())
 			return;
-		} else {
-			final List departed = memberDiff(oldView.getMembers(), view.getMembers());
-			if (departed.size() > 0) {
-				for (final Iterator i = departed.iterator(); i.hasNext();) {
-					final Address addr = (Address) i.next();
-					final IAsynchConnection client = getClientForAddress(addr);
-					if (client != null) {
-						new Thread(new Runnable() {
-							public void run() {
-								AbstractJGroupsConnection.this.getEventHandler().handleDisconnectEvent(new DisconnectEvent(client,
-										new Exception("client=" + client.getLocalID() + " disconnected"), null));
-							}
-						}).start();
-					}
-				}
+		// ordered per connection, with a bounded number of threads for all
+		executeMembershipTask(new Runnable() {
+			public void run() {
+				handleDeparted(departed);
 			}
-			oldView = view;
+		});
+	}
+
+	/**
+	 * Run a task on this connection's membership thread, after the membership
+	 * tasks queued before it.
+	 */
+	protected void executeMembershipTask(Runnable task) {
+		// keyed by the local id, as the address is gone once disconnected
+		if (!MEMBERSHIP_EXECUTOR.execute(getLocalID(), task))
+			logException("executeMembershipTask: membership executor shut down, task dropped", null);
+	}
+
+	/**
+	 * Called once per view with the clients of the members that left, on a
+	 * membership thread. By default each client is reported to the event
+	 * handler with a {@link DisconnectEvent}.
+	 */
+	protected void handleDeparted(List<IAsynchConnection> clients) {
+		for (final IAsynchConnection client : clients)
+			getEventHandler().handleDisconnectEvent(new DisconnectEvent(client,
+					new Exception("client=" + client.getLocalID() + " disconnected"), null));
+	}
+
+	/**
+	 * @return the id of the group member at addr, by the name the member
+	 *         index knows it by or else its channel name, or null if that
+	 *         name is not a jgroups id
+	 */
+	protected JGroupsID createMemberID(Address addr) {
+		final String name = memberIndex.getName(addr);
+		try {
+			return (JGroupsID) JGroupsNamespace.INSTANCE
+					.createInstance(new Object[] { (name != null) ? name : addr.toString() });
+		} catch (final IDCreateException e) {
+			logException("member name not a jgroups id: " + addr, e);
+			return null;
 		}
 	}
 
@@ -8,6 +8,11 @@ public abstract class AbstractMessage implements Serializable {
 
 	private static final long serialVersionUID = 1672381422214019227L;
 	private final byte[] data;
+	// Set for messages decoded in place from a received buffer, in which case
+	// data is the whole buffer and only [offset, offset + length) is payload
+	private transient boolean slice;
+	private transient int offset;
+	private transient int length;
 
 	private JGroupsID fromID;
 	private JGroupsID targetID;
@@ -18,10 +23,43 @@ public abstract class AbstractMessage implements Serializable {
 		this.data = data;
 	}
 
+	void setSlice(int offset, int length) {
+		this.slice = true;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * @return the message payload. For messages decoded in place this copies
+	 *         the payload out of the received buffer, so receive paths should
+	 *         use {@link #getRawData()}, {@link #getOffset()} and
+	 *         {@link #getLength()} instead.
+	 */
 	public byte[] getData() {
+		if (!slice || data == null || (offset == 0 && length == data.length))
+			return this.data;
+		final byte[] result = new byte[length];
+		System.arraycopy(data, offset, result, 0, length);
+		return result;
+	}
+
+	/**
+	 * @return the array holding the message payload, not copied
+	 */
+	public byte[] getRawData() {
 		return this.data;
 	}
 
+	public int getOffset() {
+		return slice ? offset : 0;
+	}
+
+	public int getLength() {
+		if (slice)
+			return length;
+		return (data == null) ? 0 : data.length;
+	}
+
 	public JGroupsID getFromID() {
 		return fromID;
 	}
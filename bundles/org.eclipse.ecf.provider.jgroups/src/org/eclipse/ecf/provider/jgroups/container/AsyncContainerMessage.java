@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+/**
+ * Async message that carries a {@link ContainerMessage} rather than its
+ * serialized bytes. {@link MessageCodec} serializes the container message
+ * directly as the message payload, and reads it straight out of the received
+ * buffer.
+ */
+public class AsyncContainerMessage extends AsyncMessage {
+
+	private static final long serialVersionUID = 5398467101473306357L;
+
+	private final transient ContainerMessage containerMessage;
+
+	public AsyncContainerMessage(JGroupsID fromID, JGroupsID targetID, ContainerMessage containerMessage) {
+		super(fromID, targetID, null);
+		this.containerMessage = containerMessage;
+	}
+
+	public ContainerMessage getContainerMessage() {
+		return containerMessage;
+	}
+
+}
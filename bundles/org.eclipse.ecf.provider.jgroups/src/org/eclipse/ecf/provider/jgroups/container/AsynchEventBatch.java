@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data of an {@link org.eclipse.ecf.provider.comm.AsynchEvent} carrying the
+ * payloads of several messages from one sender, in the order they were
+ * received. Each payload is what a single message event would carry: a
+ * {@link org.eclipse.ecf.provider.generic.ContainerMessage} or an
+ * {@link org.jgroups.util.Buffer}.
+ */
+public class AsynchEventBatch {
+
+	private final List<Object> payloads;
+
+	public AsynchEventBatch(List<Object> payloads) {
+		this.payloads = Collections.unmodifiableList(payloads);
+	}
+
+	public List<Object> getPayloads() {
+		return payloads;
+	}
+
+	public int size() {
+		return payloads.size();
+	}
+
+	public String toString() {
+		return "AsynchEventBatch[size=" + payloads.size() + "]";
+	}
+}
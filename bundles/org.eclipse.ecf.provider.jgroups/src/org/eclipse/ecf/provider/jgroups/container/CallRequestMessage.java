@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+/**
+ * Request to invoke a method of a service registered in the target's
+ * {@link RemoteCallRegistry}. The data is the serialized {@link RemoteCall},
+ * and the reply a {@link SyncResponseMessage} with the serialized
+ * {@link RemoteCallResult}.
+ */
+public class CallRequestMessage extends SyncMessage {
+
+	private static final long serialVersionUID = -6016480541530427355L;
+
+	public CallRequestMessage(JGroupsID fromID, JGroupsID targetID, byte[] data) {
+		super(fromID, targetID, data);
+	}
+
+}
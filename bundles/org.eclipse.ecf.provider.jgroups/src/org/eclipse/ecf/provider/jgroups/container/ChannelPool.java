@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jgroups.JChannel;
+
+/**
+ * Keeps built, unconnected channels per protocol stack configuration and
+ * transport overrides, so that creating a container does not have to build a
+ * stack. A connection takes a channel when it joins and gives it back,
+ * disconnected but not closed, when it disconnects. Channels idle longer than the idle time, or beyond the
+ * maximum number kept per configuration, are closed.
+ */
+public class ChannelPool {
+
+	public static final String MAX_IDLE_PROP = "org.eclipse.ecf.provider.jgroups.channelPool.maxIdle";
+	public static final String IDLE_MILLIS_PROP = "org.eclipse.ecf.provider.jgroups.channelPool.idleMillis";
+	public static final int DEFAULT_MAX_IDLE = 8;
+	public static final long DEFAULT_IDLE_MILLIS = 60000;
+
+	// Evicts idle channels for all pools
+	private static final ScheduledThreadPoolExecutor EVICTION_TIMER = new ScheduledThreadPoolExecutor(1,
+			new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "JGroups channel pool eviction");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	static {
+		EVICTION_TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	private static final ChannelPool defaultPool = new ChannelPool(
+			Integer.getInteger(MAX_IDLE_PROP, DEFAULT_MAX_IDLE).intValue(),
+			Long.getLong(IDLE_MILLIS_PROP, DEFAULT_IDLE_MILLIS).longValue());
+
+	public static ChannelPool getDefault() {
+		return defaultPool;
+	}
+
+	private static class Idle {
+		final JChannel channel;
+		final long since = System.nanoTime();
+
+		Idle(JChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	private final int maxIdle;
+	private final long idleNanos;
+	private final Map<String, Deque<Idle>> idle = new HashMap<String, Deque<Idle>>();
+	private final ScheduledFuture<?> evictionTask;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong builds = new AtomicLong();
+	private final AtomicLong buildNanos = new AtomicLong();
+	private final AtomicLong savedNanos = new AtomicLong();
+
+	/**
+	 * @param maxIdle
+	 *            channels kept per configuration
+	 * @param idleMillis
+	 *            time after which an unused channel is closed, or 0 to keep
+	 *            channels until the pool is closed
+	 */
+	public ChannelPool(int maxIdle, long idleMillis) {
+		this.maxIdle = maxIdle;
+		this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+		this.evictionTask = (idleMillis > 0) ? EVICTION_TIMER.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				evict();
+			}
+		}, idleMillis, Math.max(1, idleMillis / 2), TimeUnit.MILLISECONDS) : null;
+	}
+
+	/**
+	 * @param config
+	 *            protocol stack configuration, or null for the default stack
+	 * @return an unconnected channel, from the pool if one is idle
+	 */
+	public JChannel getChannel(String config) throws Exception {
+		return getChannel(config, null);
+	}
+
+	/**
+	 * @param properties
+	 *            transport overrides, see {@link ChannelPresets}, or null for
+	 *            none. Channels with different overrides are pooled apart.
+	 * @return an unconnected channel, from the pool if one is idle
+	 */
+	public JChannel getChannel(String config, Map<String, ?> properties) throws Exception {
+		final String key = ChannelPresets.getChannelKey(config, properties);
+		synchronized (this) {
+			final Deque<Idle> channels = idle.get(key);
+			final Idle i = (channels == null) ? null : channels.pollFirst();
+			if (i != null) {
+				hits.incrementAndGet();
+				savedNanos.addAndGet(getAverageBuildNanos());
+				return i.channel;
+			}
+		}
+		misses.incrementAndGet();
+		return build(config, properties);
+	}
+
+	/**
+	 * Give back a channel taken with {@link #getChannel(String)}. The channel
+	 * is disconnected and, if the pool is full, closed.
+	 */
+	public void releaseChannel(String config, JChannel channel) {
+		releaseChannel(config, null, channel);
+	}
+
+	/**
+	 * Give back a channel taken with {@link #getChannel(String, Map)}, with
+	 * the same configuration and properties.
+	 */
+	public void releaseChannel(String config, Map<String, ?> properties, JChannel channel) {
+		channel.setReceiver(null);
+		channel.disconnect();
+		final String key = ChannelPresets.getChannelKey(config, properties);
+		synchronized (this) {
+			Deque<Idle> channels = idle.get(key);
+			if (channels == null) {
+				channels = new ArrayDeque<Idle>();
+				idle.put(key, channels);
+			}
+			if (channels.size() < maxIdle) {
+				// most recently used first, so the oldest are evicted
+				channels.addFirst(new Idle(channel));
+				return;
+			}
+		}
+		channel.close();
+	}
+
+	/**
+	 * Build channels ahead of time, so that the first containers don't wait
+	 * for a stack either.
+	 */
+	public void prefill(String config, int count) throws Exception {
+		for (int i = 0; i < count; i++)
+			releaseChannel(config, build(config, null));
+	}
+
+	protected JChannel createChannel(String config) throws Exception {
+		return ChannelPresets.createChannel(config);
+	}
+
+	private JChannel build(String config, Map<String, ?> properties) throws Exception {
+		final long start = System.nanoTime();
+		final JChannel channel = createChannel(config);
+		try {
+			ChannelPresets.configure(channel, properties);
+		} catch (final Exception e) {
+			channel.close();
+			throw e;
+		}
+		buildNanos.addAndGet(System.nanoTime() - start);
+		builds.incrementAndGet();
+		return channel;
+	}
+
+	void evict() {
+		final long now = System.nanoTime();
+		final Deque<Idle> expired = new ArrayDeque<Idle>();
+		synchronized (this) {
+			for (final Deque<Idle> channels : idle.values())
+				for (final Iterator<Idle> i = channels.descendingIterator(); i.hasNext();) {
+					final Idle channel = i.next();
+					if (now - channel.since < idleNanos)
+						break;
+					i.remove();
+					expired.add(channel);
+				}
+		}
+		for (final Idle channel : expired) {
+			channel.channel.close();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Close all idle channels and stop evicting.
+	 */
+	public void close() {
+		if (evictionTask != null)
+			evictionTask.cancel(false);
+		final Deque<Idle> closed = new ArrayDeque<Idle>();
+		synchronized (this) {
+			for (final Deque<Idle> channels : idle.values())
+				closed.addAll(channels);
+			idle.clear();
+		}
+		for (final Idle channel : closed)
+			channel.channel.close();
+	}
+
+	public synchronized int getIdleCount() {
+		int result = 0;
+		for (final Deque<Idle> channels : idle.values())
+			result += channels.size();
+		return result;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return average time taken to build a channel, in nanoseconds
+	 */
+	public long getAverageBuildNanos() {
+		final long count = builds.get();
+		return (count == 0) ? 0 : buildNanos.get() / count;
+	}
+
+	/**
+	 * @return time not spent building channels, estimated as the average build
+	 *         time for every channel taken from the pool, in milliseconds
+	 */
+	public long getTimeSavedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(savedNanos.get());
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("ChannelPool[");
+		buf.append("idle=").append(getIdleCount()).append(";hits=").append(getHits()).append(";misses=")
+				.append(getMisses()).append(";evictions=").append(getEvictions()).append(";timeSavedMillis=")
+				.append(getTimeSavedMillis()).append("]");
+		return buf.toString();
+	}
+}
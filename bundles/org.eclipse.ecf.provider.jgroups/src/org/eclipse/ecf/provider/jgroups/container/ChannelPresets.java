@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jgroups.JChannel;
+import org.jgroups.protocols.TCPPING;
+import org.jgroups.protocols.TP;
+import org.jgroups.util.Util;
+
+/**
+ * Creates channels from a channel configuration, which is either the name of
+ * one of the presets below or a JGroups configuration: a file, resource or URL
+ * with the XML for the stack, or an old-style property string. Transport
+ * settings can be overridden with container properties.
+ */
+public class ChannelPresets {
+
+	/**
+	 * UDP with IP multicast, without message bundling and with fast
+	 * retransmission.
+	 */
+	public static final String UDP_LOW_LATENCY = "udp-low-latency";
+	/**
+	 * TCP with large bundles, buffers and flow control credits. Discovery uses
+	 * IP multicast.
+	 */
+	public static final String TCP_HIGH_THROUGHPUT = "tcp-high-throughput";
+	/**
+	 * In-memory transport between channels in one JVM.
+	 */
+	public static final String SHARED_LOOPBACK = "shared-loopback";
+	/**
+	 * TCP with discovery through a fixed list of hosts, see
+	 * {@link #INITIAL_HOSTS_PROP}, and less frequent background traffic.
+	 */
+	public static final String TCP_LARGE_CLUSTER = "tcp-large-cluster";
+
+	private static final String[] PRESETS = { UDP_LOW_LATENCY, TCP_HIGH_THROUGHPUT, SHARED_LOOPBACK,
+			TCP_LARGE_CLUSTER };
+
+	public static final String THREAD_POOL_MIN_THREADS_PROP = "threadPoolMinThreads";
+	public static final String THREAD_POOL_MAX_THREADS_PROP = "threadPoolMaxThreads";
+	public static final String THREAD_POOL_KEEP_ALIVE_TIME_PROP = "threadPoolKeepAliveTime";
+	/**
+	 * Property naming the transport's bundler, e.g. transfer-queue or
+	 * no-bundler.
+	 */
+	public static final String BUNDLER_TYPE_PROP = "bundlerType";
+	public static final String BUNDLER_CAPACITY_PROP = "bundlerCapacity";
+	public static final String MAX_BUNDLE_SIZE_PROP = "maxBundleSize";
+	/**
+	 * Property with the hosts TCPPING discovers members on, as
+	 * host[port],host[port]...
+	 */
+	public static final String INITIAL_HOSTS_PROP = "initialHosts";
+
+	private static final String[] OVERRIDE_PROPS = { THREAD_POOL_MIN_THREADS_PROP, THREAD_POOL_MAX_THREADS_PROP,
+			THREAD_POOL_KEEP_ALIVE_TIME_PROP, BUNDLER_TYPE_PROP, BUNDLER_CAPACITY_PROP, MAX_BUNDLE_SIZE_PROP,
+			INITIAL_HOSTS_PROP };
+
+	public static String[] getPresets() {
+		return PRESETS.clone();
+	}
+
+	public static boolean isPreset(String config) {
+		for (int i = 0; i < PRESETS.length; i++)
+			if (PRESETS[i].equals(config))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @param config
+	 *            preset name or JGroups configuration, or null for the JGroups
+	 *            default stack
+	 */
+	public static JChannel createChannel(String config) throws Exception {
+		if (config == null)
+			return new JChannel();
+		if (!isPreset(config))
+			return new JChannel(config);
+		final InputStream in = ChannelPresets.class.getResourceAsStream("presets/" + config + ".xml");
+		try {
+			return new JChannel(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Create the channel and apply the overrides in properties to it.
+	 */
+	public static JChannel createChannel(String config, Map<String, ?> properties) throws Exception {
+		final JChannel channel = createChannel(config);
+		try {
+			configure(channel, properties);
+		} catch (final Exception e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	/**
+	 * Apply the transport overrides in properties to an unconnected channel.
+	 */
+	public static void configure(JChannel channel, Map<String, ?> properties) throws Exception {
+		if (properties == null)
+			return;
+		final TP transport = channel.getProtocolStack().getTransport();
+		final int minThreads = AbstractJGroupsConnection.getIntProperty(properties, THREAD_POOL_MIN_THREADS_PROP, -1);
+		final int maxThreads = AbstractJGroupsConnection.getIntProperty(properties, THREAD_POOL_MAX_THREADS_PROP, -1);
+		// the pool rejects a maximum below its minimum
+		if (maxThreads >= 0 && maxThreads >= transport.getThreadPoolMinThreads())
+			transport.setThreadPoolMaxThreads(maxThreads);
+		if (minThreads >= 0)
+			transport.setThreadPoolMinThreads(minThreads);
+		if (maxThreads >= 0 && maxThreads != transport.getThreadPoolMaxThreads())
+			transport.setThreadPoolMaxThreads(maxThreads);
+		final int keepAlive = AbstractJGroupsConnection.getIntProperty(properties, THREAD_POOL_KEEP_ALIVE_TIME_PROP,
+				-1);
+		if (keepAlive >= 0)
+			transport.setThreadPoolKeepAliveTime(keepAlive);
+		final int maxBundleSize = AbstractJGroupsConnection.getIntProperty(properties, MAX_BUNDLE_SIZE_PROP, -1);
+		if (maxBundleSize > 0)
+			transport.setMaxBundleSize(maxBundleSize);
+		final Object bundlerType = properties.get(BUNDLER_TYPE_PROP);
+		final int bundlerCapacity = AbstractJGroupsConnection.getIntProperty(properties, BUNDLER_CAPACITY_PROP, -1);
+		if (bundlerCapacity > 0)
+			transport.setValue("bundler_capacity", Integer.valueOf(bundlerCapacity));
+		// the bundler is rebuilt to pick up a new capacity
+		if (bundlerType != null || bundlerCapacity > 0)
+			transport.bundler(
+					(bundlerType != null) ? bundlerType.toString() : (String) transport.getValue("bundler_type"));
+		final Object initialHosts = properties.get(INITIAL_HOSTS_PROP);
+		final TCPPING tcpping = channel.getProtocolStack().findProtocol(TCPPING.class);
+		if (initialHosts != null && tcpping != null)
+			tcpping.setInitialHosts2(Util.parseCommaDelimitedHosts(initialHosts.toString(), 0));
+	}
+
+	/**
+	 * @return the transport overrides in properties, by property name
+	 */
+	public static Map<String, String> getOverrides(Map<String, ?> properties) {
+		final Map<String, String> result = new TreeMap<String, String>();
+		if (properties != null)
+			for (int i = 0; i < OVERRIDE_PROPS.length; i++) {
+				final Object value = properties.get(OVERRIDE_PROPS[i]);
+				if (value != null)
+					result.put(OVERRIDE_PROPS[i], value.toString().trim());
+			}
+		return result;
+	}
+
+	/**
+	 * @return a key that is the same for two channels only if they are built
+	 *         from the same configuration with the same overrides
+	 */
+	static String getChannelKey(String config, Map<String, ?> properties) {
+		final String key = (config == null) ? "" : config;
+		final Map<String, String> overrides = getOverrides(properties);
+		return overrides.isEmpty() ? key : key + overrides;
+	}
+
+	private ChannelPresets() {
+		// no instances
+	}
+}
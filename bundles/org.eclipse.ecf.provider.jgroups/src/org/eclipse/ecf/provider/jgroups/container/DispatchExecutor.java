@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Dispatch stage between the JGroups receiver thread and the container's
+ * event handler. Messages are queued on one of a fixed number of
+ * single-threaded stripes chosen by sender address, so messages from one
+ * sender are handled in the order they were received while different senders
+ * are handled in parallel.
+ */
+public class DispatchExecutor {
+
+	private final ExecutorService[] stripes;
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong dispatched = new AtomicLong();
+	private final AtomicLong latencyNanos = new AtomicLong();
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+	public DispatchExecutor(final String name, int threads) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("threads must be > 0");
+		stripes = new ExecutorService[threads];
+		for (int i = 0; i < threads; i++) {
+			final String threadName = name + "-" + i;
+			stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							final Thread t = new Thread(r, threadName);
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+	}
+
+	private ExecutorService stripe(Object key) {
+		if (key == null)
+			return stripes[0];
+		final int h = key.hashCode();
+		return stripes[((h ^ (h >>> 16)) & 0x7fffffff) % stripes.length];
+	}
+
+	/**
+	 * Queue a task behind earlier tasks for the same key, such as the address
+	 * of the sender of a message.
+	 *
+	 * @return false if the executor has been shut down and the task dropped
+	 */
+	public boolean execute(Object key, final Runnable task) {
+		final long enqueued = System.nanoTime();
+		queued.incrementAndGet();
+		try {
+			stripe(key).execute(new Runnable() {
+				public void run() {
+					recordDispatch(System.nanoTime() - enqueued);
+					task.run();
+				}
+			});
+			return true;
+		} catch (final RejectedExecutionException e) {
+			queued.decrementAndGet();
+			return false;
+		}
+	}
+
+	void recordDispatch(long latency) {
+		queued.decrementAndGet();
+		dispatched.incrementAndGet();
+		latencyNanos.addAndGet(latency);
+		long max = maxLatencyNanos.get();
+		while (latency > max && !maxLatencyNanos.compareAndSet(max, latency))
+			max = maxLatencyNanos.get();
+	}
+
+	public int getThreads() {
+		return stripes.length;
+	}
+
+	/**
+	 * @return number of tasks queued and not yet started
+	 */
+	public long getQueueDepth() {
+		return queued.get();
+	}
+
+	public long getDispatched() {
+		return dispatched.get();
+	}
+
+	/**
+	 * @return mean time between queueing and start of a task
+	 */
+	public long getAverageLatencyNanos() {
+		final long count = dispatched.get();
+		return (count == 0) ? 0 : latencyNanos.get() / count;
+	}
+
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos.get();
+	}
+
+	public void shutdown() {
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i].shutdown();
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("DispatchExecutor[");
+		buf.append("threads=").append(getThreads()).append(";queueDepth=").append(getQueueDepth());
+		buf.append(";dispatched=").append(getDispatched()).append(";avgLatencyNanos=")
+				.append(getAverageLatencyNanos()).append(";maxLatencyNanos=").append(getMaxLatencyNanos()).append("]");
+		return buf.toString();
+	}
+}
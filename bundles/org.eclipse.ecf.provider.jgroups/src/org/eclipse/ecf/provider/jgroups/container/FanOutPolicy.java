@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+/**
+ * How many successful responses a fan-out call waits for.
+ */
+public class FanOutPolicy {
+
+	public enum Mode {
+		/**
+		 * Every member that was sent the call.
+		 */
+		ALL,
+		/**
+		 * The first n members to respond.
+		 */
+		FIRST,
+		/**
+		 * A majority of the members that were sent the call.
+		 */
+		QUORUM
+	}
+
+	private final Mode mode;
+	private final int count;
+
+	private FanOutPolicy(Mode mode, int count) {
+		this.mode = mode;
+		this.count = count;
+	}
+
+	public static FanOutPolicy all() {
+		return new FanOutPolicy(Mode.ALL, 0);
+	}
+
+	public static FanOutPolicy first(int n) {
+		if (n <= 0)
+			throw new IllegalArgumentException("n must be > 0");
+		return new FanOutPolicy(Mode.FIRST, n);
+	}
+
+	public static FanOutPolicy quorum() {
+		return new FanOutPolicy(Mode.QUORUM, 0);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return number of successful responses needed out of expected
+	 */
+	public int getRequired(int expected) {
+		switch (mode) {
+		case FIRST:
+			return Math.min(count, expected);
+		case QUORUM:
+			return expected / 2 + 1;
+		default:
+			return expected;
+		}
+	}
+
+	public String toString() {
+		return "FanOutPolicy[mode=" + mode + ((mode == Mode.FIRST) ? ";count=" + count : "") + "]";
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+/**
+ * Responses gathered by a fan-out call. The call completes once the
+ * {@link FanOutPolicy} is satisfied, once it can no longer be, when every
+ * member has responded, or at the deadline, whichever is first. Responses
+ * arriving after that are ignored.
+ */
+public class FanOutResult {
+
+	private final FanOutPolicy policy;
+	private final int expected;
+	private final int required;
+	private final Map<JGroupsID, Object> results = new LinkedHashMap<JGroupsID, Object>();
+	private final Map<JGroupsID, Throwable> failures = new LinkedHashMap<JGroupsID, Throwable>();
+	private boolean timedOut;
+	final CompletableFuture<FanOutResult> future = new CompletableFuture<FanOutResult>();
+
+	FanOutResult(FanOutPolicy policy, int expected) {
+		this.policy = policy;
+		this.expected = expected;
+		this.required = policy.getRequired(expected);
+		if (expected == 0)
+			future.complete(this);
+	}
+
+	void addResult(JGroupsID fromID, Object result) {
+		synchronized (this) {
+			if (future.isDone() || results.containsKey(fromID) || failures.containsKey(fromID))
+				return;
+			results.put(fromID, result);
+		}
+		checkDone();
+	}
+
+	void addFailure(JGroupsID fromID, Throwable failure) {
+		synchronized (this) {
+			if (future.isDone() || results.containsKey(fromID) || failures.containsKey(fromID))
+				return;
+			failures.put(fromID, failure);
+		}
+		checkDone();
+	}
+
+	void timeout() {
+		synchronized (this) {
+			if (future.isDone())
+				return;
+			timedOut = true;
+		}
+		future.complete(this);
+	}
+
+	private void checkDone() {
+		synchronized (this) {
+			final int outstanding = expected - results.size() - failures.size();
+			if (results.size() < required && outstanding > 0 && results.size() + outstanding >= required)
+				return;
+		}
+		future.complete(this);
+	}
+
+	public FanOutPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return number of members the call was sent to
+	 */
+	public int getExpected() {
+		return expected;
+	}
+
+	public int getRequired() {
+		return required;
+	}
+
+	/**
+	 * @return true if enough members responded successfully
+	 */
+	public synchronized boolean isSatisfied() {
+		return results.size() >= required;
+	}
+
+	/**
+	 * @return true if the deadline passed before the call completed
+	 */
+	public synchronized boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * @return values returned, by member, in the order they arrived
+	 */
+	public synchronized Map<JGroupsID, Object> getResults() {
+		return new LinkedHashMap<JGroupsID, Object>(results);
+	}
+
+	/**
+	 * @return exceptions thrown, by member
+	 */
+	public synchronized Map<JGroupsID, Throwable> getFailures() {
+		return new LinkedHashMap<JGroupsID, Throwable>(failures);
+	}
+
+	public synchronized String toString() {
+		final StringBuffer buf = new StringBuffer("FanOutResult[");
+		buf.append("policy=").append(policy).append(";expected=").append(expected).append(";results=")
+				.append(results.size()).append(";failures=").append(failures.size()).append(";timedOut=")
+				.append(timedOut).append("]");
+		return buf.toString();
+	}
+}
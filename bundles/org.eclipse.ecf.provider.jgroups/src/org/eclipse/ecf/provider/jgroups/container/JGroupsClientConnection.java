@@ -8,90 +8,421 @@
  ******************************************************************************/
 package org.eclipse.ecf.provider.jgroups.container;
 
+import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.ecf.core.ContainerConnectException;
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.util.ECFException;
 import org.eclipse.ecf.provider.comm.IAsynchConnection;
 import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
+import org.eclipse.ecf.provider.comm.SynchEvent;
 import org.eclipse.ecf.provider.generic.ContainerMessage;
-import org.eclipse.ecf.provider.generic.SOContainer;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
 import org.jgroups.Address;
 import org.jgroups.JChannel;
 import org.jgroups.View;
+import org.jgroups.fork.ForkChannel;
 
 public class JGroupsClientConnection extends AbstractJGroupsConnection {
 
+	/**
+	 * Property naming whether the view coordinator takes over as manager when
+	 * the manager leaves the group, instead of every client disconnecting.
+	 * The acting manager tells the remaining members of departures but does
+	 * not admit new members: connecting to the manager's id fails once the
+	 * manager has left, and connect requests to a client are refused. If the
+	 * coordinator is not a known member of the group, as on a shared channel
+	 * where it may belong to another group, no member takes over. Defaults
+	 * to false.
+	 */
+	public static final String MANAGER_FAILOVER_PROP = "managerFailover";
+
+	public interface FailoverListener {
+		/**
+		 * Called when the manager has left the view and the coordinator of the
+		 * view has taken its place.
+		 * 
+		 * @param newManagerID
+		 *            id of the coordinator, which may be this member
+		 */
+		void managerChanged(JGroupsID previousManagerID, JGroupsID newManagerID);
+
+		/**
+		 * Called while this member acts as manager when other members leave
+		 * the view.
+		 */
+		void membersLeft(List<JGroupsID> memberIDs);
+	}
+
+	public interface MembershipListener {
+		/**
+		 * Called when a membership delta or snapshot from the manager has been
+		 * applied to this member's replica of the membership log.
+		 */
+		void membershipChanged(List<JGroupsID> joined, List<JGroupsID> left);
+	}
+
+	/**
+	 * Time after which a snapshot is asked for again, if the last request
+	 * has not closed the gap.
+	 */
+	public static final long SNAPSHOT_RETRY_MILLIS = 1000;
+
 	public JGroupsClientConnection(ISynchAsynchEventHandler eventHandler, JChannel channel) {
-		super(eventHandler, channel);
+		this(eventHandler, channel, null);
 	}
 
-	@Override
-	public synchronized Object connect(ID targetID, Object data, int timeout) throws ECFException {
-		if (isConnected())
-			throw new ContainerConnectException("Already connected");//$NON-NLS-1$
-		if (targetID == null)
-			throw new ContainerConnectException("TargetID must not be null");//$NON-NLS-1$
-		if (!(targetID instanceof JGroupsID))
-			throw new ContainerConnectException("Target ID not of JGroupsID namespace");
-		if (!(data instanceof Serializable)) {
-			throw new ContainerConnectException("Connect Failed",
-					new NotSerializableException("Data not serializable"));
+	public JGroupsClientConnection(ISynchAsynchEventHandler eventHandler, JChannel channel,
+			Map<String, ?> properties) {
+		super(eventHandler, channel, properties);
+		getMessageCodec().setIDDictionary(new MembershipDictionary());
+		setManagerFailover(getBooleanProperty(properties, MANAGER_FAILOVER_PROP, false));
+	}
+
+	public boolean isManagerFailover() {
+		return managerFailover;
+	}
+
+	public void setManagerFailover(boolean managerFailover) {
+		this.managerFailover = managerFailover;
+	}
+
+	public void setFailoverListener(FailoverListener failoverListener) {
+		this.failoverListener = failoverListener;
+	}
+
+	public void setMembershipListener(MembershipListener membershipListener) {
+		this.membershipListener = membershipListener;
+	}
+
+	/**
+	 * @return this member's replica of the manager's membership log
+	 */
+	public MembershipLog getMembershipLog() {
+		return membershipLog;
+	}
+
+	/**
+	 * Apply a membership snapshot, such as the one in the connect response,
+	 * to the replica.
+	 * 
+	 * @return the members that joined and left, or null if the snapshot is
+	 *         older than the replica
+	 */
+	public MembershipLog.Update applySnapshot(byte[] snapshot) throws IOException {
+		final MembershipLog.Update update = membershipLog.apply(snapshot, 0, snapshot.length);
+		// header indices are agreed with the manager that sent the snapshot
+		logManagerID = this.managerID;
+		return update;
+	}
+
+	/**
+	 * Header IDs for unicasts with the manager whose log is replicated: 0
+	 * stands for the manager and the log index plus one for a client.
+	 */
+	class MembershipDictionary implements MessageCodec.IDDictionary {
+		public int indexOf(JGroupsID id, JGroupsID targetID) {
+			final JGroupsID manager = logManagerID;
+			if (manager == null || !targetID.equals(manager))
+				return -1;
+			if (id.equals(manager))
+				return 0;
+			final int index = membershipLog.indexOf(id);
+			return (index < 0) ? -1 : index + 1;
 		}
-		ConnectResponseMessage response = null;
+
+		public JGroupsID get(int index) {
+			return (index == 0) ? logManagerID : membershipLog.get(index - 1);
+		}
+	}
+
+	@Override
+	protected void handleMembershipMessage(MembershipMessage message) {
+		// only the manager's log is replicated
+		if (!message.getFromID().equals(this.managerID))
+			return;
 		try {
-			final JGroupsID jgroupsID = (JGroupsID) targetID;
-			this.managerID = jgroupsID;
-			setupJGroups(jgroupsID);
-			response = (ConnectResponseMessage) sendMessageAndWait(jgroupsID,
-					new ConnectRequestMessage(getLocalID(), jgroupsID, serializeToBytes(data)), timeout);
-		} catch (final Exception e) {
-			ContainerConnectException cce = new ContainerConnectException(
-					"Connect to targetID=" + targetID.getName() + " failed", e);
-			cce.setStackTrace(e.getStackTrace());
-			this.managerID = null;
-			throw cce;
+			final MembershipLog.Update update = membershipLog.apply(message.getRawData(), message.getOffset(),
+					message.getLength());
+			final MembershipListener listener = membershipListener;
+			if (update != null && listener != null)
+				listener.membershipChanged(update.getJoined(), update.getLeft());
+			if (membershipLog.hasGap())
+				requestSnapshot(message.getFromID());
+		} catch (final IOException e) {
+			logException("handleMembershipMessage: could not apply membership message", e);
+		}
+	}
+
+	private void requestSnapshot(JGroupsID manager) throws IOException {
+		final long now = System.nanoTime();
+		synchronized (membershipLog) {
+			if (snapshotRequested != 0
+					&& now - snapshotRequested < TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_RETRY_MILLIS))
+				return;
+			snapshotRequested = now;
 		}
-		Object connectResponseResult = null;
+		snapshotRequests.incrementAndGet();
+		sendMessage(manager,
+				new MembershipMessage(getLocalID(), manager, MembershipLog.snapshotRequest(membershipLog.getEpoch())));
+	}
+
+	/**
+	 * @return number of membership snapshots asked of the manager
+	 */
+	public long getSnapshotRequestCount() {
+		return snapshotRequests.get();
+	}
+
+	/**
+	 * @return true if this member has taken over as manager after the
+	 *         manager left
+	 */
+	public boolean isActingManager() {
+		return actingManager;
+	}
+
+	@Override
+	public Object connect(ID targetID, Object data, int timeout) throws ECFException {
 		try {
-			connectResponseResult = SOContainer.deserializeContainerMessage((byte[]) response.getData());
-		} catch (final Exception e) {
-			this.managerID = null;
-			throw new ContainerConnectException("Could not deserialize connect response", e);
+			// joined on the calling thread, which waits anyway, rather than on
+			// another connect thread
+			return connectAsync(targetID, data, timeout, Runnable::run).get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ContainerConnectException("Connect to targetID=" + targetID.getName() + " interrupted", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ECFException)
+				throw (ECFException) cause;
+			throw new ContainerConnectException("Connect to targetID=" + targetID.getName() + " failed", cause);
 		}
-		if (connectResponseResult == null || !(connectResponseResult instanceof ContainerMessage)) {
-			this.managerID = null;
-			throw new ContainerConnectException("Server response not of type ContainerMessage");
+	}
+
+	/**
+	 * Join the group and send the connect request without waiting. The
+	 * channel is connected on a shared connect thread, and the response is
+	 * waited for without holding a thread.
+	 * 
+	 * @return future completed with the manager's connect response
+	 *         ContainerMessage, or exceptionally with a
+	 *         ContainerConnectException
+	 */
+	public CompletableFuture<Object> connectAsync(ID targetID, Object data, int timeout) {
+		return connectAsync(targetID, data, timeout, getConnectExecutor());
+	}
+
+	/**
+	 * @param joinExecutor
+	 *            runs the join of the channel
+	 */
+	private CompletableFuture<Object> connectAsync(ID targetID, Object data, int timeout, Executor joinExecutor) {
+		final CompletableFuture<Object> result = new CompletableFuture<Object>();
+		final JGroupsID jgroupsID;
+		final byte[] requestData;
+		synchronized (this) {
+			try {
+				if (isConnected() || this.managerID != null)
+					throw new ContainerConnectException("Already connected");//$NON-NLS-1$
+				if (targetID == null)
+					throw new ContainerConnectException("TargetID must not be null");//$NON-NLS-1$
+				if (!(targetID instanceof JGroupsID))
+					throw new ContainerConnectException("Target ID not of JGroupsID namespace");
+				if (!(data instanceof Serializable)) {
+					throw new ContainerConnectException("Connect Failed",
+							new NotSerializableException("Data not serializable"));
+				}
+				requestData = serializeToBytes(data);
+			} catch (final Exception e) {
+				result.completeExceptionally(e);
+				return result;
+			}
+			jgroupsID = (JGroupsID) targetID;
+			this.managerID = jgroupsID;
 		}
-		return connectResponseResult;
+		CompletableFuture.runAsync(() -> {
+			try {
+				setupJGroups(jgroupsID);
+			} catch (final ECFException e) {
+				throw new CompletionException(e);
+			}
+		}, joinExecutor).thenCompose(v -> sendRequest(jgroupsID,
+				new ConnectRequestMessage(getLocalID(), jgroupsID, requestData), timeout)).whenComplete((response, t) -> {
+					if (t != null) {
+						this.managerID = null;
+						managerAddress = null;
+						final Throwable cause = (t instanceof CompletionException && t.getCause() != null)
+								? t.getCause() : t;
+						result.completeExceptionally(new ContainerConnectException(
+								"Connect to targetID=" + targetID.getName() + " failed", cause));
+						return;
+					}
+					Object connectResponseResult = null;
+					try {
+						connectResponseResult = MessageCodec.readContainerMessage(response);
+					} catch (final Exception e) {
+						this.managerID = null;
+						managerAddress = null;
+						result.completeExceptionally(
+								new ContainerConnectException("Could not deserialize connect response", e));
+						return;
+					}
+					if (connectResponseResult == null || !(connectResponseResult instanceof ContainerMessage)) {
+						this.managerID = null;
+						managerAddress = null;
+						result.completeExceptionally(
+								new ContainerConnectException("Server response not of type ContainerMessage"));
+						return;
+					}
+					// the manager's membership snapshot, applied before any
+					// message using its indices is decoded
+					final Object viewChange = ((ContainerMessage) connectResponseResult).getData();
+					final Object snapshot = (viewChange instanceof ContainerMessage.ViewChangeMessage)
+							? ((ContainerMessage.ViewChangeMessage) viewChange).getData() : null;
+					if (snapshot instanceof byte[]) {
+						try {
+							applySnapshot((byte[]) snapshot);
+						} catch (final IOException e) {
+							logException("connect: could not apply membership snapshot", e);
+						}
+					}
+					result.complete(connectResponseResult);
+				});
+		return result;
 	}
 
 	@Override
 	protected void handleSyncMessage(SyncMessage message) {
-		setSyncResponse(message);
+		if (message instanceof ConnectRequestMessage) {
+			// not even when acting as manager, which only keeps the members
+			logException("handleSyncMessage: connect request from " + message.getFromID().getName()
+					+ " refused, as clients do not admit members", null);
+			return;
+		}
+		try {
+			// ClientSOContainer expects the serialized container message
+			final Object result = getEventHandler().handleSynchEvent(new SynchEvent(this, message.getData()));
+			sendResponse(message, new SyncResponseMessage(getLocalID(), message.getFromID(),
+					(result == null) ? null : serializeToBytes(result)));
+		} catch (final Exception e) {
+			logException("handleSyncMessage:exception", e);
+		}
 	}
 
-	private JGroupsID managerID;
+	private volatile JGroupsID managerID;
+	// address of the manager in this connection's group, as ids are shared
+	private volatile Address managerAddress;
+	// manager the membership log replica, and so the header dictionary, is from
+	private volatile JGroupsID logManagerID;
+	private volatile boolean managerFailover;
+	private volatile boolean actingManager;
+	private volatile FailoverListener failoverListener;
+	private volatile MembershipListener membershipListener;
+	private final MembershipLog membershipLog = new MembershipLog();
+	// when a snapshot was last asked for, guarded by membershipLog
+	private long snapshotRequested;
+	private final AtomicLong snapshotRequests = new AtomicLong();
 
 	protected JGroupsID getManagerID() {
 		return managerID;
 	}
 
 	@Override
-	protected void handleViewAccepted(View view) {
-		if (this.managerID != null && managerID.getAddress() == null)
-			for (Address addr : view.getMembers())
-				if (addr.toString().equals(this.managerID.getName()))
-					this.managerID.setAddress(addr);
-		super.handleViewAccepted(view);
+	protected void handleViewAccepted(View view, ViewDelta delta) {
+		final JGroupsID manager = this.managerID;
+		if (manager != null && managerAddress == null)
+			managerAddress = getMemberIndex().get(manager.getName());
+		if (managerFailover)
+			handleFailover(view, delta);
+		// once the manager is re-pointed the old one is not seen as departed
+		super.handleViewAccepted(view, delta);
+	}
+
+	private void handleFailover(View view, ViewDelta delta) {
+		final JGroupsID manager = this.managerID;
+		final Address managerAddress = (manager == null) ? null : this.managerAddress;
+		final FailoverListener listener = failoverListener;
+		if (managerAddress != null && !view.containsMember(managerAddress)) {
+			final Address coord = view.getCoord();
+			final JGroupsID newManagerID = createMemberID(coord);
+			if (newManagerID == null || !isGroupMember(newManagerID)) {
+				// members disconnect, as without failover
+				logException("handleFailover: coordinator " + coord + " is not a known member of the group, "
+						+ "no member takes over from manager " + manager.getName(), null);
+				return;
+			}
+			this.managerID = newManagerID;
+			this.managerAddress = coord;
+			actingManager = coord.equals(getLocalAddress());
+			if (listener != null)
+				listener.managerChanged(manager, newManagerID);
+		}
+		if (actingManager && listener != null) {
+			final List<JGroupsID> left = new ArrayList<JGroupsID>();
+			for (final Address addr : delta.getLeft())
+				if (!addr.equals(managerAddress)) {
+					final JGroupsID memberID = createMemberID(addr);
+					if (memberID != null && isGroupMember(memberID))
+						left.add(memberID);
+				}
+			if (!left.isEmpty())
+				listener.membersLeft(left);
+		}
+	}
+
+	/**
+	 * @return true if the member is in the replica of the manager's
+	 *         membership log, or there is no replica to tell. On a shared
+	 *         channel the view also has members of other groups.
+	 */
+	private boolean isGroupMember(JGroupsID memberID) {
+		return membershipLog.size() == 0 || membershipLog.indexOf(memberID) >= 0;
+	}
+
+	@Override
+	protected int getOtherMemberCount() {
+		// the manager and the other members in the replica, as on a shared
+		// channel the view has members of other groups
+		final List<JGroupsID> members = membershipLog.getMembers();
+		if (members.isEmpty() && !(getChannel() instanceof ForkChannel))
+			return super.getOtherMemberCount();
+		final JGroupsID manager = this.managerID;
+		int count = (manager != null && !members.contains(manager)) ? 1 : 0;
+		for (final JGroupsID memberID : members)
+			if (!memberID.equals(getLocalID()))
+				count++;
+		return count;
+	}
+
+	@Override
+	protected void handleResponseSource(SyncMessage response, Address source) {
+		// channel names can't identify the manager on a shared channel
+		if (response instanceof ConnectResponseMessage && this.managerID != null && managerAddress == null)
+			managerAddress = source;
+	}
+
+	@Override
+	protected Address resolveAddress(JGroupsID targetID) throws IOException {
+		final Address addr = managerAddress;
+		if (addr != null && targetID.equals(this.managerID))
+			return addr;
+		return super.resolveAddress(targetID);
 	}
 
 	@Override
 	protected IAsynchConnection getClientForAddress(Address addr) {
-		if (this.managerID != null && addr.equals(this.managerID.getAddress()))
+		if (this.managerID != null && addr.equals(managerAddress))
 			return this;
 		return null;
 	}
@@ -99,6 +430,16 @@ public class JGroupsClientConnection extends AbstractJGroupsConnection {
 	@Override
 	public synchronized void disconnect() {
 		this.managerID = null;
+		managerAddress = null;
+		logManagerID = null;
+		actingManager = false;
+		membershipLog.clear();
 		super.disconnect();
 	}
+
+	@Override
+	protected boolean isBatchDelivery() {
+		// delivered to JGroups containers
+		return true;
+	}
 }
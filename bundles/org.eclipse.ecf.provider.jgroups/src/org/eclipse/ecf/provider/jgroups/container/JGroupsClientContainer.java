@@ -8,19 +8,36 @@
  ******************************************************************************/
 package org.eclipse.ecf.provider.jgroups.container;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.eclipse.ecf.core.ContainerConnectException;
+import org.eclipse.ecf.core.events.ContainerConnectedEvent;
+import org.eclipse.ecf.core.events.ContainerDisconnectedEvent;
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.identity.IDCreateException;
 import org.eclipse.ecf.core.identity.Namespace;
+import org.eclipse.ecf.core.security.IConnectContext;
+import org.eclipse.ecf.provider.comm.AsynchEvent;
 import org.eclipse.ecf.provider.comm.ConnectionCreateException;
 import org.eclipse.ecf.provider.comm.ISynchAsynchConnection;
 import org.eclipse.ecf.provider.generic.ClientSOContainer;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
 import org.eclipse.ecf.provider.generic.SOContainerConfig;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
 import org.jgroups.JChannel;
+import org.jgroups.util.Buffer;
 
-public class JGroupsClientContainer extends ClientSOContainer {
+public class JGroupsClientContainer extends ClientSOContainer
+		implements JGroupsClientConnection.FailoverListener, JGroupsClientConnection.MembershipListener {
 
 	private final JChannel channel;
+	private final RemoteCallRegistry callRegistry = new RemoteCallRegistry();
 
 	public JGroupsClientContainer(SOContainerConfig config) throws IDCreateException {
 		this(config, null);
@@ -36,9 +53,171 @@ public class JGroupsClientContainer extends ClientSOContainer {
 		return JGroupsNamespace.INSTANCE;
 	}
 
+	/**
+	 * Connect without blocking the caller. The connect runs on a shared
+	 * connect thread, so many containers can connect in parallel. The
+	 * container's connect is one blocking call that creates the connection,
+	 * so it can't be chained on the connection's connectAsync; instead the
+	 * connection joins on this same thread, and each pending connect holds
+	 * one thread.
+	 * 
+	 * @return future completed when connected, or exceptionally with the
+	 *         ContainerConnectException
+	 */
+	public CompletableFuture<Void> connectAsync(final ID targetID, final IConnectContext connectContext) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				connect(targetID, connectContext);
+			} catch (final ContainerConnectException e) {
+				throw new CompletionException(e);
+			}
+		}, AbstractJGroupsConnection.getConnectExecutor());
+	}
+
 	@Override
 	protected ISynchAsynchConnection createConnection(ID remoteSpace, Object data) throws ConnectionCreateException {
-		return new JGroupsClientConnection(getReceiver(), channel);
+		final JGroupsClientConnection connection = new JGroupsClientConnection(getReceiver(), channel,
+				getConfig().getProperties());
+		connection.setRemoteCallRegistry(callRegistry);
+		connection.setFailoverListener(this);
+		connection.setMembershipListener(this);
+		return connection;
+	}
+
+	@Override
+	protected ID handleConnectResponse(ID originalTarget, Object serverData) throws Exception {
+		final ID serverID = super.handleConnectResponse(originalTarget, serverData);
+		// the other members come as a membership snapshot, which the
+		// connection has applied to its replica
+		final ISynchAsynchConnection c = getConnection();
+		if (c instanceof JGroupsClientConnection)
+			membershipChanged(((JGroupsClientConnection) c).getMembershipLog().getMembers(),
+					Collections.<JGroupsID> emptyList());
+		return serverID;
+	}
+
+	public void membershipChanged(List<JGroupsID> joined, List<JGroupsID> left) {
+		final List<ID> added = new ArrayList<ID>(joined.size());
+		final List<ID> removed = new ArrayList<ID>(left.size());
+		synchronized (getGroupMembershipLock()) {
+			if (isClosing)
+				return;
+			for (final JGroupsID memberID : joined)
+				if (!memberID.equals(getID()) && addNewRemoteMember(memberID, null))
+					added.add(memberID);
+			for (final JGroupsID memberID : left)
+				if (removeRemoteMember(memberID))
+					removed.add(memberID);
+		}
+		for (final ID memberID : added)
+			fireContainerEvent(new ContainerConnectedEvent(getID(), memberID));
+		for (final ID memberID : removed)
+			fireContainerEvent(new ContainerDisconnectedEvent(getID(), memberID));
+	}
+
+	public void managerChanged(JGroupsID previousManagerID, JGroupsID newManagerID) {
+		synchronized (getGroupMembershipLock()) {
+			if (isClosing)
+				return;
+			remoteServerID = newManagerID;
+			removeRemoteMember(previousManagerID);
+		}
+		fireContainerEvent(new ContainerDisconnectedEvent(getID(), previousManagerID));
+	}
+
+	public void membersLeft(List<JGroupsID> memberIDs) {
+		// as the manager would, tell the remaining members
+		final List<ID> removed = new ArrayList<ID>();
+		synchronized (getGroupMembershipLock()) {
+			if (isClosing)
+				return;
+			for (final JGroupsID memberID : memberIDs)
+				if (removeRemoteMember(memberID))
+					removed.add(memberID);
+		}
+		if (removed.isEmpty())
+			return;
+		for (final ID memberID : removed)
+			fireContainerEvent(new ContainerDisconnectedEvent(getID(), memberID));
+		try {
+			queueContainerMessage(ContainerMessage.createViewChangeMessage(getID(), null, getNextSequenceNumber(),
+					removed.toArray(new ID[removed.size()]), false, null));
+		} catch (final IOException e) {
+			traceStack("membersLeft", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @return the services other members can invoke on this container with
+	 *         {@link #callAsync(ID, RemoteCall, long)}
+	 */
+	public RemoteCallRegistry getRemoteCallRegistry() {
+		return callRegistry;
+	}
+
+	/**
+	 * Invoke a service method on another member without waiting.
+	 * 
+	 * @see AbstractJGroupsConnection#callAsync(JGroupsID, RemoteCall, long)
+	 */
+	public CompletableFuture<Object> callAsync(ID targetID, RemoteCall call, long timeout) {
+		final ISynchAsynchConnection c = getConnection();
+		if (!(c instanceof AbstractJGroupsConnection) || !(targetID instanceof JGroupsID)) {
+			final CompletableFuture<Object> result = new CompletableFuture<Object>();
+			result.completeExceptionally(new IOException("not connected or targetID not a JGroupsID"));
+			return result;
+		}
+		return ((AbstractJGroupsConnection) c).callAsync((JGroupsID) targetID, call, timeout);
+	}
+
+	/**
+	 * Invoke a service method on every other member without waiting.
+	 * 
+	 * @see AbstractJGroupsConnection#callFanOut(RemoteCall, FanOutPolicy, long)
+	 */
+	public CompletableFuture<FanOutResult> callFanOut(RemoteCall call, FanOutPolicy policy, long deadline) {
+		final ISynchAsynchConnection c = getConnection();
+		if (!(c instanceof AbstractJGroupsConnection)) {
+			final CompletableFuture<FanOutResult> result = new CompletableFuture<FanOutResult>();
+			result.completeExceptionally(new IOException("not connected"));
+			return result;
+		}
+		return ((AbstractJGroupsConnection) c).callFanOut(call, policy, deadline);
+	}
+
+	@Override
+	protected void queueContainerMessage(ContainerMessage mess) throws IOException {
+		final ISynchAsynchConnection c = getConnection();
+		if (c instanceof AbstractJGroupsConnection)
+			((AbstractJGroupsConnection) c).sendAsynch(mess.getToContainerID(), mess);
+		else
+			super.queueContainerMessage(mess);
+	}
+
+	@Override
+	protected void processAsynch(AsynchEvent e) throws IOException {
+		// JGroups connections deliver container messages already deserialized,
+		// other payloads as a view of the received buffer, and several
+		// messages from one sender as a batch
+		final Object data = e.getData();
+		if (data instanceof AsynchEventBatch) {
+			for (final Object payload : ((AsynchEventBatch) data).getPayloads())
+				processAsynchPayload(e, payload);
+		} else
+			processAsynchPayload(e, data);
+	}
+
+	private void processAsynchPayload(AsynchEvent e, Object data) throws IOException {
+		if (data instanceof Buffer) {
+			final Buffer buffer = (Buffer) data;
+			data = MessageCodec.readContainerMessage(buffer.getBuf(), buffer.getOffset(), buffer.getLength());
+		}
+		if (data instanceof ContainerMessage) {
+			final ContainerMessage mess = validateContainerMessage((ContainerMessage) data);
+			if (mess != null)
+				handleContainerMessage(mess);
+		} else
+			super.processAsynch(e);
 	}
 
 }
@@ -24,20 +24,46 @@ import org.eclipse.ecf.provider.generic.SOContainerConfig;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
 import org.eclipse.ecf.remoteservice.provider.RemoteServiceContainerInstantiator;
-import org.jgroups.Global;
 import org.jgroups.JChannel;
-import org.jgroups.conf.ConfiguratorFactory;
-import org.jgroups.conf.ProtocolStackConfigurator;
 
 public class JGroupsContainerInstantiator extends RemoteServiceContainerInstantiator {
 
 	public static final String JGROUPS_MANAGER_CONFIG = "ecf.jgroups.manager";
 	public static final String JGROUPS_CLIENT_CONFIG = "ecf.jgroups.client";
+	public static final String JGROUPS_PEER_CONFIG = "ecf.jgroups.peer";
 
 	public static final String JGROUPS_ID_PROP = "id";
 	public static final String JGROUPS_MANAGER_ID_DEFAULT = JGroupsNamespace.INSTANCE.getScheme()
 			+ ":ecf.jgroups.defaultGroup";
-	public static final String JGROUPS_CHANNEL_CONFIG_STRING = "channelConfigProperty";
+	/**
+	 * Group a peer container joins. Defaults to
+	 * {@link #JGROUPS_MANAGER_ID_DEFAULT}.
+	 */
+	public static final String JGROUPS_GROUP_PROP = "group";
+	/**
+	 * Channel configuration: one of the {@link ChannelPresets}, or a JGroups
+	 * XML configuration file, resource or URL.
+	 */
+	public static final String JGROUPS_CHANNEL_CONFIG_STRING = AbstractJGroupsConnection.CHANNEL_CONFIG_PROP;
+	public static final String JGROUPS_THREAD_POOL_MIN_THREADS = ChannelPresets.THREAD_POOL_MIN_THREADS_PROP;
+	public static final String JGROUPS_THREAD_POOL_MAX_THREADS = ChannelPresets.THREAD_POOL_MAX_THREADS_PROP;
+	public static final String JGROUPS_THREAD_POOL_KEEP_ALIVE_TIME = ChannelPresets.THREAD_POOL_KEEP_ALIVE_TIME_PROP;
+	public static final String JGROUPS_BUNDLER_TYPE = ChannelPresets.BUNDLER_TYPE_PROP;
+	public static final String JGROUPS_BUNDLER_CAPACITY = ChannelPresets.BUNDLER_CAPACITY_PROP;
+	public static final String JGROUPS_MAX_BUNDLE_SIZE = ChannelPresets.MAX_BUNDLE_SIZE_PROP;
+	public static final String JGROUPS_INITIAL_HOSTS = ChannelPresets.INITIAL_HOSTS_PROP;
+	public static final String JGROUPS_BUFFER_SIZE = AbstractJGroupsConnection.BUFFER_SIZE_PROP;
+	public static final String JGROUPS_DISPATCH_THREADS = AbstractJGroupsConnection.DISPATCH_THREADS_PROP;
+	public static final String JGROUPS_COALESCE_MAX_BYTES = AbstractJGroupsConnection.COALESCE_MAX_BYTES_PROP;
+	public static final String JGROUPS_COALESCE_DELAY_MICROS = AbstractJGroupsConnection.COALESCE_DELAY_MICROS_PROP;
+	public static final String JGROUPS_OUTBOUND_QUEUE_CAPACITY = AbstractJGroupsConnection.OUTBOUND_QUEUE_CAPACITY_PROP;
+	public static final String JGROUPS_OUTBOUND_QUEUE_POLICY = AbstractJGroupsConnection.OUTBOUND_QUEUE_POLICY_PROP;
+	public static final String JGROUPS_OUTBOUND_QUEUE_BLOCK_TIMEOUT = AbstractJGroupsConnection.OUTBOUND_QUEUE_BLOCK_TIMEOUT_PROP;
+	public static final String JGROUPS_MANAGER_FAILOVER = JGroupsClientConnection.MANAGER_FAILOVER_PROP;
+	public static final String JGROUPS_SHARED_CHANNEL = AbstractJGroupsConnection.SHARED_CHANNEL_PROP;
+	public static final String JGROUPS_CHANNEL_POOL = AbstractJGroupsConnection.CHANNEL_POOL_PROP;
+	public static final String JGROUPS_LOOPBACK = AbstractJGroupsConnection.LOOPBACK_PROP;
+	public static final String JGROUPS_LOCAL_HANDOFF = AbstractJGroupsConnection.LOCAL_HANDOFF_PROP;
 	
 	public JGroupsContainerInstantiator() {
 		super();
@@ -47,6 +73,8 @@ public class JGroupsContainerInstantiator extends RemoteServiceContainerInstanti
 				Arrays.asList(new String[] { JGROUPS_CLIENT_CONFIG }));
 		exporterConfigToImporterConfigs.put(JGROUPS_CLIENT_CONFIG,
 				Arrays.asList(new String[] { JGROUPS_CLIENT_CONFIG, JGROUPS_MANAGER_CONFIG }));
+		exporterConfigs.add(JGROUPS_PEER_CONFIG);
+		exporterConfigToImporterConfigs.put(JGROUPS_PEER_CONFIG, Arrays.asList(new String[] { JGROUPS_PEER_CONFIG }));
 	}
 
 	@Override
@@ -94,26 +122,41 @@ public class JGroupsContainerInstantiator extends RemoteServiceContainerInstanti
 		// Now check intents
 		checkOSGIIntents(description, uri, (parameters==null)?new HashMap<String,Object>():parameters);
 		// If passed then return appropriate container instance
-		if (description.isServer()) {
+		if (JGROUPS_PEER_CONFIG.equals(description.getName())) {
+			final JGroupsID groupID = (JGroupsID) getIDParameterValue(JGroupsNamespace.INSTANCE, parameters,
+					JGROUPS_GROUP_PROP, JGROUPS_MANAGER_ID_DEFAULT);
+			if (newID == null)
+				newID = (JGroupsID) getIDParameterValue(JGroupsNamespace.INSTANCE, parameters, JGROUPS_ID_PROP,
+						JGroupsNamespace.SCHEME + ":" + UUID.randomUUID().toString());
+			JGroupsPeerContainer peer = new JGroupsPeerContainer(new SOContainerConfig(newID, parameters), channel,
+					groupID);
+			peer.start();
+			return peer;
+		} else if (description.isServer()) {
 			newID = (JGroupsID) getIDParameterValue(JGroupsNamespace.INSTANCE, parameters, JGROUPS_ID_PROP,
 					JGROUPS_MANAGER_ID_DEFAULT);
-			JGroupsManagerContainer manager = new JGroupsManagerContainer(new SOContainerConfig(newID), channel);
+			JGroupsManagerContainer manager = new JGroupsManagerContainer(new SOContainerConfig(newID, parameters),
+					channel);
 			manager.start();
 			return manager;
 		} else {
 			newID = (JGroupsID) getIDParameterValue(JGroupsNamespace.INSTANCE, parameters, JGROUPS_ID_PROP,
 					JGroupsNamespace.SCHEME + ":" + UUID.randomUUID().toString());
-			return new JGroupsClientContainer(new SOContainerConfig(newID), channel);
+			return new JGroupsClientContainer(new SOContainerConfig(newID, parameters), channel);
 		}
 	}
 
 	protected JChannel getChannelFromParameters(ContainerTypeDescription description, Map<String, ?> parameters) throws Exception {
-		ProtocolStackConfigurator configurator = null;
-		String configString = getParameterValue(parameters, JGROUPS_CHANNEL_CONFIG_STRING, String.class, null);
-		if (configString != null) 
-			configurator = ConfiguratorFactory.getStackConfigurator(configString);
-		configurator = ConfiguratorFactory.getStackConfigurator(Global.DEFAULT_PROTOCOL_STACK);
-		return new JChannel(configurator);
+		// the connection takes a fork of the shared channel, or a pooled
+		// channel, when it joins
+		if ((AbstractJGroupsConnection.getBooleanProperty(parameters, JGROUPS_SHARED_CHANNEL, false)
+				&& !JGROUPS_PEER_CONFIG.equals(description.getName()))
+				|| AbstractJGroupsConnection.getBooleanProperty(parameters, JGROUPS_CHANNEL_POOL, false))
+			return null;
+		String configString = getParameterValue(parameters, JGROUPS_CHANNEL_CONFIG_STRING, String.class,
+				AbstractJGroupsConnection.getBooleanProperty(parameters, JGROUPS_LOOPBACK, false)
+						? ChannelPresets.SHARED_LOOPBACK : null);
+		return ChannelPresets.createChannel(configString, parameters);
 	}
 
 	@Override
@@ -10,9 +10,11 @@ package org.eclipse.ecf.provider.jgroups.container;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.util.ECFException;
@@ -22,18 +24,61 @@ import org.eclipse.ecf.provider.comm.IConnectionListener;
 import org.eclipse.ecf.provider.comm.ISynchAsynchConnection;
 import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
 import org.eclipse.ecf.provider.comm.SynchEvent;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
 import org.jgroups.Address;
 import org.jgroups.JChannel;
+import org.jgroups.fork.ForkChannel;
 
 /**
  *
  */
 public class JGroupsManagerConnection extends AbstractJGroupsConnection {
 
+	public interface DepartureListener {
+		/**
+		 * Called once per view with the clients of the members that left it,
+		 * instead of a {@link DisconnectEvent} for each.
+		 */
+		void clientsLeft(List<Client> clients);
+	}
+
+	public interface AdmissionHandler {
+		/**
+		 * Admit the sender of a connect request. Called on the receive path,
+		 * so the work is to be done elsewhere, and may be done for several
+		 * requests at once.
+		 * 
+		 * @return future completed with the serialized connect response, or
+		 *         exceptionally if the sender is refused
+		 */
+		CompletableFuture<byte[]> admit(ConnectRequestMessage request);
+	}
+
+	private volatile DepartureListener departureListener;
+	private volatile AdmissionHandler admissionHandler;
+	private final MembershipLog membershipLog = new MembershipLog();
+
 	public JGroupsManagerConnection(ISynchAsynchEventHandler eventHandler, JChannel channel) throws ECFException {
-		super(eventHandler, channel);
-		setupJGroups(getLocalID());
+		this(eventHandler, channel, null);
+	}
+
+	public JGroupsManagerConnection(ISynchAsynchEventHandler eventHandler, JChannel channel,
+			Map<String, ?> properties) throws ECFException {
+		this(eventHandler, channel, properties, true);
+	}
+
+	/**
+	 * @param join
+	 *            false if the subclass joins the channel itself, once it is
+	 *            ready for views
+	 */
+	protected JGroupsManagerConnection(ISynchAsynchEventHandler eventHandler, JChannel channel,
+			Map<String, ?> properties, boolean join) throws ECFException {
+		super(eventHandler, channel, properties);
+		getMessageCodec().setIDDictionary(new MembershipDictionary());
+		if (join)
+			setupJGroups(getLocalID());
 	}
 
 	@Override
@@ -41,35 +86,213 @@ public class JGroupsManagerConnection extends AbstractJGroupsConnection {
 		throw new ECFException("Server cannot connect");
 	}
 
+	public void setDepartureListener(DepartureListener departureListener) {
+		this.departureListener = departureListener;
+	}
+
+	/**
+	 * Have connect requests answered by the given handler, rather than by
+	 * the event handler on the receive path.
+	 */
+	public void setAdmissionHandler(AdmissionHandler admissionHandler) {
+		this.admissionHandler = admissionHandler;
+	}
+
+	/**
+	 * @return the log of the clients' membership, which clients replicate
+	 */
+	public MembershipLog getMembershipLog() {
+		return membershipLog;
+	}
+
+	/**
+	 * Record clients joining and leaving in the membership log and have the
+	 * delta sent to the group. Deltas are sent in the order they are
+	 * recorded, on this connection's membership thread, so that a send held
+	 * up by flow control blocks neither the caller nor users of the log.
+	 */
+	public void publishMembership(final List<JGroupsID> joined, final List<JGroupsID> left) throws IOException {
+		synchronized (membershipLog) {
+			final byte[] delta = membershipLog.record(joined, left);
+			final long epoch = membershipLog.getEpoch();
+			// queued in epoch order, which the membership thread keeps
+			if (delta != null)
+				executeMembershipTask(new Runnable() {
+					public void run() {
+						sendMembership(delta, epoch, joined, left);
+					}
+				});
+		}
+	}
+
+	/**
+	 * @return true if the member sends java serialized messages, as members
+	 *         from before the membership log do. Such members are told of
+	 *         membership with view changes rather than membership messages.
+	 */
+	public boolean isLegacyMember(JGroupsID memberID) {
+		final Address addr = getMemberIndex().get(memberID.getName());
+		return (addr == null) ? isJavaSerialization() : useJavaSerialization(addr);
+	}
+
+	private void sendMembership(byte[] delta, long epoch, List<JGroupsID> joined, List<JGroupsID> left) {
+		if (!isConnected())
+			return;
+		final List<Client> clients = new ArrayList<Client>();
+		final List<Client> legacyClients = new ArrayList<Client>();
+		for (final IAsynchConnection c : addressClientMap.values())
+			if (c instanceof Client)
+				(useJavaSerialization(((Client) c).getAddress()) ? legacyClients : clients).add((Client) c);
+		if (legacyClients.isEmpty()) {
+			try {
+				sendMessage(null, new MembershipMessage(getLocalID(), null, delta));
+			} catch (final IOException e) {
+				// members that miss it ask for a snapshot at the next delta
+				logException("publishMembership: could not send membership delta", e);
+			}
+			return;
+		}
+		// legacy members can't read a membership message, so each member is
+		// sent the change in the form it knows rather than a multicast
+		for (final Client client : clients)
+			try {
+				sendMessage(client.clientID, new MembershipMessage(getLocalID(), client.clientID, delta));
+			} catch (final IOException e) {
+				logException("publishMembership: could not send membership delta to " + client.clientID.getName(),
+						e);
+			}
+		for (final Client client : legacyClients)
+			try {
+				if (!joined.isEmpty())
+					sendAsynch(client.clientID, ContainerMessage.createViewChangeMessage(getLocalID(),
+							client.clientID, epoch, joined.toArray(new ID[joined.size()]), true, null));
+				if (!left.isEmpty())
+					sendAsynch(client.clientID, ContainerMessage.createViewChangeMessage(getLocalID(),
+							client.clientID, epoch, left.toArray(new ID[left.size()]), false, null));
+			} catch (final IOException e) {
+				logException("publishMembership: could not send view change to " + client.clientID.getName(), e);
+			}
+	}
+
+	@Override
+	protected int getOtherMemberCount() {
+		// the clients in the log, as on a shared channel the view has
+		// members of other groups
+		final int clients = membershipLog.size();
+		return (clients > 0 || getChannel() instanceof ForkChannel) ? clients : super.getOtherMemberCount();
+	}
+
+	/**
+	 * Header IDs for unicasts with clients in the membership log, which have
+	 * the log's dictionary from their connect response: 0 stands for this
+	 * manager and the log index plus one for a client.
+	 */
+	class MembershipDictionary implements MessageCodec.IDDictionary {
+		public int indexOf(JGroupsID id, JGroupsID targetID) {
+			if (membershipLog.indexOf(targetID) < 0)
+				return -1;
+			if (id.equals(getLocalID()))
+				return 0;
+			final int index = membershipLog.indexOf(id);
+			return (index < 0) ? -1 : index + 1;
+		}
+
+		public JGroupsID get(int index) {
+			return (index == 0) ? getLocalID() : membershipLog.get(index - 1);
+		}
+	}
+
+	@Override
+	protected void handleMembershipMessage(MembershipMessage message) {
+		try {
+			if (MembershipLog.getKind(message.getRawData(), message.getOffset(),
+					message.getLength()) == MembershipLog.KIND_SNAPSHOT_REQUEST)
+				sendMessage(message.getFromID(),
+						new MembershipMessage(getLocalID(), message.getFromID(), membershipLog.snapshot()));
+		} catch (final IOException e) {
+			logException("handleMembershipMessage: could not send snapshot to " + message.getFromID().getName(), e);
+		}
+	}
+
+	@Override
+	protected void handleDeparted(List<IAsynchConnection> clients) {
+		final DepartureListener listener = departureListener;
+		if (listener == null) {
+			super.handleDeparted(clients);
+			return;
+		}
+		final List<Client> left = new ArrayList<Client>(clients.size());
+		for (final IAsynchConnection client : clients)
+			// not those that have asked to disconnect meanwhile
+			if (client instanceof Client && ((Client) client).takeDisconnect())
+				left.add((Client) client);
+		if (!left.isEmpty())
+			listener.clientsLeft(left);
+	}
+
 	@Override
 	protected void handleSyncMessage(SyncMessage message) {
+		final AdmissionHandler admission = admissionHandler;
+		if (admission != null && message instanceof ConnectRequestMessage) {
+			admit(admission, (ConnectRequestMessage) message);
+			return;
+		}
 		try {
-			final Serializable[] resp = (Serializable[]) getEventHandler()
-					.handleSynchEvent(new SynchEvent(this, message));
-			// this resp is an Serializable[] with two messages, one for the
-			// connect response and the other for everyone else
+			final Object result = getEventHandler().handleSynchEvent(new SynchEvent(this, message));
+			final JGroupsID fromID = getLocalID();
 			if (message instanceof ConnectRequestMessage) {
-				JGroupsID fromID = getLocalID();
-				sendMessage(message.getFromID(),
-						new ConnectResponseMessage(fromID, message.getFromID(), (byte[]) resp[0]));
-				sendMessage(null, new AsyncMessage(fromID, null, (byte[]) resp[1]));
-			}
+				// this resp is an Serializable[] with two messages, one for the
+				// connect response and the other, if any, for everyone else
+				final Serializable[] resp = (Serializable[]) result;
+				sendResponse(message, new ConnectResponseMessage(fromID, message.getFromID(), (byte[]) resp[0]));
+				if (resp[1] != null)
+					sendMessage(null, new AsyncMessage(fromID, null, (byte[]) resp[1]));
+			} else
+				sendResponse(message, new SyncResponseMessage(fromID, message.getFromID(),
+						(result == null) ? null : serializeToBytes(result)));
 		} catch (final Exception e) {
 			logException("handleSyncMessage:exception", e);
 		}
 	}
 
+	private void admit(AdmissionHandler admission, final ConnectRequestMessage request) {
+		final JGroupsID fromID = request.getFromID();
+		admission.admit(request).whenComplete((response, t) -> {
+			if (t != null) {
+				logException("admit: connect request from " + fromID.getName() + " refused", t);
+				return;
+			}
+			try {
+				sendResponse(request, new ConnectResponseMessage(getLocalID(), fromID, response));
+			} catch (final IOException e) {
+				logException("admit: could not send connect response to " + fromID.getName(), e);
+			}
+		});
+	}
+
 	public class Client implements ISynchAsynchConnection {
 
 		private final JGroupsID clientID;
-		private boolean isConnected = true;
-		private boolean isStarted = false;
+		// the client is found by its address when it leaves the view
+		private final Address address;
+		private volatile boolean isConnected = true;
+		private volatile boolean isStarted = false;
 		private final Object disconnectLock = new Object();
 		private boolean disconnectHandled = false;
 
 		public Client(JGroupsID clientID) {
+			this(clientID, getMemberIndex().get(clientID.getName()));
+		}
+
+		/**
+		 * @param address
+		 *            address of the client in this connection's group, or null
+		 *            if it is not known
+		 */
+		public Client(JGroupsID clientID, Address address) {
 			this.clientID = clientID;
-			addClientToMap(clientID.getAddress(), this);
+			this.address = address;
+			addClientToMap(address, this);
 		}
 
 		public void sendAsynch(ID receiver, byte[] data) throws IOException {
@@ -86,13 +309,21 @@ public class JGroupsManagerConnection extends AbstractJGroupsConnection {
 		public void disconnect() {
 			isConnected = false;
 			stop();
-			removeClientFromMap(clientID.getAddress());
+			removeClientFromMap(address);
 		}
 
 		public ID getLocalID() {
 			return clientID;
 		}
 
+		/**
+		 * @return address of the client in this connection's group, or null if
+		 *         it is not known
+		 */
+		public Address getAddress() {
+			return address;
+		}
+
 		public Map getProperties() {
 			return null;
 		}
@@ -124,6 +355,19 @@ public class JGroupsManagerConnection extends AbstractJGroupsConnection {
 			return JGroupsManagerConnection.this.sendSynch(receiver, data);
 		}
 
+		/**
+		 * @return true if the disconnect of this client is to be handled by
+		 *         the caller, false if it has been already
+		 */
+		boolean takeDisconnect() {
+			synchronized (disconnectLock) {
+				if (disconnectHandled)
+					return false;
+				disconnectHandled = true;
+				return true;
+			}
+		}
+
 		public void handleDisconnect() {
 			synchronized (disconnectLock) {
 				if (!disconnectHandled) {
@@ -138,15 +382,16 @@ public class JGroupsManagerConnection extends AbstractJGroupsConnection {
 		}
 	}
 
-	private final Map<Address, IAsynchConnection> addressClientMap = Collections
-			.synchronizedMap(new HashMap<Address, IAsynchConnection>());
+	private final Map<Address, IAsynchConnection> addressClientMap = new ConcurrentHashMap<Address, IAsynchConnection>();
 
 	protected void addClientToMap(Address address, IAsynchConnection client) {
-		addressClientMap.put(address, client);
+		if (address != null)
+			addressClientMap.put(address, client);
 	}
 
 	protected void removeClientFromMap(Address addr) {
-		addressClientMap.remove(addr);
+		if (addr != null)
+			addressClientMap.remove(addr);
 	}
 
 	protected IAsynchConnection getClientForAddress(Address addr) {
@@ -154,4 +399,10 @@ public class JGroupsManagerConnection extends AbstractJGroupsConnection {
 	}
 
 
+
+	@Override
+	protected boolean isBatchDelivery() {
+		// delivered to JGroups containers
+		return true;
+	}
 }
@@ -13,17 +13,32 @@ import java.io.InvalidObjectException;
 import java.io.Serializable;
 import java.net.ConnectException;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ecf.core.ContainerConnectException;
 import org.eclipse.ecf.core.events.ContainerConnectedEvent;
+import org.eclipse.ecf.core.events.ContainerDisconnectedEvent;
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.security.IConnectHandlerPolicy;
 import org.eclipse.ecf.core.util.ECFException;
 import org.eclipse.ecf.core.util.Trace;
 import org.eclipse.ecf.internal.provider.jgroups.Activator;
 import org.eclipse.ecf.internal.provider.jgroups.JGroupsDebugOptions;
+import org.eclipse.ecf.provider.comm.AsynchEvent;
 import org.eclipse.ecf.provider.comm.IAsynchConnection;
 import org.eclipse.ecf.provider.comm.IConnection;
 import org.eclipse.ecf.provider.comm.ISynchAsynchConnection;
@@ -32,14 +47,52 @@ import org.eclipse.ecf.provider.generic.ContainerMessage;
 import org.eclipse.ecf.provider.generic.SOContainerConfig;
 import org.eclipse.ecf.provider.generic.ServerSOContainer;
 import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
-import org.eclipse.ecf.remoteservice.util.ObjectSerializationUtil;
 import org.jgroups.JChannel;
+import org.jgroups.util.Buffer;
 
-public class JGroupsManagerContainer extends ServerSOContainer {
+public class JGroupsManagerContainer extends ServerSOContainer
+		implements JGroupsManagerConnection.DepartureListener, JGroupsManagerConnection.AdmissionHandler {
+
+	/**
+	 * Most joins admitted under one acquisition of the membership lock and
+	 * announced with one membership delta.
+	 */
+	public static final int MAX_ADMISSION_BATCH = 256;
+
+	// Checks and admits joins for all managers, off the receive path
+	private static final ThreadPoolExecutor ADMISSION_EXECUTOR = new ThreadPoolExecutor(
+			Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(), 60L,
+			TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "JGroups admission " + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	static {
+		ADMISSION_EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	// A join that has passed the policy check
+	private static class Admission {
+		final JGroupsID memberID;
+		final CompletableFuture<byte[]> response = new CompletableFuture<byte[]>();
+
+		Admission(JGroupsID memberID) {
+			this.memberID = memberID;
+		}
+	}
+
+	private final Queue<Admission> admissions = new ConcurrentLinkedQueue<Admission>();
+	private final AtomicBoolean admitting = new AtomicBoolean();
 
 	private IConnectHandlerPolicy joinPolicy = null;
 	private ISynchAsynchConnection serverConnection;
 	private JChannel channel;
+	private final RemoteCallRegistry callRegistry = new RemoteCallRegistry();
 
 	public JGroupsManagerContainer(JGroupsID id) {
 		this(id, null);
@@ -60,10 +113,53 @@ public class JGroupsManagerContainer extends ServerSOContainer {
 	}
 
 	public void start() throws ECFException {
-		serverConnection = new JGroupsManagerConnection(getReceiver(), channel);
+		final JGroupsManagerConnection connection = new JGroupsManagerConnection(getReceiver(), channel,
+				getConfig().getProperties());
+		connection.setRemoteCallRegistry(callRegistry);
+		connection.setDepartureListener(this);
+		connection.setAdmissionHandler(this);
+		serverConnection = connection;
 		serverConnection.start();
 	}
 
+	/**
+	 * @return the services other members can invoke on this container with
+	 *         {@link #callAsync(ID, RemoteCall, long)}
+	 */
+	public RemoteCallRegistry getRemoteCallRegistry() {
+		return callRegistry;
+	}
+
+	/**
+	 * Invoke a service method on another member without waiting.
+	 * 
+	 * @see AbstractJGroupsConnection#callAsync(JGroupsID, RemoteCall, long)
+	 */
+	public CompletableFuture<Object> callAsync(ID targetID, RemoteCall call, long timeout) {
+		final ISynchAsynchConnection c = getConnection();
+		if (!(c instanceof AbstractJGroupsConnection) || !(targetID instanceof JGroupsID)) {
+			final CompletableFuture<Object> result = new CompletableFuture<Object>();
+			result.completeExceptionally(new IOException("not connected or targetID not a JGroupsID"));
+			return result;
+		}
+		return ((AbstractJGroupsConnection) c).callAsync((JGroupsID) targetID, call, timeout);
+	}
+
+	/**
+	 * Invoke a service method on every other member without waiting.
+	 * 
+	 * @see AbstractJGroupsConnection#callFanOut(RemoteCall, FanOutPolicy, long)
+	 */
+	public CompletableFuture<FanOutResult> callFanOut(RemoteCall call, FanOutPolicy policy, long deadline) {
+		final ISynchAsynchConnection c = getConnection();
+		if (!(c instanceof AbstractJGroupsConnection)) {
+			final CompletableFuture<FanOutResult> result = new CompletableFuture<FanOutResult>();
+			result.completeExceptionally(new IOException("not connected"));
+			return result;
+		}
+		return ((AbstractJGroupsConnection) c).callFanOut(call, policy, deadline);
+	}
+
 	@Override
 	public void dispose() {
 		getConnection().disconnect();
@@ -79,6 +175,10 @@ public class JGroupsManagerContainer extends ServerSOContainer {
 		return serverConnection;
 	}
 
+	protected JChannel getChannel() {
+		return channel;
+	}
+
 	protected IConnectHandlerPolicy getConnectHandlerPolicy() {
 		return joinPolicy;
 	}
@@ -121,26 +221,179 @@ public class JGroupsManagerContainer extends ServerSOContainer {
 			return null;
 	}
 
-	ObjectSerializationUtil osu = new ObjectSerializationUtil();
+	private static ContainerMessage readConnectRequest(ConnectRequestMessage request) throws IOException {
+		final ContainerMessage containerMessage = MessageCodec.readContainerMessage(request);
+		if (containerMessage == null)
+			throw new InvalidObjectException("Invalid container message");
+		final ID remoteID = containerMessage.getFromContainerID();
+		if (remoteID == null)
+			throw new InvalidObjectException("remoteID cannot be null");
+		if (!(remoteID instanceof JGroupsID))
+			throw new InvalidObjectException("remoteID not of JGroupsID type");
+		if (containerMessage.getData() == null)
+			throw new InvalidObjectException("Join group message cannot be null");
+		return containerMessage;
+	}
+
+	/**
+	 * Check joins in parallel, without holding the membership lock, and admit
+	 * those that pass in batches. Each batch of members is added under one
+	 * acquisition of the lock, gets one membership snapshot as connect
+	 * response and is announced to the group with one membership delta.
+	 */
+	public CompletableFuture<byte[]> admit(final ConnectRequestMessage request) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				final ContainerMessage containerMessage = readConnectRequest(request);
+				final JGroupsID jgid = (JGroupsID) containerMessage.getFromContainerID();
+				checkJoin(null, jgid, request.getTargetID().getChannelName(),
+						((ContainerMessage.JoinGroupMessage) containerMessage.getData()).getData());
+				return new Admission(jgid);
+			} catch (final Exception e) {
+				throw new CompletionException(e);
+			}
+		}, ADMISSION_EXECUTOR).thenCompose(admission -> {
+			admissions.add(admission);
+			scheduleAdmissions();
+			return admission.response;
+		});
+	}
+
+	private void scheduleAdmissions() {
+		if (admitting.compareAndSet(false, true))
+			ADMISSION_EXECUTOR.execute(() -> {
+				try {
+					List<Admission> batch;
+					while (!(batch = pollAdmissions()).isEmpty())
+						admitBatch(batch);
+				} finally {
+					admitting.set(false);
+				}
+				// one may have been queued after the last poll
+				if (!admissions.isEmpty())
+					scheduleAdmissions();
+			});
+	}
+
+	private List<Admission> pollAdmissions() {
+		final List<Admission> batch = new ArrayList<Admission>();
+		Admission admission;
+		while (batch.size() < MAX_ADMISSION_BATCH && (admission = admissions.poll()) != null)
+			batch.add(admission);
+		return batch;
+	}
+
+	private void admitBatch(List<Admission> batch) {
+		final ISynchAsynchConnection c = getConnection();
+		final List<Admission> admitted = new ArrayList<Admission>(batch.size());
+		final List<JGroupsManagerConnection.Client> clients = new ArrayList<JGroupsManagerConnection.Client>(
+				batch.size());
+		final List<JGroupsID> joinedIDs = new ArrayList<JGroupsID>(batch.size());
+		byte[] snapshot = null;
+		ID[] memberIDs = null;
+		int answered = 0;
+		try {
+			synchronized (getGroupMembershipLock()) {
+				if (isClosing || !(c instanceof JGroupsManagerConnection))
+					throw new ContainerConnectException("Container is closing");
+				final JGroupsManagerConnection connection = (JGroupsManagerConnection) c;
+				for (final Admission admission : batch) {
+					final JGroupsManagerConnection.Client client = connection.new Client(admission.memberID);
+					if (addNewRemoteMember(admission.memberID, client)) {
+						admitted.add(admission);
+						clients.add(client);
+						joinedIDs.add(admission.memberID);
+					} else
+						admission.response.completeExceptionally(new ConnectException("Connection refused"));
+				}
+				if (admitted.isEmpty())
+					return;
+				// one delta for the group, and a snapshot that includes it.
+				// Both are recorded under the lock so that the log follows the
+				// group, the delta is sent after it is released
+				connection.publishMembership(joinedIDs, Collections.<JGroupsID> emptyList());
+				snapshot = connection.getMembershipLog().snapshot();
+				for (final JGroupsID memberID : joinedIDs)
+					if (connection.isLegacyMember(memberID)) {
+						memberIDs = getGroupMemberIDs();
+						break;
+					}
+			}
+			// the same response for every member of the batch, but for legacy
+			// members, which are sent the member ids as before the log
+			final byte[] response = createConnectResponse(null, snapshot);
+			final byte[][] responses = new byte[admitted.size()][];
+			for (int i = 0; i < responses.length; i++)
+				responses[i] = ((JGroupsManagerConnection) c).isLegacyMember(joinedIDs.get(i))
+						? createLegacyConnectResponse(joinedIDs.get(i), memberIDs) : response;
+			for (; answered < responses.length; answered++) {
+				clients.get(answered).start();
+				admitted.get(answered).response.complete(responses[answered]);
+			}
+		} catch (final Exception e) {
+			// members that were added but not answered must not stay in the
+			// group
+			rollbackAdmissions(joinedIDs.subList(answered, joinedIDs.size()),
+					clients.subList(answered, clients.size()));
+			for (final Admission admission : batch)
+				admission.response.completeExceptionally(e);
+			return;
+		}
+		// notify listeners once every member is answered, so that one that
+		// throws can't fail an admission
+		for (final JGroupsID memberID : joinedIDs)
+			try {
+				fireContainerEvent(new ContainerConnectedEvent(this.getID(), memberID));
+			} catch (final RuntimeException e) {
+				traceAndLogExceptionCatch(IStatus.ERROR, "admitBatch", e); //$NON-NLS-1$
+			}
+	}
+
+	/**
+	 * Remove members whose admission failed after they were added, and tell
+	 * the group that they have left.
+	 */
+	private void rollbackAdmissions(List<JGroupsID> memberIDs, List<JGroupsManagerConnection.Client> clients) {
+		final List<ID> removed = new ArrayList<ID>(memberIDs.size());
+		ContainerMessage viewChange = null;
+		synchronized (getGroupMembershipLock()) {
+			for (final JGroupsID memberID : memberIDs)
+				if (removeRemoteMember(memberID))
+					removed.add(memberID);
+			if (!removed.isEmpty())
+				viewChange = announceLeave(removed.toArray(new ID[removed.size()]));
+		}
+		sendViewChange(viewChange);
+		for (final JGroupsManagerConnection.Client client : clients)
+			client.disconnect();
+	}
+
+	/**
+	 * @return a serialized view change naming this container only, with the
+	 *         membership snapshot of its clients as data
+	 */
+	private byte[] createConnectResponse(ID memberID, byte[] snapshot) throws IOException {
+		return serialize(ContainerMessage.createViewChangeMessage(getID(), memberID, getNextSequenceNumber(),
+				new ID[] { getID() }, true, snapshot));
+	}
+
+	/**
+	 * @return a serialized view change naming all members, for a member that
+	 *         does not know the membership log
+	 */
+	private byte[] createLegacyConnectResponse(ID memberID, ID[] memberIDs) throws IOException {
+		return serialize(
+				ContainerMessage.createViewChangeMessage(getID(), memberID, getNextSequenceNumber(), memberIDs, true, null));
+	}
 
 	protected Serializable handleConnectRequest(ConnectRequestMessage request, JGroupsManagerConnection connection) {
 		try {
-			final ContainerMessage containerMessage = (ContainerMessage) osu.deserializeFromBytes(request.getData());
-			if (containerMessage == null)
-				throw new InvalidObjectException("Invalid container message");
-			final ID remoteID = containerMessage.getFromContainerID();
-			if (remoteID == null)
-				throw new InvalidObjectException("remoteID cannot be null");
-			JGroupsID jgid = null;
-			if (remoteID instanceof JGroupsID) {
-				jgid = (JGroupsID) remoteID;
-			} else
-				throw new InvalidObjectException("remoteID not of JGroupsID type");
+			final ContainerMessage containerMessage = readConnectRequest(request);
+			final JGroupsID jgid = (JGroupsID) containerMessage.getFromContainerID();
 			final ContainerMessage.JoinGroupMessage jgm = (ContainerMessage.JoinGroupMessage) containerMessage
 					.getData();
-			if (jgm == null)
-				throw new InvalidObjectException("Join group message cannot be null");
-			ID memberIDs[] = null;
+			byte[] snapshot = null;
+			ID[] memberIDs = null;
 			final Serializable[] messages = new Serializable[2];
 			JGroupsManagerConnection.Client newclient = null;
 			synchronized (getGroupMembershipLock()) {
@@ -152,11 +405,14 @@ public class JGroupsManagerContainer extends ServerSOContainer {
 				newclient = connection.new Client(jgid);
 
 				if (addNewRemoteMember(jgid, newclient)) {
-					// Get current membership
-					memberIDs = getGroupMemberIDs();
-					// Notify existing remotes about new member
-					messages[1] = serialize(ContainerMessage.createViewChangeMessage(getID(), null,
-							getNextSequenceNumber(), new ID[] { jgid }, true, null));
+					// Record the new member for the existing remotes, who are
+					// sent the delta once the lock is released, and get
+					// current membership
+					connection.publishMembership(Collections.singletonList(jgid),
+							Collections.<JGroupsID> emptyList());
+					snapshot = connection.getMembershipLog().snapshot();
+					if (connection.isLegacyMember(jgid))
+						memberIDs = getGroupMemberIDs();
 				} else {
 					final ConnectException e = new ConnectException("Connection refused");
 					throw e;
@@ -165,8 +421,8 @@ public class JGroupsManagerContainer extends ServerSOContainer {
 			// notify listeners
 			fireContainerEvent(new ContainerConnectedEvent(this.getID(), jgid));
 
-			messages[0] = serialize(ContainerMessage.createViewChangeMessage(getID(), jgid, getNextSequenceNumber(),
-					memberIDs, true, null));
+			messages[0] = (memberIDs != null) ? createLegacyConnectResponse(jgid, memberIDs)
+					: createConnectResponse(jgid, snapshot);
 
 			newclient.start();
 
@@ -191,24 +447,105 @@ public class JGroupsManagerContainer extends ServerSOContainer {
 	@Override
 	protected void queueContainerMessage(ContainerMessage mess) throws IOException {
 		ISynchAsynchConnection c = getConnection();
-		if (c != null)
+		if (c instanceof AbstractJGroupsConnection)
+			((AbstractJGroupsConnection) c).sendAsynch(mess.getToContainerID(), mess);
+		else if (c != null)
 			c.sendAsynch(mess.getToContainerID(), serialize(mess));
 	}
 
+	@Override
+	protected void processAsynch(AsynchEvent e) throws IOException {
+		// JGroups connections deliver container messages already deserialized,
+		// other payloads as a view of the received buffer, and several
+		// messages from one sender as a batch
+		final Object data = e.getData();
+		if (data instanceof AsynchEventBatch) {
+			for (final Object payload : ((AsynchEventBatch) data).getPayloads())
+				processAsynchPayload(e, payload);
+		} else
+			processAsynchPayload(e, data);
+	}
+
+	private void processAsynchPayload(AsynchEvent e, Object data) throws IOException {
+		if (data instanceof Buffer) {
+			final Buffer buffer = (Buffer) data;
+			data = MessageCodec.readContainerMessage(buffer.getBuf(), buffer.getOffset(), buffer.getLength());
+		}
+		if (data instanceof ContainerMessage) {
+			final ContainerMessage mess = validateContainerMessage((ContainerMessage) data);
+			if (mess != null)
+				handleContainerMessage(mess);
+		} else
+			super.processAsynch(e);
+	}
+
 	@Override
 	protected void handleLeave(ID target, IConnection conn) {
 		if (target == null)
 			return;
-		if (removeRemoteMember(target)) {
-			try {
-				queueContainerMessage(ContainerMessage.createViewChangeMessage(getID(), null, getNextSequenceNumber(),
-						new ID[] { target }, false, null));
-			} catch (final IOException e) {
-				traceAndLogExceptionCatch(IStatus.ERROR, "memberLeave", e); //$NON-NLS-1$
-			}
+		ContainerMessage viewChange = null;
+		synchronized (getGroupMembershipLock()) {
+			if (removeRemoteMember(target))
+				viewChange = announceLeave(new ID[] { target });
 		}
+		sendViewChange(viewChange);
 		if (conn != null)
 			disconnect(conn);
 	}
 
+	public void clientsLeft(List<JGroupsManagerConnection.Client> clients) {
+		final List<ID> removed = new ArrayList<ID>(clients.size());
+		ContainerMessage viewChange = null;
+		synchronized (getGroupMembershipLock()) {
+			if (isClosing)
+				return;
+			for (final JGroupsManagerConnection.Client client : clients)
+				if (removeRemoteMember(client.getLocalID()))
+					removed.add(client.getLocalID());
+			// one view change for all of them
+			if (!removed.isEmpty())
+				viewChange = announceLeave(removed.toArray(new ID[removed.size()]));
+		}
+		sendViewChange(viewChange);
+		for (final JGroupsManagerConnection.Client client : clients)
+			disconnect(client);
+		for (final ID memberID : removed)
+			fireContainerEvent(new ContainerDisconnectedEvent(getID(), memberID));
+	}
+
+	/**
+	 * Tell the remaining members that the given members have left. Called
+	 * with the membership lock held, so nothing is sent here: the leave is
+	 * recorded in the membership log and sent once the lock is released.
+	 *
+	 * @return a view change for the caller to send after releasing the lock,
+	 *         or null if there is none
+	 */
+	protected ContainerMessage announceLeave(ID[] memberIDs) {
+		final ISynchAsynchConnection c = getConnection();
+		if (!(c instanceof JGroupsManagerConnection))
+			return ContainerMessage.createViewChangeMessage(getID(), null, getNextSequenceNumber(), memberIDs, false,
+					null);
+		final List<JGroupsID> left = new ArrayList<JGroupsID>(memberIDs.length);
+		for (final ID memberID : memberIDs)
+			if (memberID instanceof JGroupsID)
+				left.add((JGroupsID) memberID);
+		try {
+			((JGroupsManagerConnection) c).publishMembership(Collections.<JGroupsID> emptyList(), left);
+		} catch (final IOException e) {
+			traceAndLogExceptionCatch(IStatus.ERROR, "memberLeave", e); //$NON-NLS-1$
+		}
+		return null;
+	}
+
+	private void sendViewChange(ContainerMessage viewChange) {
+		if (viewChange == null)
+			return;
+		try {
+			queueContainerMessage(viewChange);
+		} catch (final IOException e) {
+			traceAndLogExceptionCatch(IStatus.ERROR, "memberLeave", e); //$NON-NLS-1$
+		}
+	}
+
 }
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Header;
+import org.jgroups.conf.ClassConfigurator;
+import org.jgroups.util.Bits;
+
+/**
+ * JGroups message header carrying the wire format version, the message type
+ * and the sender and target IDs. Receivers use it to drop or route a message
+ * before touching the message payload.
+ * <p>
+ * An ID is written as its channel name or, if sender and receiver have agreed
+ * on a {@link MessageCodec.IDDictionary}, as its index in the dictionary. It
+ * takes a varint code, 0 for no ID, 1 for a name that follows and the index
+ * plus 2 otherwise.
+ * <p>
+ * Headers of older versions are read in their own layout: before version 4
+ * IDs are always names, and before version 3 there is no request id.
+ */
+public class JGroupsMessageHeader extends Header {
+
+	/**
+	 * Magic number registered with {@link ClassConfigurator} for this header
+	 * class. JGroups reserves ids below 1024.
+	 */
+	public static final short MAGIC_ID = 4701;
+	/**
+	 * Id this header is put into a {@link org.jgroups.Message} with.
+	 */
+	public static final short HEADER_ID = 4701;
+
+	private byte version;
+	private byte type;
+	private String fromName;
+	private String targetName;
+	// dictionary indices, or -1 for IDs written as names
+	private int fromIndex = -1;
+	private int targetIndex = -1;
+	private long requestId;
+
+	public static synchronized void register() {
+		if (ClassConfigurator.getMagicNumber(JGroupsMessageHeader.class) == -1)
+			ClassConfigurator.add(MAGIC_ID, JGroupsMessageHeader.class);
+	}
+
+	public JGroupsMessageHeader() {
+	}
+
+	public JGroupsMessageHeader(byte version, byte type, JGroupsID fromID, JGroupsID targetID) {
+		this(version, type, fromID, targetID, 0);
+	}
+
+	public JGroupsMessageHeader(byte version, byte type, JGroupsID fromID, JGroupsID targetID, long requestId) {
+		this.version = version;
+		this.type = type;
+		this.fromName = (fromID == null) ? null : fromID.getChannelName();
+		this.targetName = (targetID == null) ? null : targetID.getChannelName();
+		this.requestId = requestId;
+	}
+
+	/**
+	 * @param fromIndex
+	 *            dictionary index of fromID, or -1 to write its name
+	 * @param targetIndex
+	 *            dictionary index of targetID, or -1 to write its name
+	 */
+	public JGroupsMessageHeader(byte version, byte type, JGroupsID fromID, int fromIndex, JGroupsID targetID,
+			int targetIndex, long requestId) {
+		this.version = version;
+		this.type = type;
+		this.fromIndex = (fromID == null) ? -1 : fromIndex;
+		this.targetIndex = (targetID == null) ? -1 : targetIndex;
+		this.fromName = (fromID == null || this.fromIndex >= 0) ? null : fromID.getChannelName();
+		this.targetName = (targetID == null || this.targetIndex >= 0) ? null : targetID.getChannelName();
+		this.requestId = requestId;
+	}
+
+	public byte getType() {
+		return type;
+	}
+
+	public byte getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return channel name of the sending JGroupsID, or null if it is written
+	 *         as a dictionary index
+	 */
+	public String getFromName() {
+		return fromName;
+	}
+
+	/**
+	 * @return channel name of the target JGroupsID, or null if the message is
+	 *         for the whole group or the target is written as a dictionary
+	 *         index
+	 */
+	public String getTargetName() {
+		return targetName;
+	}
+
+	/**
+	 * @return dictionary index of the sending JGroupsID, or -1
+	 */
+	public int getFromIndex() {
+		return fromIndex;
+	}
+
+	/**
+	 * @return dictionary index of the target JGroupsID, or -1
+	 */
+	public int getTargetIndex() {
+		return targetIndex;
+	}
+
+	/**
+	 * @return id correlating a synchronous request and its response, or 0
+	 */
+	public long getRequestId() {
+		return requestId;
+	}
+
+	@Override
+	public short getMagicId() {
+		return MAGIC_ID;
+	}
+
+	@Override
+	public Supplier<? extends Header> create() {
+		return JGroupsMessageHeader::new;
+	}
+
+	@Override
+	public int serializedSize() {
+		if (version < MessageCodec.INDEX_VERSION)
+			return 2 + Bits.size(fromName) + Bits.size(targetName)
+					+ ((version < MessageCodec.REQUEST_ID_VERSION) ? 0 : Bits.size(requestId));
+		return 2 + idSize(fromName, fromIndex) + idSize(targetName, targetIndex) + Bits.size(requestId);
+	}
+
+	private static int idSize(String name, int index) {
+		if (index >= 0)
+			return MessageCodec.varIntSize(index + 2);
+		return (name == null) ? 1 : 1 + Bits.sizeUTF(name);
+	}
+
+	@Override
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(version);
+		out.writeByte(type);
+		if (version < MessageCodec.INDEX_VERSION) {
+			Bits.writeString(fromName, out);
+			Bits.writeString(targetName, out);
+			if (version >= MessageCodec.REQUEST_ID_VERSION)
+				Bits.writeLong(requestId, out);
+			return;
+		}
+		writeID(fromName, fromIndex, out);
+		writeID(targetName, targetIndex, out);
+		Bits.writeLong(requestId, out);
+	}
+
+	private static void writeID(String name, int index, DataOutput out) throws IOException {
+		if (index >= 0)
+			MessageCodec.writeVarInt(index + 2, out);
+		else if (name == null)
+			out.writeByte(0);
+		else {
+			out.writeByte(1);
+			out.writeUTF(name);
+		}
+	}
+
+	@Override
+	public void readFrom(DataInput in) throws IOException {
+		version = in.readByte();
+		type = in.readByte();
+		if (version < MessageCodec.INDEX_VERSION) {
+			fromName = Bits.readString(in);
+			targetName = Bits.readString(in);
+			if (version >= MessageCodec.REQUEST_ID_VERSION)
+				requestId = Bits.readLong(in);
+			return;
+		}
+		int code = MessageCodec.readVarInt(in);
+		fromIndex = (code < 2) ? -1 : code - 2;
+		fromName = (code == 1) ? in.readUTF() : null;
+		code = MessageCodec.readVarInt(in);
+		targetIndex = (code < 2) ? -1 : code - 2;
+		targetName = (code == 1) ? in.readUTF() : null;
+		requestId = Bits.readLong(in);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("JGroupsMessageHeader[");
+		buf.append("version=").append(version).append(";type=").append(type);
+		buf.append(";from=").append((fromIndex < 0) ? fromName : "#" + fromIndex);
+		buf.append(";target=").append((targetIndex < 0) ? targetName : "#" + targetIndex);
+		buf.append(";requestId=").append(requestId).append("]");
+		return buf.toString();
+	}
+}
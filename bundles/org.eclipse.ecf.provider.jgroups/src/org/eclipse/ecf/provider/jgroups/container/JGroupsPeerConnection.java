@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.View;
+
+/**
+ * Connection for a member of a group without a manager. Membership is taken
+ * from the JGroups view, and messages to other members are sent point-to-point
+ * to their addresses.
+ */
+public class JGroupsPeerConnection extends JGroupsManagerConnection {
+
+	public interface Listener {
+		/**
+		 * Called when members other than this one appear in the view.
+		 *
+		 * @param peerIDs
+		 *            ids of the new members
+		 */
+		void peersJoined(List<JGroupsID> peerIDs);
+	}
+
+	private final Object viewLock = new Object();
+	private View currentView;
+	private Listener listener;
+
+	public JGroupsPeerConnection(ISynchAsynchEventHandler eventHandler, JChannel channel, Map<String, ?> properties,
+			JGroupsID groupID) throws ECFException {
+		super(eventHandler, channel, properties, false);
+		// members are named by their channels, which a shared channel can't do
+		setSharedChannelRegistry(null);
+		setupJGroups(groupID);
+	}
+
+	/**
+	 * Set the listener, which is told about the members already in the view
+	 * before this method returns.
+	 */
+	public void setListener(Listener listener) {
+		synchronized (viewLock) {
+			this.listener = listener;
+			if (listener != null && currentView != null) {
+				final List<JGroupsID> peers = createPeerIDs(currentView.getMembers());
+				if (!peers.isEmpty())
+					listener.peersJoined(peers);
+			}
+		}
+	}
+
+	@Override
+	public Object connect(ID targetID, Object data, int timeout) throws ECFException {
+		throw new ECFException("Peer cannot connect");
+	}
+
+	@Override
+	protected void handleViewAccepted(View view, ViewDelta delta) {
+		synchronized (viewLock) {
+			currentView = view;
+			final List<JGroupsID> joined = createPeerIDs(delta.getJoined());
+			if (listener != null && !joined.isEmpty())
+				listener.peersJoined(joined);
+		}
+		// departed members are disconnected through their clients
+		super.handleViewAccepted(view, delta);
+	}
+
+	private List<JGroupsID> createPeerIDs(List<Address> members) {
+		final List<JGroupsID> result = new ArrayList<JGroupsID>();
+		final Address local = getLocalAddress();
+		for (final Address addr : members) {
+			if (addr.equals(local))
+				continue;
+			final JGroupsID peerID = createMemberID(addr);
+			if (peerID != null)
+				result.add(peerID);
+		}
+		return result;
+	}
+
+}
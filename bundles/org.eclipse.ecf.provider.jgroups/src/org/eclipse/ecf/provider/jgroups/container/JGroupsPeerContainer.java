@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.List;
+
+import org.eclipse.ecf.core.events.ContainerConnectedEvent;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.generic.SOContainerConfig;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.JChannel;
+
+/**
+ * Container for a group without a manager. Every member joins the JGroups
+ * channel named by the group id, group membership follows the JGroups view,
+ * and traffic between members does not pass through a manager.
+ */
+public class JGroupsPeerContainer extends JGroupsManagerContainer implements JGroupsPeerConnection.Listener {
+
+	private final JGroupsID groupID;
+
+	public JGroupsPeerContainer(SOContainerConfig config, JChannel channel, JGroupsID groupID) {
+		super(config, channel);
+		this.groupID = groupID;
+	}
+
+	public JGroupsID getGroupID() {
+		return groupID;
+	}
+
+	@Override
+	public void start() throws ECFException {
+		final JGroupsPeerConnection connection = new JGroupsPeerConnection(getReceiver(), getChannel(),
+				getConfig().getProperties(), groupID);
+		connection.setRemoteCallRegistry(getRemoteCallRegistry());
+		connection.setDepartureListener(this);
+		setConnection(connection);
+		connection.start();
+		connection.setListener(this);
+	}
+
+	public void peersJoined(List<JGroupsID> peerIDs) {
+		final JGroupsPeerConnection connection = (JGroupsPeerConnection) getConnection();
+		if (connection == null)
+			return;
+		for (final JGroupsID peerID : peerIDs) {
+			boolean added = false;
+			synchronized (getGroupMembershipLock()) {
+				if (isClosing)
+					return;
+				final JGroupsManagerConnection.Client client = connection.new Client(peerID);
+				added = addNewRemoteMember(peerID, client);
+				if (added)
+					client.start();
+			}
+			if (added)
+				fireContainerEvent(new ContainerConnectedEvent(getID(), peerID));
+		}
+	}
+
+	@Override
+	protected ContainerMessage announceLeave(ID[] memberIDs) {
+		// every member sees the same view, so there is no one to tell
+		return null;
+	}
+
+}
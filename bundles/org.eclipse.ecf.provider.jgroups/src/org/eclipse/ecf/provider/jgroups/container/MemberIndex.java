@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jgroups.Address;
+import org.jgroups.View;
+import org.jgroups.util.NameCache;
+
+/**
+ * Maps the names of group members to their addresses. Entries are added and
+ * removed for the members that join and leave with each view, named by their
+ * logical names, and added for members whose logical name is not known, or
+ * does not name them, from the source of the first message they send.
+ */
+public class MemberIndex {
+
+	private final ConcurrentMap<String, Address> addresses = new ConcurrentHashMap<String, Address>();
+	// names the members are indexed by, to remove them when they leave
+	private final Map<Address, String> names = new HashMap<Address, String>();
+	// names of the members that left with the last view, for its handlers
+	private Map<Address, String> departed = new HashMap<Address, String>();
+	private View view;
+
+	/**
+	 * Index the members that joined since the last view and drop those that
+	 * left.
+	 */
+	public synchronized void viewAccepted(View newView) {
+		final ViewDelta delta = new ViewDelta(view, newView);
+		view = newView;
+		departed = new HashMap<Address, String>();
+		for (final Address addr : delta.getLeft()) {
+			final String name = names.remove(addr);
+			if (name != null) {
+				addresses.remove(name, addr);
+				departed.put(addr, name);
+			}
+		}
+		for (final Address addr : delta.getJoined()) {
+			final String name = NameCache.get(addr);
+			if (name != null)
+				put(name, addr);
+		}
+	}
+
+	/**
+	 * Index a member by the name it sent a message with.
+	 */
+	public void add(String name, Address addr) {
+		if (addr.equals(addresses.get(name)))
+			return;
+		synchronized (this) {
+			// a late message from a member that has left
+			if (view != null && !view.containsMember(addr))
+				return;
+			put(name, addr);
+		}
+	}
+
+	private void put(String name, Address addr) {
+		final Address old = addresses.put(name, addr);
+		if (old != null && !old.equals(addr))
+			names.remove(old);
+		final String oldName = names.put(addr, name);
+		if (oldName != null && !oldName.equals(name))
+			addresses.remove(oldName, addr);
+	}
+
+	/**
+	 * @return the address of the member with the given name, or null if there
+	 *         is none in the view
+	 */
+	public Address get(String name) {
+		return addresses.get(name);
+	}
+
+	/**
+	 * @return the name the member at addr is indexed by, or was until it left
+	 *         with the last view, or null if it is not known
+	 */
+	public synchronized String getName(Address addr) {
+		final String name = names.get(addr);
+		return (name != null) ? name : departed.get(addr);
+	}
+
+	public int size() {
+		return addresses.size();
+	}
+
+	public synchronized void clear() {
+		addresses.clear();
+		names.clear();
+		departed.clear();
+		view = null;
+	}
+}
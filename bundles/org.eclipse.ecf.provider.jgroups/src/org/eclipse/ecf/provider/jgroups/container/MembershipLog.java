@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+/**
+ * Versioned log of the members of a group, recorded by the manager and
+ * replicated by clients. Every change is numbered with the next membership
+ * epoch and travels as a delta, in which members are named by small integer
+ * indices into a dictionary the manager keeps: the channel name of a member
+ * is sent once, with the delta it joins in, and it is referred to by index
+ * from then on. Indices are not reused, so one names the same member for
+ * the life of the log and may stand for it elsewhere, such as in message
+ * headers. A replica applies deltas in epoch order. If it sees a delta beyond
+ * the next epoch, one went missing and it needs a snapshot of the whole log.
+ * <p>
+ * Deltas and snapshots are a kind byte and the epoch, followed for a delta by
+ * the joined members as index and name pairs and the departed members as
+ * indices, and for a snapshot by all members as index and name pairs. Numbers
+ * are written as varints, so that indices below 128 take a byte.
+ */
+public class MembershipLog {
+
+	static final byte KIND_DELTA = 1;
+	static final byte KIND_SNAPSHOT = 2;
+	static final byte KIND_SNAPSHOT_REQUEST = 3;
+
+	/**
+	 * The members that joined and left with a delta or snapshot applied to a
+	 * replica.
+	 */
+	public static class Update {
+		private final long epoch;
+		private final List<JGroupsID> joined;
+		private final List<JGroupsID> left;
+
+		Update(long epoch, List<JGroupsID> joined, List<JGroupsID> left) {
+			this.epoch = epoch;
+			this.joined = Collections.unmodifiableList(joined);
+			this.left = Collections.unmodifiableList(left);
+		}
+
+		public long getEpoch() {
+			return epoch;
+		}
+
+		public List<JGroupsID> getJoined() {
+			return joined;
+		}
+
+		public List<JGroupsID> getLeft() {
+			return left;
+		}
+
+		public String toString() {
+			final StringBuffer buf = new StringBuffer("Update[");
+			buf.append("epoch=").append(epoch).append(";joined=").append(joined).append(";left=").append(left)
+					.append("]");
+			return buf.toString();
+		}
+	}
+
+	private long epoch;
+	// highest epoch seen by a replica, beyond epoch if deltas are missing
+	private long latestEpoch;
+	// members by dictionary index, null at the indices of departed members
+	private final List<JGroupsID> members = new ArrayList<JGroupsID>();
+	private final Map<JGroupsID, Integer> indices = new HashMap<JGroupsID, Integer>();
+
+	public synchronized long getEpoch() {
+		return epoch;
+	}
+
+	public synchronized int size() {
+		return indices.size();
+	}
+
+	public synchronized boolean contains(JGroupsID memberID) {
+		return indices.containsKey(memberID);
+	}
+
+	/**
+	 * @return the dictionary index of memberID, or -1 if it is not a member
+	 */
+	public synchronized int indexOf(JGroupsID memberID) {
+		final Integer index = indices.get(memberID);
+		return (index == null) ? -1 : index.intValue();
+	}
+
+	/**
+	 * @return the member with the given dictionary index, or null if there
+	 *         is none
+	 */
+	public synchronized JGroupsID get(int index) {
+		return (index >= 0 && index < members.size()) ? members.get(index) : null;
+	}
+
+	/**
+	 * @return the members, in dictionary index order
+	 */
+	public synchronized List<JGroupsID> getMembers() {
+		final List<JGroupsID> result = new ArrayList<JGroupsID>(indices.size());
+		for (final JGroupsID memberID : members)
+			if (memberID != null)
+				result.add(memberID);
+		return result;
+	}
+
+	/**
+	 * @return true if a replica has seen a delta it could not apply, as some
+	 *         before it are missing, and has not had a snapshot since
+	 */
+	public synchronized boolean hasGap() {
+		return latestEpoch > epoch;
+	}
+
+	/**
+	 * Record members joining and leaving with the next epoch. Members that
+	 * already are, or are not, in the log are ignored.
+	 *
+	 * @return the encoded delta, or null if nothing changed
+	 */
+	public synchronized byte[] record(List<JGroupsID> joined, List<JGroupsID> left) throws IOException {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(64);
+		out.writeByte(KIND_DELTA);
+		MessageCodec.writeVarLong(epoch + 1, out);
+		int count = 0;
+		for (final JGroupsID memberID : joined)
+			if (!indices.containsKey(memberID))
+				count++;
+		MessageCodec.writeVarInt(count, out);
+		for (final JGroupsID memberID : joined)
+			if (!indices.containsKey(memberID)) {
+				final int index = members.size();
+				put(index, memberID);
+				MessageCodec.writeVarInt(index, out);
+				out.writeUTF(memberID.getChannelName());
+			}
+		final List<Integer> removed = new ArrayList<Integer>(left.size());
+		for (final JGroupsID memberID : left) {
+			final Integer index = indices.remove(memberID);
+			if (index != null) {
+				members.set(index.intValue(), null);
+				removed.add(index);
+			}
+		}
+		if (count == 0 && removed.isEmpty())
+			return null;
+		MessageCodec.writeVarInt(removed.size(), out);
+		for (final Integer index : removed)
+			MessageCodec.writeVarInt(index.intValue(), out);
+		epoch++;
+		return Arrays.copyOf(out.buffer(), out.position());
+	}
+
+	/**
+	 * @return the encoded members of the log at its current epoch
+	 */
+	public synchronized byte[] snapshot() throws IOException {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(16 + indices.size() * 16);
+		out.writeByte(KIND_SNAPSHOT);
+		MessageCodec.writeVarLong(epoch, out);
+		MessageCodec.writeVarInt(indices.size(), out);
+		for (int i = 0; i < members.size(); i++) {
+			final JGroupsID memberID = members.get(i);
+			if (memberID != null) {
+				MessageCodec.writeVarInt(i, out);
+				out.writeUTF(memberID.getChannelName());
+			}
+		}
+		return Arrays.copyOf(out.buffer(), out.position());
+	}
+
+	/**
+	 * @return an encoded request for a snapshot, from a replica at epoch
+	 */
+	static byte[] snapshotRequest(long epoch) throws IOException {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(10);
+		out.writeByte(KIND_SNAPSHOT_REQUEST);
+		MessageCodec.writeVarLong(epoch, out);
+		return Arrays.copyOf(out.buffer(), out.position());
+	}
+
+	static byte getKind(byte[] buf, int offset, int length) throws IOException {
+		if (buf == null || length < 1)
+			throw new StreamCorruptedException("empty membership message");
+		return buf[offset];
+	}
+
+	/**
+	 * Apply an encoded delta or snapshot to this replica. A delta is applied
+	 * only if it is for the next epoch, and a snapshot only if it is not older
+	 * than the replica.
+	 *
+	 * @return the members that joined and left, or null if nothing was
+	 *         applied
+	 */
+	public synchronized Update apply(byte[] buf, int offset, int length) throws IOException {
+		final ByteArrayDataInputStream in = new ByteArrayDataInputStream(buf, offset, length);
+		final byte kind = in.readByte();
+		final long e = MessageCodec.readVarLong(in);
+		if (kind == KIND_SNAPSHOT)
+			return applySnapshot(e, in);
+		if (kind != KIND_DELTA)
+			throw new StreamCorruptedException("unexpected membership message kind=" + kind);
+		latestEpoch = Math.max(latestEpoch, e);
+		// already applied or covered by a snapshot, or beyond a gap
+		if (e != epoch + 1)
+			return null;
+		final int joinedCount = MessageCodec.readVarInt(in);
+		final int[] joinedIndices = new int[joinedCount];
+		final List<JGroupsID> joined = new ArrayList<JGroupsID>(joinedCount);
+		for (int i = 0; i < joinedCount; i++) {
+			joinedIndices[i] = MessageCodec.readVarInt(in);
+			joined.add(MessageCodec.createID(in.readUTF()));
+		}
+		final int leftCount = MessageCodec.readVarInt(in);
+		final int[] leftIndices = new int[leftCount];
+		for (int i = 0; i < leftCount; i++)
+			leftIndices[i] = MessageCodec.readVarInt(in);
+		for (int i = 0; i < joinedCount; i++)
+			put(joinedIndices[i], joined.get(i));
+		final List<JGroupsID> left = new ArrayList<JGroupsID>(leftCount);
+		for (final int index : leftIndices) {
+			final JGroupsID memberID = (index < members.size()) ? members.set(index, null) : null;
+			if (memberID != null) {
+				indices.remove(memberID);
+				left.add(memberID);
+			}
+		}
+		epoch = e;
+		return new Update(e, joined, left);
+	}
+
+	private Update applySnapshot(long e, ByteArrayDataInputStream in) throws IOException {
+		final int count = MessageCodec.readVarInt(in);
+		final int[] snapshotIndices = new int[count];
+		final JGroupsID[] snapshotMembers = new JGroupsID[count];
+		for (int i = 0; i < count; i++) {
+			snapshotIndices[i] = MessageCodec.readVarInt(in);
+			snapshotMembers[i] = MessageCodec.createID(in.readUTF());
+		}
+		if (e < epoch)
+			return null;
+		final List<JGroupsID> previous = new ArrayList<JGroupsID>(members);
+		final Map<JGroupsID, Integer> previousIndices = new HashMap<JGroupsID, Integer>(indices);
+		members.clear();
+		indices.clear();
+		final List<JGroupsID> joined = new ArrayList<JGroupsID>();
+		for (int i = 0; i < count; i++) {
+			put(snapshotIndices[i], snapshotMembers[i]);
+			if (!previousIndices.containsKey(snapshotMembers[i]))
+				joined.add(snapshotMembers[i]);
+		}
+		final List<JGroupsID> left = new ArrayList<JGroupsID>();
+		for (final JGroupsID memberID : previous)
+			if (memberID != null && !indices.containsKey(memberID))
+				left.add(memberID);
+		epoch = e;
+		latestEpoch = Math.max(latestEpoch, e);
+		return new Update(e, joined, left);
+	}
+
+	private void put(int index, JGroupsID memberID) {
+		while (members.size() <= index)
+			members.add(null);
+		final JGroupsID old = members.set(index, memberID);
+		if (old != null)
+			indices.remove(old);
+		indices.put(memberID, Integer.valueOf(index));
+	}
+
+	public synchronized void clear() {
+		epoch = 0;
+		latestEpoch = 0;
+		members.clear();
+		indices.clear();
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("MembershipLog[");
+		buf.append("epoch=").append(getEpoch()).append(";size=").append(size()).append("]");
+		return buf.toString();
+	}
+}
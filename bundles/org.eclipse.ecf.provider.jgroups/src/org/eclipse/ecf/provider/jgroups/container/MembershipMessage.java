@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+/**
+ * Async message carrying a {@link MembershipLog} delta, snapshot or snapshot
+ * request. It is handled by the connection rather than delivered to the
+ * container as an event.
+ */
+public class MembershipMessage extends AsyncMessage {
+
+	private static final long serialVersionUID = -3160412385718950342L;
+
+	MembershipMessage(JGroupsID fromID, JGroupsID targetID, byte[] data) {
+		super(fromID, targetID, data);
+	}
+
+}
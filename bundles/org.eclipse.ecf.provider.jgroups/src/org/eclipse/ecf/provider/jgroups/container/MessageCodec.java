@@ -0,0 +1,585 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.generic.SOContainer;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
+import org.eclipse.ecf.remoteservice.util.ObjectSerializationUtil;
+import org.jgroups.Address;
+import org.jgroups.Global;
+import org.jgroups.Message;
+import org.jgroups.util.Bits;
+import org.jgroups.util.ByteArrayDataOutputStream;
+import org.jgroups.util.OutputStreamAdapter;
+
+/**
+ * Versioned binary wire format for {@link AbstractMessage}s. The routing
+ * fields of a message (type, sender and target) travel in a
+ * {@link JGroupsMessageHeader}, with IDs written as their channel name only
+ * (the namespace is implied) or, where an {@link IDDictionary} has been agreed
+ * with the receiver, as a varint index. The message payload is the message data as is
+ * or, for an {@link AsyncContainerMessage}, the serialized container message.
+ * Messages without a header are java serialized AbstractMessages, which are
+ * still understood on decode and can be selected on encode for peers that do
+ * not understand the binary format.
+ * <p>
+ * Several async messages for one destination can be coalesced into a frame,
+ * whose payload is a sequence of entries, each the message type, the payload
+ * length (-1 for null) and the payload.
+ */
+public class MessageCodec {
+
+	public static final byte VERSION = 4;
+	// Versions from which the wire format changed. Version 1 carried the
+	// routing fields in the payload, so older messages are not understood.
+	static final byte HEADER_VERSION = 2;
+	static final byte REQUEST_ID_VERSION = 3;
+	static final byte FRAME_VERSION = 3;
+	static final byte INDEX_VERSION = 4;
+
+	static final byte TYPE_ASYNC = 1;
+	static final byte TYPE_SYNC = 2;
+	static final byte TYPE_CONNECT_REQUEST = 3;
+	static final byte TYPE_CONNECT_RESPONSE = 4;
+	static final byte TYPE_DISCONNECT_REQUEST = 5;
+	static final byte TYPE_ASYNC_CONTAINER = 6;
+	static final byte TYPE_SYNC_RESPONSE = 7;
+	static final byte TYPE_FRAME = 8;
+	static final byte TYPE_CALL_REQUEST = 9;
+	static final byte TYPE_MEMBERSHIP = 10;
+
+	// First two bytes of every java.io.ObjectOutputStream stream
+	private static final byte STREAM_MAGIC_0 = (byte) 0xAC;
+	private static final byte STREAM_MAGIC_1 = (byte) 0xED;
+
+	/**
+	 * Small numbers standing for IDs in message headers, agreed by a
+	 * connection with the members it sends to.
+	 */
+	public interface IDDictionary {
+		/**
+		 * @return the index targetID knows id by, or -1 if the name is to be
+		 *         sent
+		 */
+		int indexOf(JGroupsID id, JGroupsID targetID);
+
+		/**
+		 * @return the ID with the given index, or null if there is none
+		 */
+		JGroupsID get(int index);
+	}
+
+	private final OutputBufferPool bufferPool;
+	private volatile IDDictionary idDictionary;
+	private final Statistics binaryStatistics = new Statistics();
+	private final Statistics serializationStatistics = new Statistics();
+
+	public MessageCodec() {
+		this(new OutputBufferPool(AbstractJGroupsConnection.DEFAULT_BUFFER_SIZE));
+	}
+
+	public MessageCodec(OutputBufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * Encode/decode counters for one wire format.
+	 */
+	public static class Statistics {
+		private final AtomicLong encodedMessages = new AtomicLong();
+		private final AtomicLong encodedBytes = new AtomicLong();
+		private final AtomicLong encodeNanos = new AtomicLong();
+		private final AtomicLong decodedMessages = new AtomicLong();
+		private final AtomicLong decodedBytes = new AtomicLong();
+		private final AtomicLong decodeNanos = new AtomicLong();
+
+		void recordEncode(int bytes, long nanos) {
+			encodedMessages.incrementAndGet();
+			encodedBytes.addAndGet(bytes);
+			encodeNanos.addAndGet(nanos);
+		}
+
+		void recordDecode(int bytes, long nanos) {
+			decodedMessages.incrementAndGet();
+			decodedBytes.addAndGet(bytes);
+			decodeNanos.addAndGet(nanos);
+		}
+
+		public long getEncodedMessages() {
+			return encodedMessages.get();
+		}
+
+		public long getEncodedBytes() {
+			return encodedBytes.get();
+		}
+
+		public long getEncodeNanos() {
+			return encodeNanos.get();
+		}
+
+		public long getDecodedMessages() {
+			return decodedMessages.get();
+		}
+
+		public long getDecodedBytes() {
+			return decodedBytes.get();
+		}
+
+		public long getDecodeNanos() {
+			return decodeNanos.get();
+		}
+
+		public void reset() {
+			encodedMessages.set(0);
+			encodedBytes.set(0);
+			encodeNanos.set(0);
+			decodedMessages.set(0);
+			decodedBytes.set(0);
+			decodeNanos.set(0);
+		}
+
+		public String toString() {
+			final StringBuffer buf = new StringBuffer("Statistics[");
+			buf.append("encoded=").append(getEncodedMessages()).append(";encodedBytes=").append(getEncodedBytes())
+					.append(";encodeNanos=").append(getEncodeNanos());
+			buf.append(";decoded=").append(getDecodedMessages()).append(";decodedBytes=").append(getDecodedBytes())
+					.append(";decodeNanos=").append(getDecodeNanos()).append("]");
+			return buf.toString();
+		}
+	}
+
+	public OutputBufferPool getOutputBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Java serialize an object through a pooled buffer.
+	 * 
+	 * @return the serialized bytes, in an array of exactly their length
+	 */
+	public byte[] serializeToBytes(Object o) throws IOException {
+		final ByteArrayDataOutputStream out = bufferPool.acquire();
+		try {
+			writeObject(o, out);
+			return Arrays.copyOf(out.buffer(), out.position());
+		} finally {
+			bufferPool.release(out);
+		}
+	}
+
+	public IDDictionary getIDDictionary() {
+		return idDictionary;
+	}
+
+	public void setIDDictionary(IDDictionary idDictionary) {
+		this.idDictionary = idDictionary;
+	}
+
+	public Statistics getBinaryStatistics() {
+		return binaryStatistics;
+	}
+
+	public Statistics getSerializationStatistics() {
+		return serializationStatistics;
+	}
+
+	public Message encode(Address dest, AbstractMessage message) throws IOException {
+		return encode(dest, message, false);
+	}
+
+	public Message encode(Address dest, AbstractMessage message, boolean javaSerialization) throws IOException {
+		if (message == null)
+			throw new InvalidObjectException("message cannot be null");
+		final long start = System.nanoTime();
+		Message result = null;
+		if (javaSerialization) {
+			// Peers that only understand java serialization expect the container
+			// message as AsyncMessage bytes
+			if (message instanceof AsyncContainerMessage)
+				message = new AsyncMessage(message.getFromID(), message.getTargetID(),
+						serializeToBytes(((AsyncContainerMessage) message).getContainerMessage()));
+			final byte[] bytes = serializeToBytes(message);
+			result = new Message(dest, bytes);
+			serializationStatistics.recordEncode(bytes.length, System.nanoTime() - start);
+		} else {
+			// The payload must not share the pooled buffer, as JGroups keeps sent
+			// messages around for retransmission
+			if (message instanceof AsyncContainerMessage)
+				result = new Message(dest, serializeToBytes(((AsyncContainerMessage) message).getContainerMessage()));
+			else
+				result = new Message(dest, message.getData());
+			final long requestId = (message instanceof SyncMessage) ? ((SyncMessage) message).getRequestId() : 0;
+			final JGroupsMessageHeader header = createHeader(dest, getType(message), message.getFromID(),
+					message.getTargetID(), requestId);
+			result.putHeader(JGroupsMessageHeader.HEADER_ID, header);
+			binaryStatistics.recordEncode(result.getLength() + header.serializedSize(), System.nanoTime() - start);
+		}
+		return result;
+	}
+
+	private JGroupsMessageHeader createHeader(Address dest, byte type, JGroupsID fromID, JGroupsID targetID,
+			long requestId) {
+		final IDDictionary dictionary = idDictionary;
+		// Indices are only understood by the member they were agreed with, so
+		// messages that are multicast, even for one member, carry names.
+		// Connect requests and responses come before the receiver has the
+		// dictionary.
+		if (dictionary == null || dest == null || targetID == null || type == TYPE_CONNECT_REQUEST
+				|| type == TYPE_CONNECT_RESPONSE)
+			return new JGroupsMessageHeader(VERSION, type, fromID, targetID, requestId);
+		return new JGroupsMessageHeader(VERSION, type, fromID,
+				(fromID == null) ? -1 : dictionary.indexOf(fromID, targetID), targetID,
+				dictionary.indexOf(targetID, targetID), requestId);
+	}
+
+	private JGroupsID resolveID(String channelName, int index) throws IOException {
+		if (index < 0)
+			return createID(channelName);
+		final IDDictionary dictionary = idDictionary;
+		final JGroupsID result = (dictionary == null) ? null : dictionary.get(index);
+		if (result == null)
+			throw new StreamCorruptedException("no ID with index=" + index);
+		return result;
+	}
+
+	/**
+	 * Append an async message to a frame.
+	 */
+	public void writeFrameEntry(AbstractMessage message, ByteArrayDataOutputStream out) throws IOException {
+		final byte type = getType(message);
+		if (type != TYPE_ASYNC && type != TYPE_ASYNC_CONTAINER && type != TYPE_MEMBERSHIP)
+			throw new InvalidObjectException("only async messages can be framed");
+		out.writeByte(type);
+		final int lengthPosition = out.position();
+		out.writeInt(-1);
+		if (message instanceof AsyncContainerMessage)
+			writeObject(((AsyncContainerMessage) message).getContainerMessage(), out);
+		else {
+			final byte[] data = message.getData();
+			if (data == null)
+				return;
+			out.write(data);
+		}
+		final int end = out.position();
+		out.position(lengthPosition);
+		out.writeInt(end - lengthPosition - Global.INT_SIZE);
+		out.position(end);
+	}
+
+	/**
+	 * @return a message carrying a copy of the first length bytes of frame
+	 */
+	public Message encodeFrame(Address dest, JGroupsID fromID, JGroupsID targetID, byte[] frame, int length) {
+		final long start = System.nanoTime();
+		final Message result = new Message(dest, Arrays.copyOf(frame, length));
+		final JGroupsMessageHeader header = createHeader(dest, TYPE_FRAME, fromID, targetID, 0);
+		result.putHeader(JGroupsMessageHeader.HEADER_ID, header);
+		binaryStatistics.recordEncode(length + header.serializedSize(), System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * @return the messages in a frame, with payloads read in place
+	 */
+	public List<AbstractMessage> decodeFrame(Message message) throws IOException {
+		final JGroupsMessageHeader header = getHeader(message);
+		if (header == null || header.getType() != TYPE_FRAME)
+			throw new StreamCorruptedException("not a frame");
+		checkVersion(header, FRAME_VERSION);
+		final long start = System.nanoTime();
+		final JGroupsID fromID = resolveID(header.getFromName(), header.getFromIndex());
+		final JGroupsID targetID = resolveID(header.getTargetName(), header.getTargetIndex());
+		final byte[] buf = message.getRawBuffer();
+		final int end = message.getOffset() + message.getLength();
+		final List<AbstractMessage> result = new ArrayList<AbstractMessage>();
+		int position = message.getOffset();
+		while (position < end) {
+			if (end - position < 1 + Global.INT_SIZE)
+				throw new StreamCorruptedException("truncated frame");
+			final byte type = buf[position];
+			final int length = Bits.readInt(buf, position + 1);
+			position += 1 + Global.INT_SIZE;
+			if (length > end - position)
+				throw new StreamCorruptedException("truncated frame");
+			if (type == TYPE_ASYNC_CONTAINER)
+				result.add(new AsyncContainerMessage(fromID, targetID, readContainerMessage(buf, position, length)));
+			else if (type == TYPE_ASYNC || type == TYPE_MEMBERSHIP)
+				result.add((length < 0) ? createMessage(type, fromID, targetID, null)
+						: createMessage(type, fromID, targetID, buf, position, length));
+			else
+				throw new StreamCorruptedException("unexpected message type=" + type + " in frame");
+			if (length > 0)
+				position += length;
+		}
+		binaryStatistics.recordDecode(message.getLength() + header.serializedSize(), System.nanoTime() - start);
+		return result;
+	}
+
+	public static JGroupsMessageHeader getHeader(Message message) {
+		return message.getHeader(JGroupsMessageHeader.HEADER_ID);
+	}
+
+	public AbstractMessage decode(Message message) throws IOException {
+		final JGroupsMessageHeader header = getHeader(message);
+		if (header == null)
+			return decodeSerialized(message);
+		final long start = System.nanoTime();
+		checkVersion(header, HEADER_VERSION);
+		final JGroupsID fromID = resolveID(header.getFromName(), header.getFromIndex());
+		final JGroupsID targetID = resolveID(header.getTargetName(), header.getTargetIndex());
+		AbstractMessage result = null;
+		if (header.getType() == TYPE_ASYNC_CONTAINER)
+			result = new AsyncContainerMessage(fromID, targetID,
+					readContainerMessage(message.getRawBuffer(), message.getOffset(), message.getLength()));
+		else
+			result = createMessage(header.getType(), fromID, targetID, message.getRawBuffer(),
+					message.getOffset(), message.getLength());
+		if (result instanceof SyncMessage)
+			((SyncMessage) result).setRequestId(header.getRequestId());
+		binaryStatistics.recordDecode(message.getLength() + header.serializedSize(), System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Accept messages from members running this or an older version from
+	 * oldest on. Newer versions may have changed the payload.
+	 */
+	private static void checkVersion(JGroupsMessageHeader header, byte oldest) throws StreamCorruptedException {
+		final byte version = header.getVersion();
+		if (version < oldest || version > VERSION)
+			throw new StreamCorruptedException("unsupported message version=" + version);
+	}
+
+	AbstractMessage decodeSerialized(Message message) throws IOException {
+		final byte[] buf = message.getRawBuffer();
+		final int length = message.getLength();
+		if (buf == null || !isJavaSerialized(buf, message.getOffset(), length))
+			throw new StreamCorruptedException("unknown message format");
+		final long start = System.nanoTime();
+		final Object o = readObject(buf, message.getOffset(), length);
+		if (!(o instanceof AbstractMessage))
+			throw new InvalidObjectException("serialized object is not an AbstractMessage");
+		serializationStatistics.recordDecode(length, System.nanoTime() - start);
+		return (AbstractMessage) o;
+	}
+
+	static boolean isSync(byte type) {
+		return type == TYPE_SYNC || type == TYPE_CONNECT_REQUEST || type == TYPE_CONNECT_RESPONSE
+				|| type == TYPE_DISCONNECT_REQUEST || type == TYPE_SYNC_RESPONSE || type == TYPE_CALL_REQUEST;
+	}
+
+	static boolean isFrame(byte type) {
+		return type == TYPE_FRAME;
+	}
+
+	static boolean isResponse(byte type) {
+		return type == TYPE_SYNC_RESPONSE || type == TYPE_CONNECT_RESPONSE;
+	}
+
+	public static boolean isJavaSerialized(byte[] buf, int offset, int length) {
+		return length >= 2 && buf[offset] == STREAM_MAGIC_0 && buf[offset + 1] == STREAM_MAGIC_1;
+	}
+
+	static byte getType(AbstractMessage message) throws InvalidObjectException {
+		// Most specific types first
+		if (message instanceof AsyncContainerMessage)
+			return TYPE_ASYNC_CONTAINER;
+		else if (message instanceof ConnectRequestMessage)
+			return TYPE_CONNECT_REQUEST;
+		else if (message instanceof ConnectResponseMessage)
+			return TYPE_CONNECT_RESPONSE;
+		else if (message instanceof DisconnectRequestMessage)
+			return TYPE_DISCONNECT_REQUEST;
+		else if (message instanceof SyncResponseMessage)
+			return TYPE_SYNC_RESPONSE;
+		else if (message instanceof CallRequestMessage)
+			return TYPE_CALL_REQUEST;
+		else if (message instanceof MembershipMessage)
+			return TYPE_MEMBERSHIP;
+		else if (message instanceof SyncMessage)
+			return TYPE_SYNC;
+		else if (message instanceof AsyncMessage)
+			return TYPE_ASYNC;
+		throw new InvalidObjectException("unknown message class=" + message.getClass().getName());
+	}
+
+	static AbstractMessage createMessage(byte type, JGroupsID fromID, JGroupsID targetID, byte[] buf, int offset,
+			int length) throws IOException {
+		final AbstractMessage result = createMessage(type, fromID, targetID, buf);
+		if (buf != null)
+			result.setSlice(offset, length);
+		return result;
+	}
+
+	static AbstractMessage createMessage(byte type, JGroupsID fromID, JGroupsID targetID, byte[] data)
+			throws IOException {
+		switch (type) {
+		case TYPE_ASYNC:
+			return new AsyncMessage(fromID, targetID, data);
+		case TYPE_SYNC:
+			return new SyncMessage(fromID, targetID, data);
+		case TYPE_CONNECT_REQUEST:
+			return new ConnectRequestMessage(fromID, targetID, data);
+		case TYPE_CONNECT_RESPONSE:
+			return new ConnectResponseMessage(fromID, targetID, data);
+		case TYPE_DISCONNECT_REQUEST:
+			return new DisconnectRequestMessage(fromID, targetID, data);
+		case TYPE_SYNC_RESPONSE:
+			return new SyncResponseMessage(fromID, targetID, data);
+		case TYPE_CALL_REQUEST:
+			return new CallRequestMessage(fromID, targetID, data);
+		case TYPE_MEMBERSHIP:
+			return new MembershipMessage(fromID, targetID, data);
+		default:
+			throw new StreamCorruptedException("unknown message type=" + type);
+		}
+	}
+
+	static void writeObject(Object o, ByteArrayDataOutputStream out) throws IOException {
+		final ObjectOutputStream oos = new ObjectOutputStream(new OutputStreamAdapter(out));
+		oos.writeObject(o);
+		oos.flush();
+	}
+
+	/**
+	 * Reads objects with the class loader of the ECF code that reads them
+	 * when they are not read in place, so that payload classes resolve as
+	 * they would there.
+	 */
+	private static class ClassResolvingObjectInputStream extends ObjectInputStream {
+		private final ClassLoader classLoader;
+
+		ClassResolvingObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+			super(in);
+			this.classLoader = classLoader;
+		}
+
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (classLoader != null)
+				try {
+					return Class.forName(desc.getName(), false, classLoader);
+				} catch (final ClassNotFoundException e) {
+					// primitive types and classes only this bundle sees
+				}
+			return super.resolveClass(desc);
+		}
+	}
+
+	/**
+	 * Read a container message in place, resolving classes as
+	 * SOContainer.deserializeContainerMessage does.
+	 */
+	static ContainerMessage readContainerMessage(byte[] buf, int offset, int length) throws IOException {
+		final Object o = readObject(buf, offset, length, SOContainer.class.getClassLoader());
+		if (o != null && !(o instanceof ContainerMessage))
+			throw new InvalidObjectException("object is not a ContainerMessage");
+		return (ContainerMessage) o;
+	}
+
+	/**
+	 * Read the container message in a message payload, in place.
+	 */
+	static ContainerMessage readContainerMessage(AbstractMessage message) throws IOException {
+		if (message.getRawData() == null)
+			return null;
+		return readContainerMessage(message.getRawData(), message.getOffset(), message.getLength());
+	}
+
+	/**
+	 * Java deserialize an object directly out of a region of a buffer,
+	 * resolving classes as ObjectSerializationUtil does.
+	 */
+	static Object readObject(byte[] buf, int offset, int length) throws IOException {
+		return readObject(buf, offset, length, ObjectSerializationUtil.class.getClassLoader());
+	}
+
+	private static Object readObject(byte[] buf, int offset, int length, ClassLoader classLoader)
+			throws IOException {
+		final ObjectInputStream ois = new ClassResolvingObjectInputStream(
+				new ByteArrayInputStream(buf, offset, length), classLoader);
+		try {
+			return ois.readObject();
+		} catch (final ClassNotFoundException e) {
+			final InvalidObjectException except = new InvalidObjectException("could not read object");
+			except.initCause(e);
+			throw except;
+		}
+	}
+
+	/**
+	 * Write a non-negative number seven bits to a byte, low bits first, so
+	 * that numbers below 128 take one byte.
+	 */
+	static void writeVarLong(long value, DataOutput out) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(DataInput in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = in.readByte();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+		throw new StreamCorruptedException("malformed varint");
+	}
+
+	static int varIntSize(int value) {
+		int result = 1;
+		for (long v = (value & 0xFFFFFFFFL) >>> 7; v != 0; v >>>= 7)
+			result++;
+		return result;
+	}
+
+	static void writeVarInt(int value, DataOutput out) throws IOException {
+		writeVarLong(value & 0xFFFFFFFFL, out);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		final long result = readVarLong(in);
+		if (result > 0xFFFFFFFFL)
+			throw new StreamCorruptedException("varint out of range");
+		return (int) result;
+	}
+
+	static JGroupsID createID(String channelName) throws IOException {
+		if (channelName == null)
+			return null;
+		try {
+			return JGroupsNamespace.INSTANCE.createID(channelName);
+		} catch (final Exception e) {
+			final InvalidObjectException except = new InvalidObjectException(
+					"could not create JGroupsID for name=" + channelName);
+			except.initCause(e);
+			throw except;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+/**
+ * Packs async messages for the same destination into frames, so that many
+ * small messages cost one JGroups message. A frame is sent once it reaches
+ * the maximum frame size, or when the flush delay after its first message
+ * has passed, whichever comes first.
+ */
+public class OutboundCoalescer {
+
+	// Key of the multicast frame
+	private static final Object MULTICAST = new Object();
+
+	// Flushes frames for all connections
+	private static final ScheduledThreadPoolExecutor FLUSH_TIMER = new ScheduledThreadPoolExecutor(1,
+			new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "JGroups flush timer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	static {
+		FLUSH_TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	private final AbstractJGroupsConnection connection;
+	private final int maxFrameSize;
+	private final long flushDelayMicros;
+	private final ConcurrentMap<Object, Frame> frames = new ConcurrentHashMap<Object, Frame>();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong framesSent = new AtomicLong();
+
+	class Frame implements Runnable {
+		final JGroupsID targetID;
+		ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(maxFrameSize, true);
+		int count;
+		ScheduledFuture<?> flushTask;
+
+		Frame(JGroupsID targetID) {
+			this.targetID = targetID;
+		}
+
+		public void run() {
+			try {
+				flush(this, true);
+			} catch (final IOException e) {
+				connection.logException("flush of coalesced messages failed, targetID=" + targetID, e);
+			}
+		}
+	}
+
+	public OutboundCoalescer(AbstractJGroupsConnection connection, int maxFrameSize, long flushDelayMicros) {
+		if (maxFrameSize <= 0)
+			throw new IllegalArgumentException("maxFrameSize must be > 0");
+		if (flushDelayMicros <= 0)
+			throw new IllegalArgumentException("flushDelayMicros must be > 0");
+		this.connection = connection;
+		this.maxFrameSize = maxFrameSize;
+		this.flushDelayMicros = flushDelayMicros;
+	}
+
+	public int getMaxFrameSize() {
+		return maxFrameSize;
+	}
+
+	public long getFlushDelayMicros() {
+		return flushDelayMicros;
+	}
+
+	/**
+	 * Add an async message to the frame for its target, sending the frame if
+	 * it is full.
+	 */
+	public void add(JGroupsID targetID, AbstractMessage message) throws IOException {
+		final Object key = (targetID == null) ? MULTICAST : targetID;
+		Frame frame = frames.get(key);
+		if (frame == null) {
+			final Frame newFrame = new Frame(targetID);
+			frame = frames.putIfAbsent(key, newFrame);
+			if (frame == null)
+				frame = newFrame;
+		}
+		synchronized (frame) {
+			final int position = frame.out.position();
+			try {
+				connection.getMessageCodec().writeFrameEntry(message, frame.out);
+			} catch (final IOException e) {
+				// leave the frame as it was
+				frame.out.position(position);
+				throw e;
+			}
+			frame.count++;
+			coalesced.incrementAndGet();
+			if (frame.out.position() >= maxFrameSize)
+				flush(frame);
+			else if (frame.count == 1)
+				frame.flushTask = FLUSH_TIMER.schedule(frame, flushDelayMicros, TimeUnit.MICROSECONDS);
+		}
+	}
+
+	/**
+	 * Send the pending frame for a target, so that a message sent to it
+	 * outside of a frame is not overtaken by earlier messages.
+	 */
+	public void flush(JGroupsID targetID) throws IOException {
+		final Frame frame = frames.get((targetID == null) ? MULTICAST : targetID);
+		if (frame != null)
+			flush(frame);
+	}
+
+	/**
+	 * Send all pending frames.
+	 */
+	public void flushAll() throws IOException {
+		IOException failure = null;
+		for (final Frame frame : frames.values())
+			try {
+				flush(frame);
+			} catch (final IOException e) {
+				failure = e;
+			}
+		if (failure != null)
+			throw failure;
+	}
+
+	void flush(Frame frame) throws IOException {
+		flush(frame, false);
+	}
+
+	/**
+	 * @param timed
+	 *            true on the flush timer, which is shared by all connections
+	 *            and so must not wait for space in an outbound queue
+	 */
+	void flush(Frame frame, boolean timed) throws IOException {
+		synchronized (frame) {
+			if (frame.count == 0)
+				return;
+			Address dest = null;
+			try {
+				dest = (frame.targetID == null) ? null : connection.resolveAddress(frame.targetID);
+			} catch (final IOException e) {
+				// The target has left, and the messages for it can't be sent
+				reset(frame);
+				throw e;
+			}
+			final Message msg = connection.getMessageCodec().encodeFrame(dest, connection.getLocalID(),
+					frame.targetID, frame.out.buffer(), frame.out.position());
+			// Our own multicasts would only be dropped again on receive
+			if (dest == null)
+				msg.setTransientFlag(Message.TransientFlag.DONT_LOOPBACK);
+			// Sent while holding the frame lock, so frames for one target go out
+			// in order
+			if (timed) {
+				boolean queued = false;
+				try {
+					queued = connection.offerMessage(msg);
+				} catch (final IOException e) {
+					reset(frame);
+					throw e;
+				}
+				if (!queued) {
+					// Keep the frame, and try again after another delay
+					frame.flushTask = FLUSH_TIMER.schedule(frame, flushDelayMicros, TimeUnit.MICROSECONDS);
+					return;
+				}
+				reset(frame);
+			} else {
+				reset(frame);
+				connection.sendMessage(msg);
+			}
+			framesSent.incrementAndGet();
+		}
+	}
+
+	private void reset(Frame frame) {
+		if (frame.flushTask != null) {
+			frame.flushTask.cancel(false);
+			frame.flushTask = null;
+		}
+		// Don't hold on to a buffer grown by one large message
+		if (frame.out.buffer().length > maxFrameSize * OutputBufferPool.MAX_RETAINED_FACTOR)
+			frame.out = new ByteArrayDataOutputStream(maxFrameSize, true);
+		else
+			frame.out.position(0);
+		frame.count = 0;
+	}
+
+	/**
+	 * @return number of messages added to frames
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	public long getFramesSent() {
+		return framesSent.get();
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("OutboundCoalescer[");
+		buf.append("maxFrameSize=").append(maxFrameSize).append(";flushDelayMicros=").append(flushDelayMicros);
+		buf.append(";coalesced=").append(getCoalesced()).append(";framesSent=").append(getFramesSent()).append("]");
+		return buf.toString();
+	}
+}
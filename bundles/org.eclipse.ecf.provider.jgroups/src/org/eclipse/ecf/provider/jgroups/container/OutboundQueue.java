@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.protocols.FlowControl;
+import org.jgroups.stack.Protocol;
+
+/**
+ * Bounded queue between senders and the channel. A single thread takes
+ * messages off the queue and sends them, so a send blocked in JGroups flow
+ * control (UFC/MFC running out of credits) holds up only that thread, and
+ * callers see a full queue instead. What happens to a message offered to a
+ * full queue is given by the {@link Policy}. Messages that can't be dropped
+ * (sync requests) always wait for space. Responses do not go through the
+ * queue, and are sent without flow control.
+ * <p>
+ * The occupancy and blocked-send methods let producers throttle themselves
+ * before the queue fills up.
+ */
+public class OutboundQueue {
+
+	public enum Policy {
+		/**
+		 * Wait for space, up to the block timeout, then fail.
+		 */
+		BLOCK,
+		/**
+		 * Discard the message.
+		 */
+		DROP,
+		/**
+		 * Fail with an IOException.
+		 */
+		FAIL
+	}
+
+	/**
+	 * A send taking longer than this is counted as blocked on credits.
+	 */
+	public static final long BLOCKED_SEND_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final AbstractJGroupsConnection connection;
+	private final BlockingQueue<Message> queue;
+	private final int capacity;
+	private final Policy policy;
+	private final long blockTimeout;
+	private final Thread senderThread;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private volatile boolean closed;
+	// start of the send in progress, or 0 if none
+	private volatile long sendStartNanos;
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong blockedSends = new AtomicLong();
+	private final AtomicLong blockedNanos = new AtomicLong();
+
+	/**
+	 * @param blockTimeout
+	 *            milliseconds to wait for space with {@link Policy#BLOCK}, or 0
+	 *            to wait as long as it takes
+	 */
+	public OutboundQueue(AbstractJGroupsConnection connection, int capacity, Policy policy, long blockTimeout) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be > 0");
+		this.connection = connection;
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<Message>(capacity);
+		this.policy = (policy == null) ? Policy.BLOCK : policy;
+		this.blockTimeout = blockTimeout;
+		this.senderThread = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "JGroups sender " + connection.getLocalID().getName());
+		this.senderThread.setDaemon(true);
+	}
+
+	// The sender thread is started with the first message, so that a
+	// connection that never sends does not hold a thread
+	private void startSender() {
+		if (!started.get() && started.compareAndSet(false, true))
+			senderThread.start();
+	}
+
+	/**
+	 * Queue a message for sending.
+	 * 
+	 * @param droppable
+	 *            false if the message must be sent even if the queue is full
+	 * @return false if the message was dropped
+	 * @throws IOException
+	 *             if the queue is closed, or full and the message can't wait
+	 */
+	public boolean add(Message msg, boolean droppable) throws IOException {
+		if (closed)
+			throw new IOException("not connected");
+		startSender();
+		if (queue.offer(msg))
+			return true;
+		final Policy p = droppable ? policy : Policy.BLOCK;
+		if (p == Policy.DROP) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		if (p == Policy.BLOCK)
+			try {
+				if (blockTimeout <= 0) {
+					queue.put(msg);
+					return true;
+				}
+				if (queue.offer(msg, blockTimeout, TimeUnit.MILLISECONDS))
+					return true;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted waiting for outbound queue");
+			}
+		rejected.incrementAndGet();
+		throw new IOException("outbound queue full, capacity=" + capacity);
+	}
+
+	/**
+	 * Queue a message for sending if there is space, without waiting and
+	 * whatever the policy.
+	 * 
+	 * @return false if the queue is full
+	 * @throws IOException
+	 *             if the queue is closed
+	 */
+	public boolean offer(Message msg) throws IOException {
+		if (closed)
+			throw new IOException("not connected");
+		startSender();
+		return queue.offer(msg);
+	}
+
+	void drain() {
+		while (!closed || !queue.isEmpty()) {
+			Message msg = null;
+			try {
+				msg = queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (final InterruptedException e) {
+				break;
+			}
+			if (msg == null)
+				continue;
+			final long start = System.nanoTime();
+			sendStartNanos = start;
+			try {
+				connection.transmit(msg);
+				sent.incrementAndGet();
+			} catch (final IOException e) {
+				failed.incrementAndGet();
+				if (!closed)
+					connection.logException("outbound queue send failed", e);
+			} finally {
+				sendStartNanos = 0;
+				final long nanos = System.nanoTime() - start;
+				if (nanos >= BLOCKED_SEND_NANOS) {
+					blockedSends.incrementAndGet();
+					blockedNanos.addAndGet(nanos);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop taking new messages and wait for queued ones to be sent.
+	 * 
+	 * @return true if all queued messages were sent in time
+	 */
+	public boolean close(long timeout) {
+		closed = true;
+		try {
+			senderThread.join(timeout);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!senderThread.isAlive())
+			return true;
+		senderThread.interrupt();
+		queue.clear();
+		return false;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getSize() {
+		return queue.size();
+	}
+
+	/**
+	 * @return fraction of the capacity in use, from 0 to 1
+	 */
+	public double getOccupancy() {
+		return (double) queue.size() / capacity;
+	}
+
+	public boolean isFull() {
+		return queue.remainingCapacity() == 0;
+	}
+
+	/**
+	 * @return true if the send in progress has been waiting for longer than
+	 *         {@link #BLOCKED_SEND_NANOS}, which normally means the channel is
+	 *         out of flow control credits
+	 */
+	public boolean isSendBlocked() {
+		final long start = sendStartNanos;
+		return start != 0 && System.nanoTime() - start >= BLOCKED_SEND_NANOS;
+	}
+
+	/**
+	 * @return true if producers should hold back: the queue is full or the
+	 *         channel is blocked
+	 */
+	public boolean isSaturated() {
+		return isFull() || isSendBlocked();
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	/**
+	 * @return number of messages discarded with {@link Policy#DROP}
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return number of messages refused because the queue was full
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return number of sends that took longer than
+	 *         {@link #BLOCKED_SEND_NANOS}
+	 */
+	public long getBlockedSends() {
+		return blockedSends.get();
+	}
+
+	public long getBlockedNanos() {
+		return blockedNanos.get();
+	}
+
+	/**
+	 * @return times senders on the channel blocked for lack of credits, as
+	 *         counted by its flow control protocols, or -1 if it has none
+	 */
+	public long getFlowControlBlockings() {
+		final JChannel ch = connection.getChannel();
+		if (ch == null)
+			return -1;
+		long blockings = -1;
+		for (final Protocol protocol : ch.getProtocolStack().getProtocols())
+			if (protocol instanceof FlowControl)
+				blockings = Math.max(blockings, 0) + ((FlowControl) protocol).getNumberOfBlockings();
+		return blockings;
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("OutboundQueue[");
+		buf.append("policy=").append(policy).append(";capacity=").append(capacity).append(";size=").append(getSize());
+		buf.append(";sent=").append(getSent()).append(";dropped=").append(getDropped()).append(";rejected=")
+				.append(getRejected()).append(";failed=").append(getFailed()).append(";blockedSends=")
+				.append(getBlockedSends()).append("]");
+		return buf.toString();
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+/**
+ * Bounded, striped pool of growable output buffers used to serialize outbound
+ * messages. Each stripe holds at most one idle buffer, and the stripe is
+ * picked from the calling thread, so in steady state a sending thread gets
+ * back the buffer it used last without contention. Buffers that grew beyond
+ * {@link #getMaxRetainedSize()} are not returned to the pool.
+ */
+public class OutputBufferPool {
+
+	/**
+	 * Largest buffer kept, as a multiple of the buffer size.
+	 */
+	public static final int MAX_RETAINED_FACTOR = 16;
+
+	private final AtomicReferenceArray<ByteArrayDataOutputStream> stripes;
+	private final int mask;
+	private volatile int bufferSize;
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong allocated = new AtomicLong();
+
+	public OutputBufferPool(int bufferSize) {
+		this(bufferSize, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	public OutputBufferPool(int bufferSize, int stripes) {
+		setBufferSize(bufferSize);
+		int size = 1;
+		while (size < stripes)
+			size <<= 1;
+		this.stripes = new AtomicReferenceArray<ByteArrayDataOutputStream>(size);
+		this.mask = size - 1;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Set the initial capacity of newly allocated buffers. Pooled buffers are
+	 * kept as they are.
+	 */
+	public void setBufferSize(int bufferSize) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("bufferSize must be > 0");
+		this.bufferSize = bufferSize;
+	}
+
+	public int getMaxRetainedSize() {
+		return bufferSize * MAX_RETAINED_FACTOR;
+	}
+
+	private int stripe() {
+		final long id = Thread.currentThread().getId();
+		return (int) (id ^ (id >>> 16)) & mask;
+	}
+
+	/**
+	 * @return an empty buffer, which must be given back with
+	 *         {@link #release(ByteArrayDataOutputStream)} once its contents
+	 *         have been copied or sent
+	 */
+	public ByteArrayDataOutputStream acquire() {
+		acquired.incrementAndGet();
+		final ByteArrayDataOutputStream out = stripes.getAndSet(stripe(), null);
+		if (out != null)
+			return out;
+		allocated.incrementAndGet();
+		return new ByteArrayDataOutputStream(bufferSize, true);
+	}
+
+	public void release(ByteArrayDataOutputStream out) {
+		if (out == null || out.buffer().length > getMaxRetainedSize())
+			return;
+		out.position(0);
+		stripes.compareAndSet(stripe(), null, out);
+	}
+
+	/**
+	 * @return number of buffers handed out
+	 */
+	public long getAcquired() {
+		return acquired.get();
+	}
+
+	/**
+	 * @return number of buffers that had to be allocated because the pool had
+	 *         none to give
+	 */
+	public long getAllocated() {
+		return allocated.get();
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("OutputBufferPool[");
+		buf.append("bufferSize=").append(bufferSize).append(";stripes=").append(mask + 1);
+		buf.append(";acquired=").append(getAcquired()).append(";allocated=").append(getAllocated()).append("]");
+		return buf.toString();
+	}
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A method call on a service registered under a name in a
+ * {@link RemoteCallRegistry}.
+ */
+public class RemoteCall implements Serializable {
+
+	private static final long serialVersionUID = 4524128741326318845L;
+
+	private final String service;
+	private final String method;
+	private final Object[] parameters;
+
+	public RemoteCall(String service, String method, Object[] parameters) {
+		this.service = service;
+		this.method = method;
+		this.parameters = (parameters == null) ? new Object[0] : parameters;
+	}
+
+	public String getService() {
+		return service;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public Object[] getParameters() {
+		return parameters;
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("RemoteCall[");
+		buf.append("service=").append(service).append(";method=").append(method).append(";parameters=")
+				.append(Arrays.asList(parameters)).append("]");
+		return buf.toString();
+	}
+}
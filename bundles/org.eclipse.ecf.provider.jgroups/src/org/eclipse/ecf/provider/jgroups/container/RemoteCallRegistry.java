@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Services that can be invoked by {@link RemoteCall}s arriving on a JGroups
+ * connection. Methods are looked up by name and parameter count, and a method
+ * returning a {@link CompletionStage} is answered when the stage completes,
+ * so asynchronous services don't hold a thread per call.
+ */
+public class RemoteCallRegistry {
+
+	private final ConcurrentMap<String, Object> services = new ConcurrentHashMap<String, Object>();
+	// method cache per class, as classes of the same name from different
+	// bundles are different classes, keyed by method name and parameter count
+	private final ClassValue<ConcurrentMap<String, Method[]>> methods =
+			new ClassValue<ConcurrentMap<String, Method[]>>() {
+				protected ConcurrentMap<String, Method[]> computeValue(Class<?> type) {
+					return new ConcurrentHashMap<String, Method[]>();
+				}
+			};
+
+	public void registerService(String name, Object service) {
+		if (name == null || service == null)
+			throw new IllegalArgumentException("name and service must not be null");
+		services.put(name, service);
+	}
+
+	public Object unregisterService(String name) {
+		return services.remove(name);
+	}
+
+	public Object getService(String name) {
+		return services.get(name);
+	}
+
+	/**
+	 * @return future completed with the value returned by the service method
+	 *         or exceptionally with the exception it threw
+	 */
+	public CompletableFuture<Object> invoke(RemoteCall call) {
+		final CompletableFuture<Object> result = new CompletableFuture<Object>();
+		final Object service = services.get(call.getService());
+		if (service == null) {
+			result.completeExceptionally(new NoSuchMethodException("no service=" + call.getService()));
+			return result;
+		}
+		try {
+			final Object value = findMethod(service.getClass(), call).invoke(service, call.getParameters());
+			if (value instanceof CompletionStage)
+				return ((CompletionStage<Object>) value).toCompletableFuture();
+			result.complete(value);
+		} catch (final InvocationTargetException e) {
+			result.completeExceptionally(e.getCause());
+		} catch (final Exception e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	private Method findMethod(Class<?> clazz, RemoteCall call) throws NoSuchMethodException {
+		final Object[] parameters = call.getParameters();
+		final ConcurrentMap<String, Method[]> classMethods = methods.get(clazz);
+		final String key = call.getMethod() + "/" + parameters.length;
+		Method[] candidates = classMethods.get(key);
+		if (candidates == null) {
+			final List<Method> found = new ArrayList<Method>();
+			// Object's methods, such as wait and notify, are not services
+			for (final Method m : clazz.getMethods())
+				if (m.getName().equals(call.getMethod()) && m.getParameterTypes().length == parameters.length
+						&& !Modifier.isStatic(m.getModifiers()) && m.getDeclaringClass() != Object.class)
+					found.add(m);
+			candidates = found.toArray(new Method[found.size()]);
+			classMethods.put(key, candidates);
+		}
+		for (final Method m : candidates)
+			if (isApplicable(m.getParameterTypes(), parameters))
+				return m;
+		throw new NoSuchMethodException("no method=" + call.getMethod() + " for " + call);
+	}
+
+	private static boolean isApplicable(Class<?>[] types, Object[] parameters) {
+		for (int i = 0; i < types.length; i++) {
+			final Class<?> type = types[i].isPrimitive() ? wrapper(types[i]) : types[i];
+			if (parameters[i] == null ? types[i].isPrimitive() : !type.isInstance(parameters[i]))
+				return false;
+		}
+		return true;
+	}
+
+	private static Class<?> wrapper(Class<?> primitive) {
+		if (primitive == Integer.TYPE)
+			return Integer.class;
+		if (primitive == Long.TYPE)
+			return Long.class;
+		if (primitive == Boolean.TYPE)
+			return Boolean.class;
+		if (primitive == Double.TYPE)
+			return Double.class;
+		if (primitive == Float.TYPE)
+			return Float.class;
+		if (primitive == Short.TYPE)
+			return Short.class;
+		if (primitive == Byte.TYPE)
+			return Byte.class;
+		if (primitive == Character.TYPE)
+			return Character.class;
+		return Void.class;
+	}
+}
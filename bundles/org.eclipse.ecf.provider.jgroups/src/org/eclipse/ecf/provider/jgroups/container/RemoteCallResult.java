@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of a {@link RemoteCall}: the value returned, or the exception
+ * thrown, by the service.
+ */
+public class RemoteCallResult implements Serializable {
+
+	private static final long serialVersionUID = -2851957385128413052L;
+
+	private final Object result;
+	private final Throwable exception;
+
+	public RemoteCallResult(Object result, Throwable exception) {
+		this.result = result;
+		this.exception = exception;
+	}
+
+	public Object getResult() {
+		return result;
+	}
+
+	public Throwable getException() {
+		return exception;
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("RemoteCallResult[");
+		buf.append("result=").append(result).append(";exception=").append(exception).append("]");
+		return buf.toString();
+	}
+}
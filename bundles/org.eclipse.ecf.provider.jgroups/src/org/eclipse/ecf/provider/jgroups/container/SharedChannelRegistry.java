@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.jgroups.JChannel;
+import org.jgroups.fork.ForkChannel;
+import org.jgroups.stack.ProtocolStack;
+
+/**
+ * Hands out fork channels over one main channel per protocol stack
+ * configuration and transport overrides, so that containers in one process
+ * share a transport and its threads. The main channel is connected to {@link #SHARED_CLUSTER}, and every
+ * group gets its own fork channel with its own receiver and lifecycle. A main
+ * channel is closed when the last of its fork channels is.
+ * <p>
+ * Fork channels over one main channel share its address and view, and only
+ * talk to fork channels of the same group, so one main channel carries at most
+ * one fork channel per group.
+ */
+public class SharedChannelRegistry {
+
+	public static final String SHARED_CLUSTER = "ecf.jgroups.shared";
+
+	private static final String FORK_STACK_ID = "ecf";
+
+	private static final SharedChannelRegistry defaultRegistry = new SharedChannelRegistry();
+
+	public static SharedChannelRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	private class Shared {
+		final String key;
+		// completed once the main channel is connected
+		final CompletableFuture<JChannel> main = new CompletableFuture<JChannel>();
+		final Set<String> groups = new HashSet<String>();
+
+		Shared(String key) {
+			this.key = key;
+		}
+
+		void connect(String config, Map<String, ?> properties) throws Exception {
+			try {
+				final JChannel ch = createMainChannel(config, properties);
+				try {
+					ch.connect(SHARED_CLUSTER);
+				} catch (final Exception e) {
+					ch.close();
+					throw e;
+				}
+				main.complete(ch);
+			} catch (final Exception e) {
+				main.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		JChannel awaitMain() throws Exception {
+			try {
+				return main.get();
+			} catch (final ExecutionException e) {
+				throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+			}
+		}
+	}
+
+	private class Fork extends ForkChannel {
+		private final Shared shared;
+		private final String group;
+		private boolean released;
+
+		Fork(Shared shared, JChannel main, String group) throws Exception {
+			super(main, FORK_STACK_ID, group, true, ProtocolStack.Position.ABOVE,
+					main.getProtocolStack().getTopProtocol().getClass());
+			this.shared = shared;
+			this.group = group;
+		}
+
+		@Override
+		public void close() {
+			super.close();
+			synchronized (this) {
+				if (released)
+					return;
+				released = true;
+			}
+			release(shared, group);
+		}
+	}
+
+	private final Map<String, Shared> channels = new HashMap<String, Shared>();
+
+	/**
+	 * @param config
+	 *            protocol stack configuration of the main channel, or null for
+	 *            the default stack
+	 * @param group
+	 *            name of the group the fork channel is for
+	 * @return an unconnected fork channel, or null if the main channel already
+	 *         has one for the group
+	 */
+	public JChannel getChannel(String config, String group) throws Exception {
+		return getChannel(config, null, group);
+	}
+
+	/**
+	 * @param properties
+	 *            transport overrides for the main channel, see
+	 *            {@link ChannelPresets}, or null for none. Groups with
+	 *            different overrides get different main channels.
+	 * @return an unconnected fork channel, or null if the main channel already
+	 *         has one for the group
+	 */
+	public JChannel getChannel(String config, Map<String, ?> properties, String group) throws Exception {
+		final String key = ChannelPresets.getChannelKey(config, properties);
+		Shared shared = null;
+		boolean created = false;
+		synchronized (this) {
+			shared = channels.get(key);
+			if (shared == null) {
+				shared = new Shared(key);
+				channels.put(key, shared);
+				created = true;
+			}
+			if (!shared.groups.add(group))
+				return null;
+		}
+		// Connected outside the lock, so that a slow join does not hold up
+		// channels for other groups
+		try {
+			if (created)
+				shared.connect(config, properties);
+			return new Fork(shared, shared.awaitMain(), group);
+		} catch (final Exception e) {
+			release(shared, group);
+			throw e;
+		}
+	}
+
+	protected JChannel createMainChannel(String config) throws Exception {
+		return ChannelPresets.createChannel(config);
+	}
+
+	/**
+	 * Create the main channel and apply the transport overrides to it.
+	 */
+	protected JChannel createMainChannel(String config, Map<String, ?> properties) throws Exception {
+		final JChannel ch = createMainChannel(config);
+		try {
+			ChannelPresets.configure(ch, properties);
+		} catch (final Exception e) {
+			ch.close();
+			throw e;
+		}
+		return ch;
+	}
+
+	private void release(Shared shared, String group) {
+		final boolean last;
+		synchronized (this) {
+			shared.groups.remove(group);
+			last = shared.groups.isEmpty();
+			if (last)
+				channels.remove(shared.key);
+		}
+		if (last && !shared.main.isCompletedExceptionally())
+			shared.main.join().close();
+	}
+
+	/**
+	 * @return number of main channels open
+	 */
+	public synchronized int getMainChannelCount() {
+		return channels.size();
+	}
+
+	/**
+	 * @return number of fork channels handed out and not yet closed
+	 */
+	public synchronized int getForkChannelCount() {
+		int result = 0;
+		for (final Shared shared : channels.values())
+			result += shared.groups.size();
+		return result;
+	}
+}
@@ -14,8 +14,19 @@ public class SyncMessage extends AbstractMessage {
 
 	private static final long serialVersionUID = 2713842114615368704L;
 
+	// Correlates a request with its response, 0 if not set
+	private long requestId;
+
 	public SyncMessage(JGroupsID fromID, JGroupsID targetID, byte[] data) {
 		super(fromID, targetID, data);
 	}
 
+	public long getRequestId() {
+		return requestId;
+	}
+
+	void setRequestId(long requestId) {
+		this.requestId = requestId;
+	}
+
 }
@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+/**
+ * Reply to a {@link SyncMessage} request, correlated by request id.
+ */
+public class SyncResponseMessage extends SyncMessage {
+
+	private static final long serialVersionUID = 3208839436478451297L;
+
+	public SyncResponseMessage(JGroupsID fromID, JGroupsID targetID, byte[] data) {
+		super(fromID, targetID, data);
+	}
+
+}
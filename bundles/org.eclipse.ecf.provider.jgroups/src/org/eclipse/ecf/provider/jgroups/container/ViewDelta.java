@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors: Composent, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ecf.provider.jgroups.container;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jgroups.Address;
+import org.jgroups.View;
+
+/**
+ * The members that joined and left between two views, found with hash sets
+ * in time linear in the size of the views.
+ */
+public class ViewDelta {
+
+	private final List<Address> joined;
+	private final List<Address> left;
+
+	/**
+	 * @param previous
+	 *            the view before, or null if current is the first
+	 */
+	public ViewDelta(View previous, View current) {
+		final Address[] after = current.getMembersRaw();
+		if (previous == null) {
+			joined = Collections.unmodifiableList(Arrays.asList(after));
+			left = Collections.emptyList();
+			return;
+		}
+		final Address[] before = previous.getMembersRaw();
+		final Set<Address> beforeSet = toSet(before);
+		final Set<Address> afterSet = toSet(after);
+		joined = difference(after, beforeSet);
+		left = difference(before, afterSet);
+	}
+
+	private static Set<Address> toSet(Address[] members) {
+		final Set<Address> result = new HashSet<Address>(members.length * 4 / 3 + 1);
+		Collections.addAll(result, members);
+		return result;
+	}
+
+	private static List<Address> difference(Address[] members, Set<Address> excluded) {
+		List<Address> result = null;
+		for (final Address addr : members)
+			if (!excluded.contains(addr)) {
+				if (result == null)
+					result = new ArrayList<Address>();
+				result.add(addr);
+			}
+		return (result == null) ? Collections.<Address> emptyList() : Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @return members in the current view and not in the previous one, in
+	 *         view order
+	 */
+	public List<Address> getJoined() {
+		return joined;
+	}
+
+	/**
+	 * @return members in the previous view and not in the current one, in
+	 *         view order
+	 */
+	public List<Address> getLeft() {
+		return left;
+	}
+
+	public boolean isEmpty() {
+		return joined.isEmpty() && left.isEmpty();
+	}
+
+	public String toString() {
+		final StringBuffer buf = new StringBuffer("ViewDelta[");
+		buf.append("joined=").append(joined).append(";left=").append(left).append("]");
+		return buf.toString();
+	}
+}
@@ -8,6 +8,7 @@
  ******************************************************************************/
 package org.eclipse.ecf.provider.jgroups.identity;
 
+import java.io.ObjectStreamException;
 import java.net.URI;
 
 import org.eclipse.ecf.core.identity.IDCreateException;
@@ -19,21 +20,63 @@ public class JGroupsID extends URIID {
 	private static final long serialVersionUID = 8221231856444089704L;
 
 	private transient Address address;
+	// asked for with every message sent and received
+	private transient String channelName;
+	private transient int hash;
 
 	public JGroupsID(Namespace ns, URI id) throws IDCreateException {
 		super(ns, id);
 	}
 
+	/**
+	 * IDs are shared by every container in the JVM that uses the same name,
+	 * so connections keep the addresses of group members themselves. An
+	 * address set here is used only by connections on a channel of their own.
+	 */
 	public Address getAddress() {
 		return address;
 	}
 
+	/**
+	 * @deprecated IDs are interned, so an address set here is seen by every
+	 *             container in the JVM that uses this name. Connections find
+	 *             members by name in their own view of the group.
+	 */
+	@Deprecated
 	public void setAddress(Address address) {
 		this.address = address;
 	}
 
 	public String getChannelName() {
-		return toURI().getSchemeSpecificPart();
+		String result = channelName;
+		if (result == null)
+			channelName = result = toURI().getSchemeSpecificPart();
+		return result;
+	}
+
+	public int hashCode() {
+		int result = hash;
+		if (result == 0)
+			hash = result = super.hashCode();
+		return result;
+	}
+
+	public boolean equals(Object o) {
+		if (o == this)
+			return true;
+		// IDs created by JGroupsNamespace are mostly the same instance, and
+		// others mostly differ in hash
+		if (o instanceof JGroupsID && hashCode() != o.hashCode())
+			return false;
+		return super.equals(o);
+	}
+
+	/**
+	 * Replace a deserialized ID with the canonical one for its name, which
+	 * shares the address bound to it.
+	 */
+	protected Object readResolve() throws ObjectStreamException {
+		return JGroupsNamespace.intern(this);
 	}
 
 	public String toString() {
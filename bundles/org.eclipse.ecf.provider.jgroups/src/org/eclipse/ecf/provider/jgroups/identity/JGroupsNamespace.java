@@ -8,7 +8,12 @@
  ******************************************************************************/
 package org.eclipse.ecf.provider.jgroups.identity;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.identity.IDCreateException;
@@ -23,6 +28,22 @@ public class JGroupsNamespace extends Namespace {
 
 	public static JGroupsNamespace INSTANCE;
 
+	private static final String SCHEME_PREFIX = SCHEME + ":";
+
+	// Canonical IDs by channel name, held weakly so that IDs no longer used
+	// are collected
+	private static final ConcurrentMap<String, IDReference> canonicalIDs = new ConcurrentHashMap<String, IDReference>();
+	private static final ReferenceQueue<JGroupsID> collectedIDs = new ReferenceQueue<JGroupsID>();
+
+	private static class IDReference extends WeakReference<JGroupsID> {
+		final String channelName;
+
+		IDReference(JGroupsID id, String channelName) {
+			super(id, collectedIDs);
+			this.channelName = channelName;
+		}
+	}
+
 	public JGroupsNamespace() {
 		super(NAME, "JGroups namespace");
 		INSTANCE = this;
@@ -34,8 +55,62 @@ public class JGroupsNamespace extends Namespace {
 			throw new IDCreateException("scheme is not jgroups:");
 		else
 			uriScheme = getScheme();
-		URI idURI = URI.create(uriScheme + ":" + uri.getSchemeSpecificPart());
-		return new JGroupsID(this, idURI);
+		final String channelName = uri.getSchemeSpecificPart();
+		final JGroupsID canonical = getCanonicalID(channelName);
+		if (canonical != null)
+			return canonical;
+		URI idURI = URI.create(uriScheme + ":" + channelName);
+		return intern(new JGroupsID(this, idURI));
+	}
+
+	/**
+	 * @return the ID for a channel name, created only if there is no
+	 *         canonical one
+	 */
+	public JGroupsID createID(String channelName) throws IDCreateException {
+		final JGroupsID canonical = getCanonicalID(channelName);
+		if (canonical != null)
+			return canonical;
+		return (JGroupsID) createInstance(new Object[] { SCHEME_PREFIX + channelName });
+	}
+
+	private static JGroupsID getCanonicalID(String channelName) {
+		final IDReference ref = canonicalIDs.get(channelName);
+		return (ref == null) ? null : ref.get();
+	}
+
+	/**
+	 * @return the canonical ID equal to id, which is id if there was none
+	 */
+	public static JGroupsID intern(JGroupsID id) {
+		expungeCollectedIDs();
+		final String channelName = id.getChannelName();
+		IDReference ref = null;
+		while (true) {
+			final IDReference existing = canonicalIDs.get(channelName);
+			final JGroupsID canonical = (existing == null) ? null : existing.get();
+			if (canonical != null)
+				return canonical;
+			if (ref == null)
+				ref = new IDReference(id, channelName);
+			if ((existing == null) ? canonicalIDs.putIfAbsent(channelName, ref) == null
+					: canonicalIDs.replace(channelName, existing, ref))
+				return id;
+		}
+	}
+
+	private static void expungeCollectedIDs() {
+		Reference<? extends JGroupsID> ref;
+		while ((ref = collectedIDs.poll()) != null)
+			canonicalIDs.remove(((IDReference) ref).channelName, ref);
+	}
+
+	/**
+	 * @return number of canonical IDs held
+	 */
+	public static int getCanonicalIDCount() {
+		expungeCollectedIDs();
+		return canonicalIDs.size();
 	}
 
 	/*
@@ -50,8 +125,17 @@ public class JGroupsNamespace extends Namespace {
 			if (parameters != null && parameters.length > 0) {
 				if (parameters[0] instanceof URI)
 					return createID((URI) parameters[0]);
-				else if (parameters[0] instanceof String)
-					return createID(URI.create((String) parameters[0]));
+				else if (parameters[0] instanceof String) {
+					final String name = (String) parameters[0];
+					// the external form of an ID that exists already is not
+					// parsed again
+					if (name.startsWith(SCHEME_PREFIX) && name.indexOf('%') < 0 && name.indexOf('#') < 0) {
+						final JGroupsID canonical = getCanonicalID(name.substring(SCHEME_PREFIX.length()));
+						if (canonical != null)
+							return canonical;
+					}
+					return createID(URI.create(name));
+				}
 			}
 			throw new IDCreateException("JGroupsID cannot be created with given parameters");
 		} catch (final Exception e) {
@@ -0,0 +1,146 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.ConnectRequestMessage;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsClientConnection;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerConnection;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+public class AdmissionTest extends TestCase {
+
+	private static final int CLIENTS = 8;
+	private static final int TIMEOUT = 5000;
+
+	static class Admissions implements JGroupsManagerConnection.AdmissionHandler {
+		final List<ConnectRequestMessage> requests = new ArrayList<ConnectRequestMessage>();
+		final List<CompletableFuture<byte[]>> responses = new ArrayList<CompletableFuture<byte[]>>();
+
+		public synchronized CompletableFuture<byte[]> admit(ConnectRequestMessage request) {
+			final CompletableFuture<byte[]> response = new CompletableFuture<byte[]>();
+			requests.add(request);
+			responses.add(response);
+			notifyAll();
+			return response;
+		}
+
+		synchronized boolean waitForRequests(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (requests.size() < count && System.currentTimeMillis() < end)
+				wait(10);
+			return requests.size() >= count;
+		}
+
+		/**
+		 * Answer the requests of all but the given member.
+		 */
+		synchronized void answerExcept(JGroupsID excludedID, byte[] response) {
+			for (int i = 0; i < requests.size(); i++)
+				if (!requests.get(i).getFromID().equals(excludedID))
+					responses.get(i).complete(response);
+		}
+	}
+
+	private JGroupsID managerID;
+	private JGroupsManagerConnection manager;
+	private Admissions admissions;
+	private JGroupsClientConnection[] clients;
+	private byte[] response;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		managerID = TestJGroupsConnection.createID("admissionmanager");
+		manager = new JGroupsManagerConnection(new TestJGroupsConnection.Handler(managerID),
+				TestJGroupsConnection.createLoopbackChannel());
+		admissions = new Admissions();
+		manager.setAdmissionHandler(admissions);
+		manager.start();
+		response = new MessageCodec().serializeToBytes(
+				ContainerMessage.createViewChangeMessage(managerID, null, 0, new ID[] {managerID}, true, null));
+		clients = new JGroupsClientConnection[CLIENTS];
+		for (int i = 0; i < CLIENTS; i++) {
+			clients[i] = new JGroupsClientConnection(
+					new TestJGroupsConnection.Handler(TestJGroupsConnection.createID("admissionclient" + i)),
+					TestJGroupsConnection.createLoopbackChannel());
+			clients[i].start();
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i = 0; i < CLIENTS; i++)
+			clients[i].disconnect();
+		manager.disconnect();
+		super.tearDown();
+	}
+
+	private List<CompletableFuture<Object>> connectAll() {
+		final List<CompletableFuture<Object>> connects = new ArrayList<CompletableFuture<Object>>();
+		for (int i = 0; i < CLIENTS; i++)
+			connects.add(clients[i].connectAsync(managerID, "connect", TIMEOUT));
+		return connects;
+	}
+
+	public void testJoinsAnsweredTogether() throws Exception {
+		final List<CompletableFuture<Object>> connects = connectAll();
+		assertTrue(admissions.waitForRequests(CLIENTS));
+		// the receive path is not held while joins are pending
+		for (final CompletableFuture<Object> connect : connects)
+			assertFalse(connect.isDone());
+		admissions.answerExcept(null, response);
+		for (final CompletableFuture<Object> connect : connects)
+			assertTrue(connect.get(TIMEOUT, TimeUnit.MILLISECONDS) instanceof ContainerMessage);
+	}
+
+	public void testPendingJoinDoesNotHoldOthers() throws Exception {
+		final List<CompletableFuture<Object>> connects = connectAll();
+		assertTrue(admissions.waitForRequests(CLIENTS));
+		admissions.answerExcept(clients[0].getLocalID(), response);
+		for (int i = 1; i < CLIENTS; i++)
+			assertNotNull(connects.get(i).get(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertFalse(connects.get(0).isDone());
+	}
+
+	public void testRequesterAddressIsKnown() throws Exception {
+		connectAll();
+		assertTrue(admissions.waitForRequests(CLIENTS));
+		synchronized (admissions) {
+			for (final ConnectRequestMessage request : admissions.requests)
+				assertNotNull(manager.new Client(request.getFromID()).getAddress());
+		}
+		admissions.answerExcept(null, response);
+	}
+
+	public void testRefusedJoinTimesOut() throws Exception {
+		final CompletableFuture<Object> connect = clients[0].connectAsync(managerID, "connect", 500);
+		assertTrue(admissions.waitForRequests(1));
+		synchronized (admissions) {
+			admissions.responses.get(0).completeExceptionally(new IllegalStateException("refused"));
+		}
+		try {
+			connect.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			fail("refused join should fail");
+		} catch (final ExecutionException e) {
+			// expected
+		}
+	}
+}
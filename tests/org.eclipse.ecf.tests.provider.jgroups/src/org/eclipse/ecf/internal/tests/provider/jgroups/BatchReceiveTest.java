@@ -0,0 +1,109 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.comm.AsynchEvent;
+import org.eclipse.ecf.provider.jgroups.container.AsynchEventBatch;
+import org.eclipse.ecf.provider.jgroups.container.DispatchExecutor;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.util.Buffer;
+import org.jgroups.util.MessageBatch;
+
+public class BatchReceiveTest extends TestCase {
+
+	private static final int MESSAGES = 10;
+
+	private JGroupsID groupID;
+	private TestJGroupsConnection receiver;
+	private TestJGroupsConnection sender;
+	// a member the batch has a message for, that the receiver must drop
+	private TestJGroupsConnection other;
+	private final List<Message> captured = new ArrayList<Message>();
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		groupID = TestJGroupsConnection.createID("batchgroup");
+		receiver = new TestJGroupsConnection(TestJGroupsConnection.createID("batchreceiver"));
+		receiver.setup(groupID);
+		sender = new TestJGroupsConnection(TestJGroupsConnection.createID("batchsender"));
+		sender.setup(groupID);
+		other = new TestJGroupsConnection(TestJGroupsConnection.createID("someoneelse"));
+		other.setup(groupID);
+		assertTrue(sender.waitForMembers(3, 10000));
+		sender.setCapture(captured);
+	}
+
+	protected void tearDown() throws Exception {
+		other.disconnect();
+		sender.disconnect();
+		receiver.disconnect();
+		super.tearDown();
+	}
+
+	private MessageBatch createBatch() throws Exception {
+		for (int i = 0; i < MESSAGES; i++)
+			sender.sendAsynch(null, new byte[] {(byte) i});
+		// one addressed to another member, dropped on its header
+		sender.sendAsynch(other.getLocalID(), new byte[] {-1});
+		final Address src = captured.get(0).getSrc();
+		return new MessageBatch(null, src, null, true, captured);
+	}
+
+	private static void assertPayload(int expected, Object payload) {
+		final Buffer buffer = (Buffer) payload;
+		assertEquals(1, buffer.getLength());
+		assertEquals(expected, buffer.getBuf()[buffer.getOffset()]);
+	}
+
+	public void testBatchDeliveredAsOneEvent() throws Exception {
+		receiver.setBatchDelivery(true);
+		receiver.receive(createBatch());
+		final List<AsynchEvent> events = receiver.getEvents();
+		assertEquals(1, events.size());
+		final AsynchEventBatch batch = (AsynchEventBatch) events.get(0).getData();
+		assertEquals(MESSAGES, batch.size());
+		for (int i = 0; i < MESSAGES; i++)
+			assertPayload(i, batch.getPayloads().get(i));
+	}
+
+	public void testBatchDeliveredPerMessage() throws Exception {
+		receiver.receive(createBatch());
+		final List<AsynchEvent> events = receiver.getEvents();
+		assertEquals(MESSAGES, events.size());
+		for (int i = 0; i < MESSAGES; i++)
+			assertPayload(i, events.get(i).getData());
+	}
+
+	public void testHeaderlessMessageKeepsOrder() throws Exception {
+		receiver.setDispatchExecutor(new DispatchExecutor("BatchReceiveTest", 2));
+		for (int i = 0; i < MESSAGES; i++) {
+			// one in the middle as a java serialization member sends it
+			sender.setJavaSerialization(i == MESSAGES / 2);
+			sender.sendAsynch(null, new byte[] {(byte) i});
+		}
+		receiver.receive(new MessageBatch(null, captured.get(0).getSrc(), null, true, captured));
+		final long end = System.currentTimeMillis() + 5000;
+		while (receiver.getEvents().size() < MESSAGES && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		final List<AsynchEvent> events = receiver.getEvents();
+		assertEquals(MESSAGES, events.size());
+		for (int i = 0; i < MESSAGES; i++)
+			assertPayload(i, events.get(i).getData());
+	}
+}
@@ -0,0 +1,119 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.ChannelPool;
+import org.eclipse.ecf.provider.jgroups.container.ChannelPresets;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.JChannel;
+
+public class ChannelPoolTest extends TestCase {
+
+	private static final int MAX_IDLE = 2;
+	private static final long TIMEOUT = 5000;
+
+	static class LoopbackPool extends ChannelPool {
+		LoopbackPool(int maxIdle, long idleMillis) {
+			super(maxIdle, idleMillis);
+		}
+
+		protected JChannel createChannel(String config) throws Exception {
+			return TestJGroupsConnection.createLoopbackChannel();
+		}
+	}
+
+	private LoopbackPool pool;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		pool = new LoopbackPool(MAX_IDLE, 0);
+	}
+
+	protected void tearDown() throws Exception {
+		pool.close();
+		super.tearDown();
+	}
+
+	private TestJGroupsConnection join(String name, JGroupsID groupID) throws Exception {
+		final TestJGroupsConnection connection = new TestJGroupsConnection(TestJGroupsConnection.createID(name), null);
+		connection.setChannelPool(pool);
+		connection.setup(groupID);
+		return connection;
+	}
+
+	public void testChannelIsReused() throws Exception {
+		final JGroupsID groupID = TestJGroupsConnection.createID("poolgroup");
+		join("poolfirst", groupID).disconnect();
+		assertEquals(1, pool.getIdleCount());
+		final TestJGroupsConnection second = join("poolsecond", groupID);
+		final TestJGroupsConnection third = join("poolthird", groupID);
+		try {
+			assertEquals(1, pool.getHits());
+			assertEquals(2, pool.getMisses());
+			assertTrue(pool.getAverageBuildNanos() > 0);
+			// the reused channel carries its new user's name and receiver
+			assertTrue(second.waitForMembers(2, TIMEOUT));
+			third.sendAsynch(TestJGroupsConnection.createID("poolsecond"), new byte[] { 1 });
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (second.getEvents().isEmpty() && System.currentTimeMillis() < end)
+				Thread.sleep(10);
+			assertEquals(1, second.getEvents().size());
+		} finally {
+			second.disconnect();
+			third.disconnect();
+		}
+		assertEquals(MAX_IDLE, pool.getIdleCount());
+	}
+
+	public void testFullPoolClosesChannel() throws Exception {
+		final JChannel[] channels = new JChannel[MAX_IDLE + 1];
+		for (int i = 0; i < channels.length; i++)
+			channels[i] = pool.getChannel(null);
+		for (int i = 0; i < channels.length; i++)
+			pool.releaseChannel(null, channels[i]);
+		assertEquals(MAX_IDLE, pool.getIdleCount());
+		assertTrue(channels[MAX_IDLE].isClosed());
+	}
+
+	public void testIdleChannelsAreEvicted() throws Exception {
+		final LoopbackPool evicting = new LoopbackPool(MAX_IDLE, 50);
+		try {
+			evicting.prefill(null, MAX_IDLE);
+			assertEquals(MAX_IDLE, evicting.getIdleCount());
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (evicting.getIdleCount() > 0 && System.currentTimeMillis() < end)
+				Thread.sleep(10);
+			assertEquals(0, evicting.getIdleCount());
+			assertEquals(MAX_IDLE, evicting.getEvictions());
+		} finally {
+			evicting.close();
+		}
+	}
+
+	public void testOverridesArePooledApart() throws Exception {
+		final Map<String, ?> overrides = Collections.singletonMap(ChannelPresets.THREAD_POOL_MAX_THREADS_PROP, "7");
+		final JChannel overridden = pool.getChannel(null, overrides);
+		assertEquals(7, overridden.getProtocolStack().getTransport().getThreadPoolMaxThreads());
+		pool.releaseChannel(null, overrides, overridden);
+		// not handed to a container without the overrides
+		final JChannel plain = pool.getChannel(null);
+		assertNotSame(overridden, plain);
+		pool.releaseChannel(null, plain);
+		assertSame(overridden, pool.getChannel(null, overrides));
+		assertEquals(1, pool.getHits());
+	}
+}
@@ -0,0 +1,106 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.ChannelPresets;
+import org.jgroups.JChannel;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.TCP;
+import org.jgroups.protocols.TCPPING;
+import org.jgroups.protocols.TP;
+import org.jgroups.protocols.UDP;
+
+public class ChannelPresetsTest extends TestCase {
+
+	private static final long TIMEOUT = 5000;
+
+	public void testPresetsBuild() throws Exception {
+		final String[] presets = ChannelPresets.getPresets();
+		assertEquals(4, presets.length);
+		for (int i = 0; i < presets.length; i++) {
+			final JChannel channel = ChannelPresets.createChannel(presets[i]);
+			try {
+				assertNotNull(channel.getProtocolStack().getTransport());
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	public void testPresetTransports() throws Exception {
+		assertTransport(ChannelPresets.UDP_LOW_LATENCY, UDP.class);
+		assertTransport(ChannelPresets.TCP_HIGH_THROUGHPUT, TCP.class);
+		assertTransport(ChannelPresets.SHARED_LOOPBACK, SHARED_LOOPBACK.class);
+		assertTransport(ChannelPresets.TCP_LARGE_CLUSTER, TCP.class);
+	}
+
+	private void assertTransport(String preset, Class<? extends TP> transport) throws Exception {
+		final JChannel channel = ChannelPresets.createChannel(preset);
+		try {
+			assertEquals(transport, channel.getProtocolStack().getTransport().getClass());
+		} finally {
+			channel.close();
+		}
+	}
+
+	public void testConfigurationIsHonored() throws Exception {
+		// not a preset, so read by JGroups
+		final JChannel channel = ChannelPresets.createChannel("tcp.xml");
+		try {
+			assertEquals(TCP.class, channel.getProtocolStack().getTransport().getClass());
+		} finally {
+			channel.close();
+		}
+	}
+
+	public void testOverrides() throws Exception {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put(ChannelPresets.THREAD_POOL_MIN_THREADS_PROP, "3");
+		properties.put(ChannelPresets.THREAD_POOL_MAX_THREADS_PROP, Integer.valueOf(7));
+		properties.put(ChannelPresets.BUNDLER_TYPE_PROP, "sender-sends");
+		properties.put(ChannelPresets.BUNDLER_CAPACITY_PROP, "1234");
+		properties.put(ChannelPresets.INITIAL_HOSTS_PROP, "localhost[7900],localhost[7901]");
+		final JChannel channel = ChannelPresets.createChannel(ChannelPresets.TCP_LARGE_CLUSTER, properties);
+		try {
+			final TP transport = channel.getProtocolStack().getTransport();
+			assertEquals(3, transport.getThreadPoolMinThreads());
+			assertEquals(7, transport.getThreadPoolMaxThreads());
+			assertTrue(transport.getBundlerClass().contains("SenderSends"));
+			assertEquals(1234, transport.getBundlerCapacity());
+			final TCPPING tcpping = channel.getProtocolStack().findProtocol(TCPPING.class);
+			assertEquals(2, tcpping.getInitialHosts().size());
+		} finally {
+			channel.close();
+		}
+	}
+
+	public void testSharedLoopbackMembersMeet() throws Exception {
+		final JChannel first = ChannelPresets.createChannel(ChannelPresets.SHARED_LOOPBACK);
+		final JChannel second = ChannelPresets.createChannel(ChannelPresets.SHARED_LOOPBACK);
+		try {
+			first.connect("presetgroup");
+			second.connect("presetgroup");
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (first.getView().size() < 2 && System.currentTimeMillis() < end)
+				Thread.sleep(10);
+			assertEquals(2, first.getView().size());
+		} finally {
+			second.close();
+			first.close();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.comm.AsynchEvent;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.AsyncContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.OutboundCoalescer;
+import org.eclipse.ecf.provider.jgroups.container.OutboundQueue;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.util.Buffer;
+
+public class CoalescingTest extends TestCase {
+
+	private static final int MESSAGES = 1000;
+	private static final int PAYLOAD = 100;
+	private static final int MAX_FRAME_SIZE = 4096;
+	private static final long TIMEOUT = 10000;
+	// long enough that consecutive sends land in one frame on a busy machine
+	private static final int FLUSH_DELAY_MICROS = 50000;
+
+	private TestJGroupsConnection receiver;
+	private TestJGroupsConnection sender;
+	private OutboundCoalescer coalescer;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID groupID = TestJGroupsConnection.createID("coalescegroup");
+		receiver = new TestJGroupsConnection(TestJGroupsConnection.createID("coalescereceiver"));
+		receiver.setup(groupID);
+		sender = new TestJGroupsConnection(TestJGroupsConnection.createID("coalescesender"));
+		coalescer = new OutboundCoalescer(sender, MAX_FRAME_SIZE, FLUSH_DELAY_MICROS);
+		sender.setOutboundCoalescer(coalescer);
+		sender.setup(groupID);
+	}
+
+	protected void tearDown() throws Exception {
+		sender.disconnect();
+		receiver.disconnect();
+		super.tearDown();
+	}
+
+	private List<AsynchEvent> waitForEvents(int count) throws Exception {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		List<AsynchEvent> events = receiver.getEvents();
+		while (events.size() < count && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+			events = receiver.getEvents();
+		}
+		return events;
+	}
+
+	public void testFramesAreUnpackedInOrder() throws Exception {
+		for (int i = 0; i < MESSAGES; i++) {
+			final byte[] data = new byte[PAYLOAD];
+			data[0] = (byte) i;
+			sender.sendAsynch(null, data);
+		}
+		final List<AsynchEvent> events = waitForEvents(MESSAGES);
+		assertEquals(MESSAGES, events.size());
+		for (int i = 0; i < MESSAGES; i++) {
+			final Buffer buffer = (Buffer) events.get(i).getData();
+			assertEquals(PAYLOAD, buffer.getLength());
+			assertEquals((byte) i, buffer.getBuf()[buffer.getOffset()]);
+		}
+		assertEquals(MESSAGES, coalescer.getCoalesced());
+		assertTrue(coalescer.getFramesSent() < MESSAGES / 10);
+	}
+
+	public void testFlushedAfterDelay() throws Exception {
+		sender.sendAsynch(null, new byte[] {42});
+		sender.sendAsynch(null, (byte[]) null);
+		final List<AsynchEvent> events = waitForEvents(2);
+		assertEquals(2, events.size());
+		// counted once the send returns, which may be after delivery
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (coalescer.getFramesSent() == 0 && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(1, coalescer.getFramesSent());
+		assertEquals(42, ((Buffer) events.get(0).getData()).getBuf()[((Buffer) events.get(0).getData()).getOffset()]);
+		assertNull(events.get(1).getData());
+	}
+
+	public void testLargeMessageNotCoalesced() throws Exception {
+		sender.sendAsynch(null, new byte[] {1});
+		sender.sendAsynch(null, new byte[MAX_FRAME_SIZE]);
+		final List<AsynchEvent> events = waitForEvents(2);
+		assertEquals(2, events.size());
+		// the pending frame goes out first
+		assertEquals(1, ((Buffer) events.get(0).getData()).getLength());
+		assertEquals(MAX_FRAME_SIZE, ((Buffer) events.get(1).getData()).getLength());
+		assertEquals(1, coalescer.getCoalesced());
+	}
+
+	public void testTimedFlushDoesNotWaitForFullQueue() throws Exception {
+		final CountDownLatch gate = new CountDownLatch(1);
+		final TestJGroupsConnection blocked = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("coalesceblocked"));
+		try {
+			blocked.setOutboundCoalescer(new OutboundCoalescer(blocked, MAX_FRAME_SIZE, FLUSH_DELAY_MICROS));
+			blocked.setup(TestJGroupsConnection.createID("coalescegroup"));
+			final OutboundQueue queue = new OutboundQueue(blocked, 1, OutboundQueue.Policy.BLOCK, 0);
+			blocked.setOutboundQueue(queue);
+			blocked.setTransmitGate(gate);
+			// one frame held in the channel, as if out of credits, and one queued
+			blocked.sendAsynch(null, new byte[MAX_FRAME_SIZE]);
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (!queue.isSendBlocked() && System.currentTimeMillis() < end)
+				Thread.sleep(5);
+			assertTrue(queue.isSendBlocked());
+			blocked.sendAsynch(null, new byte[MAX_FRAME_SIZE]);
+			assertTrue(queue.isFull());
+			// its timed flush finds the queue full, and must not hold up ours
+			blocked.sendAsynch(null, new byte[2]);
+			sender.sendAsynch(null, new byte[] {7});
+			List<AsynchEvent> events = waitForEvents(1);
+			assertEquals(1, events.size());
+			assertEquals(7, ((Buffer) events.get(0).getData()).getBuf()[((Buffer) events.get(0).getData()).getOffset()]);
+			gate.countDown();
+			events = waitForEvents(4);
+			assertEquals(4, events.size());
+			assertEquals(2, ((Buffer) events.get(3).getData()).getLength());
+		} finally {
+			gate.countDown();
+			blocked.disconnect();
+		}
+	}
+
+	public void testFlushToDepartedTargetIsReset() throws Exception {
+		final CountDownLatch failures = new CountDownLatch(2);
+		final TestJGroupsConnection failing = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("coalescefailing")) {
+			protected void logException(String errorString, Throwable t) {
+				failures.countDown();
+			}
+		};
+		try {
+			final OutboundCoalescer c = new OutboundCoalescer(failing, MAX_FRAME_SIZE, FLUSH_DELAY_MICROS);
+			failing.setOutboundCoalescer(c);
+			failing.setup(TestJGroupsConnection.createID("coalescegroup"));
+			final JGroupsID departedID = TestJGroupsConnection.createID("coalescedeparted");
+			final AsyncContainerMessage message = new AsyncContainerMessage((JGroupsID) failing.getLocalID(),
+					departedID, ContainerMessage.createViewChangeMessage(failing.getLocalID(), departedID, 0, null,
+							true, null));
+			c.add(departedID, message);
+			// each add after a failed flush is flushed again
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (failures.getCount() == 2 && System.currentTimeMillis() < end)
+				Thread.sleep(5);
+			c.add(departedID, message);
+			assertTrue(failures.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			assertEquals(0, c.getFramesSent());
+		} finally {
+			failing.disconnect();
+		}
+	}
+}
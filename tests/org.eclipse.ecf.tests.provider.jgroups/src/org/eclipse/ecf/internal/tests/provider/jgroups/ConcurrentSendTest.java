@@ -0,0 +1,89 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+/**
+ * Sends on one connection from several threads at once.
+ */
+public class ConcurrentSendTest extends TestCase {
+
+	private static final int MESSAGES = 200000;
+	private static final int PAYLOAD = 256;
+
+	private TestJGroupsConnection connection;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID localID = TestJGroupsConnection.createID("sendbenchmark");
+		connection = new TestJGroupsConnection(localID);
+		connection.setup(localID);
+	}
+
+	protected void tearDown() throws Exception {
+		connection.disconnect();
+		super.tearDown();
+	}
+
+	private void send(int threads) throws Exception {
+		final int perThread = MESSAGES / threads;
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		final AtomicInteger sent = new AtomicInteger();
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		for (int t = 0; t < threads; t++) {
+			new Thread(new Runnable() {
+				public void run() {
+					final byte[] data = new byte[PAYLOAD];
+					try {
+						start.await();
+						for (int i = 0; i < perThread; i++) {
+							connection.sendAsynch(null, data);
+							sent.incrementAndGet();
+						}
+					} catch (final Exception e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}, "ConcurrentSendTest-" + t).start();
+		}
+		start.countDown();
+		done.await();
+		if (failure.get() != null)
+			throw failure.get();
+		assertEquals(perThread * threads, sent.get());
+	}
+
+	public void testConcurrentSendsSucceed() throws Exception {
+		send(Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	public void testSendAfterDisconnectFails() throws Exception {
+		connection.disconnect();
+		try {
+			connection.sendAsynch(null, new byte[PAYLOAD]);
+			fail("send after disconnect should fail");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+}
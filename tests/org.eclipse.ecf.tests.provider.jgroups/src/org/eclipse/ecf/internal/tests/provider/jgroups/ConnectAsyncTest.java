@@ -0,0 +1,118 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.ContainerConnectException;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.comm.SynchEvent;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsClientConnection;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerConnection;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+public class ConnectAsyncTest extends TestCase {
+
+	private static final int CLIENTS = 8;
+	private static final int TIMEOUT = 10000;
+
+	private JGroupsID managerID;
+	private JGroupsManagerConnection manager;
+	private JGroupsClientConnection[] clients;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		managerID = TestJGroupsConnection.createID("connectmanager");
+		final MessageCodec codec = new MessageCodec();
+		manager = new JGroupsManagerConnection(new TestJGroupsConnection.Handler(managerID) {
+			public Object handleSynchEvent(SynchEvent event) throws IOException {
+				final byte[] response = codec.serializeToBytes(
+						ContainerMessage.createViewChangeMessage(managerID, null, 0, new ID[] {managerID}, true, null));
+				return new Serializable[] {response, response};
+			}
+		}, TestJGroupsConnection.createLoopbackChannel());
+		manager.start();
+		clients = new JGroupsClientConnection[CLIENTS];
+		for (int i = 0; i < CLIENTS; i++) {
+			final JGroupsID clientID = TestJGroupsConnection.createID("connectclient" + i);
+			clients[i] = new JGroupsClientConnection(new TestJGroupsConnection.Handler(clientID),
+					TestJGroupsConnection.createLoopbackChannel());
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i = 0; i < CLIENTS; i++)
+			clients[i].disconnect();
+		manager.disconnect();
+		super.tearDown();
+	}
+
+	public void testConnectInParallel() throws Exception {
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[CLIENTS];
+		for (int i = 0; i < CLIENTS; i++)
+			futures[i] = clients[i].connectAsync(managerID, "connect", TIMEOUT);
+		CompletableFuture.allOf(futures).get();
+		for (int i = 0; i < CLIENTS; i++) {
+			assertTrue(futures[i].get() instanceof ContainerMessage);
+			assertTrue(clients[i].isConnected());
+		}
+	}
+
+	public void testConnectFailsAsynchronously() throws Exception {
+		final CompletableFuture<Object> future = clients[0].connectAsync(managerID, new Object(), TIMEOUT);
+		try {
+			future.get();
+			fail("connect with unserializable data should fail");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof ContainerConnectException);
+		}
+		assertFalse(clients[0].isConnected());
+	}
+
+	public void testSecondConnectFails() throws Exception {
+		clients[0].connectAsync(managerID, "connect", TIMEOUT).get();
+		try {
+			clients[0].connect(managerID, "connect", TIMEOUT);
+			fail("second connect should fail");
+		} catch (final ContainerConnectException e) {
+			// expected
+		}
+	}
+
+	public void testConnectJoinsOnCallingThread() throws Exception {
+		final AtomicReference<Thread> joiner = new AtomicReference<Thread>();
+		final JGroupsID clientID = TestJGroupsConnection.createID("connectcaller");
+		final JGroupsClientConnection client = new JGroupsClientConnection(
+				new TestJGroupsConnection.Handler(clientID), TestJGroupsConnection.createLoopbackChannel()) {
+			protected void setupJGroups(JGroupsID targetID) throws ECFException {
+				joiner.set(Thread.currentThread());
+				super.setupJGroups(targetID);
+			}
+		};
+		try {
+			assertTrue(client.connect(managerID, "connect", TIMEOUT) instanceof ContainerMessage);
+			// a blocking connect takes no other thread
+			assertSame(Thread.currentThread(), joiner.get());
+		} finally {
+			client.disconnect();
+		}
+	}
+}
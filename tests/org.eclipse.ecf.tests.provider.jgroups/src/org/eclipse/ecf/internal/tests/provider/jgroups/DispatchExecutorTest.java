@@ -0,0 +1,140 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.DispatchExecutor;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.util.UUID;
+
+public class DispatchExecutorTest extends TestCase {
+
+	private static final int SENDERS = 8;
+	private static final int MESSAGES = 1000;
+
+	private DispatchExecutor executor;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = new DispatchExecutor("DispatchExecutorTest", 4);
+	}
+
+	protected void tearDown() throws Exception {
+		executor.shutdown();
+		super.tearDown();
+	}
+
+	public void testPerSenderOrder() throws Exception {
+		final Address[] senders = new Address[SENDERS];
+		final List[] received = new List[SENDERS];
+		for (int s = 0; s < SENDERS; s++) {
+			senders[s] = UUID.randomUUID();
+			received[s] = new ArrayList();
+		}
+		final CountDownLatch done = new CountDownLatch(SENDERS * MESSAGES);
+		for (int i = 0; i < MESSAGES; i++)
+			for (int s = 0; s < SENDERS; s++) {
+				final List list = received[s];
+				final Integer value = Integer.valueOf(i);
+				assertTrue(executor.execute(senders[s], new Runnable() {
+					public void run() {
+						synchronized (list) {
+							list.add(value);
+						}
+						done.countDown();
+					}
+				}));
+			}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (int s = 0; s < SENDERS; s++)
+			synchronized (received[s]) {
+				for (int i = 0; i < MESSAGES; i++)
+					assertEquals(Integer.valueOf(i), received[s].get(i));
+			}
+		assertEquals(0, executor.getQueueDepth());
+		assertEquals(SENDERS * MESSAGES, executor.getDispatched());
+	}
+
+	public void testSlowSenderDoesNotBlockOthers() throws Exception {
+		final Address slow = UUID.randomUUID();
+		Address other = UUID.randomUUID();
+		final DispatchExecutor two = new DispatchExecutor("DispatchExecutorTest-two", 2);
+		try {
+			final Thread[] slowThread = new Thread[1];
+			final CountDownLatch blocked = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			two.execute(slow, new Runnable() {
+				public void run() {
+					slowThread[0] = Thread.currentThread();
+					blocked.countDown();
+					try {
+						release.await();
+					} catch (final InterruptedException e) {
+						// exit
+					}
+				}
+			});
+			assertTrue(blocked.await(10, TimeUnit.SECONDS));
+			final Thread[] otherThread = new Thread[1];
+			// try senders until one lands on the other stripe
+			for (int i = 0; i < 100; i++) {
+				final CountDownLatch ran = new CountDownLatch(1);
+				two.execute(other, new Runnable() {
+					public void run() {
+						otherThread[0] = Thread.currentThread();
+						ran.countDown();
+					}
+				});
+				if (ran.await(100, TimeUnit.MILLISECONDS))
+					break;
+				other = UUID.randomUUID();
+			}
+			assertNotNull(otherThread[0]);
+			assertNotSame(slowThread[0], otherThread[0]);
+			release.countDown();
+		} finally {
+			two.shutdown();
+		}
+	}
+
+	public void testDisconnectStopsReceivingFirst() throws Exception {
+		final JChannel channel = TestJGroupsConnection.createLoopbackChannel();
+		final TestJGroupsConnection connection = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("dispatchdisconnect"), channel);
+		connection.setDispatchExecutor(executor);
+		connection.setup(TestJGroupsConnection.createID("dispatchgroup"));
+		assertNotNull(channel.getReceiver());
+		connection.disconnect();
+		// so that no message is handed to the shut down executor
+		assertNull(channel.getReceiver());
+		assertFalse(executor.execute(UUID.randomUUID(), new Runnable() {
+			public void run() {
+			}
+		}));
+	}
+
+	public void testRejectedAfterShutdown() throws Exception {
+		executor.shutdown();
+		assertFalse(executor.execute(UUID.randomUUID(), new Runnable() {
+			public void run() {
+			}
+		}));
+		assertEquals(0, executor.getQueueDepth());
+	}
+}
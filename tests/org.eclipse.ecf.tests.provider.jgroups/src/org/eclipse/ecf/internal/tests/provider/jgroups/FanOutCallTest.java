@@ -0,0 +1,168 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.FanOutPolicy;
+import org.eclipse.ecf.provider.jgroups.container.FanOutResult;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerConnection;
+import org.eclipse.ecf.provider.jgroups.container.RemoteCall;
+import org.eclipse.ecf.provider.jgroups.container.RemoteCallRegistry;
+import org.eclipse.ecf.provider.jgroups.container.SharedChannelRegistry;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+public class FanOutCallTest extends TestCase {
+
+	private static final int MEMBERS = 4;
+	private static final long DEADLINE = 5000;
+
+	public static class Statistics {
+		private final String name;
+		private final boolean slow;
+
+		Statistics(String name, boolean slow) {
+			this.name = name;
+			this.slow = slow;
+		}
+
+		public Object getName() {
+			// a slow member never answers
+			return slow ? new CompletableFuture<String>() : name;
+		}
+	}
+
+	private TestJGroupsConnection caller;
+	private TestJGroupsConnection[] members;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID groupID = TestJGroupsConnection.createID("fanoutgroup");
+		caller = new TestJGroupsConnection(TestJGroupsConnection.createID("fanoutcaller"));
+		caller.setup(groupID);
+		members = new TestJGroupsConnection[MEMBERS];
+		for (int i = 0; i < MEMBERS; i++) {
+			members[i] = new TestJGroupsConnection(TestJGroupsConnection.createID("fanoutmember" + i));
+			members[i].setup(groupID);
+		}
+		assertTrue(caller.waitForMembers(MEMBERS + 1, DEADLINE));
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i = 0; i < MEMBERS; i++)
+			members[i].disconnect();
+		caller.disconnect();
+		super.tearDown();
+	}
+
+	private void register(int slowMembers) {
+		for (int i = 0; i < MEMBERS; i++) {
+			final RemoteCallRegistry registry = new RemoteCallRegistry();
+			registry.registerService("statistics", new Statistics("member" + i, i < slowMembers));
+			members[i].setRemoteCallRegistry(registry);
+		}
+	}
+
+	private FanOutResult call(FanOutPolicy policy, long deadline) throws Exception {
+		return caller.callFanOut(new RemoteCall("statistics", "getName", null), policy, deadline).get();
+	}
+
+	public void testAll() throws Exception {
+		register(0);
+		final FanOutResult result = call(FanOutPolicy.all(), DEADLINE);
+		assertEquals(MEMBERS, result.getExpected());
+		assertTrue(result.isSatisfied());
+		assertFalse(result.isTimedOut());
+		assertEquals(MEMBERS, result.getResults().size());
+		assertTrue(result.getResults().containsValue("member0"));
+	}
+
+	public void testFirst() throws Exception {
+		register(0);
+		final FanOutResult result = call(FanOutPolicy.first(1), DEADLINE);
+		assertTrue(result.isSatisfied());
+		assertTrue(result.getResults().size() >= 1);
+	}
+
+	public void testQuorumDoesNotWaitForSlowMember() throws Exception {
+		register(1);
+		final long start = System.currentTimeMillis();
+		final FanOutResult result = call(FanOutPolicy.quorum(), DEADLINE);
+		assertTrue(System.currentTimeMillis() - start < DEADLINE);
+		assertEquals(3, result.getRequired());
+		assertTrue(result.isSatisfied());
+		assertFalse(result.isTimedOut());
+	}
+
+	public void testDeadline() throws Exception {
+		register(1);
+		final FanOutResult result = call(FanOutPolicy.all(), 300);
+		assertTrue(result.isTimedOut());
+		assertFalse(result.isSatisfied());
+		assertEquals(MEMBERS - 1, result.getResults().size());
+	}
+
+	// a manager on a fork channel of the given registry
+	static class SharedManager extends JGroupsManagerConnection {
+		SharedManager(JGroupsID managerID, SharedChannelRegistry registry) throws Exception {
+			super(new TestJGroupsConnection.Handler(managerID), null, null, false);
+			setSharedChannelRegistry(registry);
+			setupJGroups(managerID);
+		}
+	}
+
+	public void testAllOnSharedChannelWaitsForGroupOnly() throws Exception {
+		final JGroupsID managerID = TestJGroupsConnection.createID("fanoutsharedmanager");
+		final SharedManager manager = new SharedManager(managerID, new SharedChannelTest.LoopbackRegistry());
+		final TestJGroupsConnection client = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("fanoutsharedclient"), null);
+		// in another group on the same main channels
+		final TestJGroupsConnection bystander = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("fanoutbystander"), null);
+		try {
+			manager.start();
+			client.setSharedChannelRegistry(new SharedChannelTest.LoopbackRegistry());
+			client.setup(managerID);
+			bystander.setSharedChannelRegistry(new SharedChannelTest.LoopbackRegistry());
+			bystander.setup(TestJGroupsConnection.createID("fanoutothergroup"));
+			assertTrue(bystander.waitForMembers(3, DEADLINE));
+			final RemoteCallRegistry registry = new RemoteCallRegistry();
+			registry.registerService("statistics", new Statistics("client", false));
+			client.setRemoteCallRegistry(registry);
+			manager.publishMembership(Collections.singletonList(client.getLocalID()),
+					Collections.<JGroupsID> emptyList());
+			final long start = System.currentTimeMillis();
+			final FanOutResult result = manager
+					.callFanOut(new RemoteCall("statistics", "getName", null), FanOutPolicy.all(), DEADLINE).get();
+			assertTrue(System.currentTimeMillis() - start < DEADLINE);
+			assertEquals(1, result.getExpected());
+			assertTrue(result.isSatisfied());
+			assertEquals("client", result.getResults().get(client.getLocalID()));
+		} finally {
+			bystander.disconnect();
+			client.disconnect();
+			manager.disconnect();
+		}
+	}
+
+	public void testMembersWithoutServiceFail() throws Exception {
+		final FanOutResult result = call(FanOutPolicy.all(), DEADLINE);
+		assertFalse(result.isSatisfied());
+		// completed as soon as the policy can't be satisfied
+		assertFalse(result.isTimedOut());
+		assertTrue(result.getFailures().size() >= 1);
+		assertEquals(0, result.getResults().size());
+	}
+}
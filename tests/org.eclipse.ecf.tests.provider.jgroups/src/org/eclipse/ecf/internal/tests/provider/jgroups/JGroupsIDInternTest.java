@@ -0,0 +1,80 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.net.URI;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
+
+public class JGroupsIDInternTest extends TestCase {
+
+	public void testEqualNamesShareInstance() throws Exception {
+		final JGroupsID id = TestJGroupsConnection.createID("interned");
+		assertSame(id, TestJGroupsConnection.createID("interned"));
+		assertSame(id, JGroupsNamespace.INSTANCE.createID("interned"));
+		assertSame(id, JGroupsNamespace.INSTANCE
+				.createInstance(new Object[] { URI.create(JGroupsNamespace.SCHEME + ":interned") }));
+		assertNotSame(id, TestJGroupsConnection.createID("notinterned"));
+	}
+
+	public void testConnectionsDoNotBindAddresses() throws Exception {
+		// ids are shared by every connection, so addresses are kept apart
+		final JGroupsID id = TestJGroupsConnection.createID("unbound");
+		final TestJGroupsConnection first = new TestJGroupsConnection(id);
+		final TestJGroupsConnection second = new TestJGroupsConnection(id);
+		try {
+			first.setup(TestJGroupsConnection.createID("unboundgroup1"));
+			second.setup(TestJGroupsConnection.createID("unboundgroup2"));
+			assertNull(id.getAddress());
+			assertNotNull(first.getLocalAddress());
+			assertFalse(first.getLocalAddress().equals(second.getLocalAddress()));
+		} finally {
+			first.disconnect();
+			second.disconnect();
+		}
+	}
+
+	public void testDeserializedIsCanonical() throws Exception {
+		final JGroupsID id = TestJGroupsConnection.createID("deserialized");
+		final byte[] bytes = new MessageCodec().serializeToBytes(id);
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		assertSame(id, in.readObject());
+	}
+
+	public void testUnequalIDs() throws Exception {
+		final JGroupsID id = TestJGroupsConnection.createID("first");
+		// not created through the namespace, so not canonical
+		final JGroupsID copy = new JGroupsID(JGroupsNamespace.INSTANCE, URI.create(JGroupsNamespace.SCHEME + ":first"));
+		assertNotSame(id, copy);
+		assertEquals(id, copy);
+		assertEquals(id.hashCode(), copy.hashCode());
+		assertFalse(id.equals(TestJGroupsConnection.createID("second")));
+	}
+
+	public void testUnusedIDsCollected() throws Exception {
+		final int held = JGroupsNamespace.getCanonicalIDCount();
+		for (int i = 0; i < 1000; i++)
+			TestJGroupsConnection.createID("collected" + i);
+		final long end = System.currentTimeMillis() + 5000;
+		while (JGroupsNamespace.getCanonicalIDCount() >= held + 1000 && System.currentTimeMillis() < end) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertTrue(JGroupsNamespace.getCanonicalIDCount() < held + 1000);
+	}
+}
@@ -0,0 +1,115 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Message;
+import org.jgroups.util.Buffer;
+
+public class LocalHandoffTest extends TestCase {
+
+	private static final int ROUND_TRIPS = 2000;
+	private static final long TIMEOUT = 5000;
+
+	private JGroupsID groupID;
+	private TestJGroupsConnection first;
+	private TestJGroupsConnection second;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		groupID = TestJGroupsConnection.createID("handoffgroup");
+		first = new TestJGroupsConnection(TestJGroupsConnection.createID("handofffirst"));
+		first.setLocalHandoff(true);
+		first.setup(groupID);
+		second = new TestJGroupsConnection(TestJGroupsConnection.createID("handoffsecond"));
+		second.setLocalHandoff(true);
+		second.setup(groupID);
+		assertTrue(first.waitForMembers(2, TIMEOUT));
+	}
+
+	protected void tearDown() throws Exception {
+		second.disconnect();
+		first.disconnect();
+		super.tearDown();
+	}
+
+	private boolean waitForEvents(TestJGroupsConnection connection, int events) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (connection.getEvents().size() < events && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		return connection.getEvents().size() == events;
+	}
+
+	public void testTargetedMessagesBypassChannel() throws Exception {
+		final List<Message> captured = new ArrayList<Message>();
+		first.setCapture(captured);
+		first.sendAsynch(second.getLocalID(), new byte[] {1, 2, 3});
+		assertEquals("response", new String(first.request(second.getLocalID(), "response".getBytes(), TIMEOUT)
+				.get().getData()));
+		assertTrue(waitForEvents(second, 1));
+		final Buffer buffer = (Buffer) second.getEvents().get(0).getData();
+		assertEquals(3, buffer.getLength());
+		assertEquals(2, first.getLocalHandoffCount());
+		assertEquals(1, second.getLocalHandoffCount());
+		assertTrue(captured.isEmpty());
+	}
+
+	public void testMulticastUsesChannel() throws Exception {
+		first.sendAsynch(null, new byte[] {1});
+		assertTrue(waitForEvents(second, 1));
+		assertEquals(0, first.getLocalHandoffCount());
+	}
+
+	public void testReceiverWithoutHandoff() throws Exception {
+		second.setLocalHandoff(false);
+		first.sendAsynch(second.getLocalID(), new byte[] {1});
+		assertTrue(waitForEvents(second, 1));
+		assertEquals(0, first.getLocalHandoffCount());
+	}
+
+	public void testNotHandedOffAfterDisconnect() throws Exception {
+		final JGroupsID secondID = second.getLocalID();
+		second.disconnect();
+		assertTrue(first.waitForMembers(1, TIMEOUT));
+		try {
+			first.sendAsynch(secondID, new byte[] {1});
+			fail("send to a member that left should fail");
+		} catch (final IOException e) {
+			// expected
+		}
+		assertEquals(0, first.getLocalHandoffCount());
+	}
+
+	public void testRoundTripsWithAndWithoutHandoff() throws Exception {
+		roundTrips();
+		assertEquals(ROUND_TRIPS, first.getLocalHandoffCount());
+		assertEquals(ROUND_TRIPS, second.getLocalHandoffCount());
+		first.setLocalHandoff(false);
+		second.setLocalHandoff(false);
+		roundTrips();
+		assertEquals(ROUND_TRIPS, first.getLocalHandoffCount());
+		assertEquals(ROUND_TRIPS, second.getLocalHandoffCount());
+		assertEquals(0, first.getPendingRequests());
+	}
+
+	private void roundTrips() throws Exception {
+		final byte[] data = new byte[64];
+		for (int i = 0; i < ROUND_TRIPS; i++)
+			assertEquals(data.length, first.request(second.getLocalID(), data, TIMEOUT).get().getLength());
+	}
+}
@@ -0,0 +1,233 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.comm.DisconnectEvent;
+import org.eclipse.ecf.provider.comm.SynchEvent;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsClientConnection;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerConnection;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+public class ManagerFailoverTest extends TestCase {
+
+	private static final int CLIENTS = 3;
+	private static final int TIMEOUT = 5000;
+
+	static class Recorder implements JGroupsClientConnection.FailoverListener {
+		final List<JGroupsID> managers = new ArrayList<JGroupsID>();
+		final List<JGroupsID> left = new ArrayList<JGroupsID>();
+
+		public synchronized void managerChanged(JGroupsID previousManagerID, JGroupsID newManagerID) {
+			managers.add(newManagerID);
+		}
+
+		public synchronized void membersLeft(List<JGroupsID> memberIDs) {
+			left.addAll(memberIDs);
+		}
+
+		synchronized JGroupsID getManager() {
+			return managers.isEmpty() ? null : managers.get(managers.size() - 1);
+		}
+
+		synchronized int getLeft() {
+			return left.size();
+		}
+	}
+
+	// a client that keeps the errors it logs
+	static class Client extends JGroupsClientConnection {
+		final List<String> errors = new ArrayList<String>();
+
+		Client(TestJGroupsConnection.Handler handler) throws Exception {
+			super(handler, TestJGroupsConnection.createLoopbackChannel());
+		}
+
+		protected void logException(String errorString, Throwable t) {
+			synchronized (errors) {
+				errors.add(errorString);
+			}
+		}
+
+		int getErrors() {
+			synchronized (errors) {
+				return errors.size();
+			}
+		}
+	}
+
+	private JGroupsID managerID;
+	private JGroupsManagerConnection manager;
+	private Client[] clients;
+	private Recorder[] recorders;
+	private final AtomicInteger disconnects = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		managerID = TestJGroupsConnection.createID("failovermanager");
+		final MessageCodec codec = new MessageCodec();
+		manager = new JGroupsManagerConnection(new TestJGroupsConnection.Handler(managerID) {
+			public Object handleSynchEvent(SynchEvent event) throws IOException {
+				final byte[] response = codec.serializeToBytes(
+						ContainerMessage.createViewChangeMessage(managerID, null, 0, new ID[] {managerID}, true, null));
+				return new Serializable[] {response, response};
+			}
+		}, TestJGroupsConnection.createLoopbackChannel());
+		manager.start();
+		clients = new Client[CLIENTS];
+		recorders = new Recorder[CLIENTS];
+		for (int i = 0; i < CLIENTS; i++) {
+			final JGroupsID clientID = TestJGroupsConnection.createID("failoverclient" + i);
+			clients[i] = new Client(new TestJGroupsConnection.Handler(clientID) {
+				public void handleDisconnectEvent(DisconnectEvent event) {
+					disconnects.incrementAndGet();
+				}
+			});
+			clients[i].setManagerFailover(true);
+			recorders[i] = new Recorder();
+			clients[i].setFailoverListener(recorders[i]);
+			clients[i].start();
+			// in order, so the first client is the oldest member after the manager
+			clients[i].connect(managerID, "connect", TIMEOUT);
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i = 0; i < CLIENTS; i++)
+			if (clients[i] != null)
+				clients[i].disconnect();
+		if (manager != null)
+			manager.disconnect();
+		super.tearDown();
+	}
+
+	private boolean waitForManager(int client) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (recorders[client].getManager() == null && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		return recorders[client].getManager() != null;
+	}
+
+	public void testCoordinatorTakesOver() throws Exception {
+		manager.disconnect();
+		manager = null;
+		final JGroupsID elected = clients[0].getLocalID();
+		for (int i = 0; i < CLIENTS; i++) {
+			assertTrue(waitForManager(i));
+			assertEquals(elected, recorders[i].getManager());
+			assertTrue(clients[i].isConnected());
+		}
+		assertTrue(clients[0].isActingManager());
+		assertFalse(clients[1].isActingManager());
+		assertEquals(0, disconnects.get());
+	}
+
+	public void testActingManagerSeesDepartures() throws Exception {
+		manager.disconnect();
+		manager = null;
+		assertTrue(waitForManager(0));
+		clients[2].disconnect();
+		clients[2] = null;
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (recorders[0].getLeft() == 0 && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(1, recorders[0].getLeft());
+		assertEquals(0, recorders[1].getLeft());
+	}
+
+	private void replicateMembership(int... members) throws Exception {
+		final List<JGroupsID> ids = new ArrayList<JGroupsID>();
+		for (final int i : members)
+			ids.add(clients[i].getLocalID());
+		manager.publishMembership(ids, Collections.<JGroupsID> emptyList());
+		// what the connect responses carry from a manager container
+		final byte[] snapshot = manager.getMembershipLog().snapshot();
+		for (int i = 0; i < CLIENTS; i++)
+			clients[i].applySnapshot(snapshot);
+	}
+
+	private boolean waitForDisconnects() throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (disconnects.get() < CLIENTS && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		return disconnects.get() == CLIENTS;
+	}
+
+	public void testCoordinatorInMembershipTakesOver() throws Exception {
+		replicateMembership(0, 1, 2);
+		manager.disconnect();
+		manager = null;
+		for (int i = 0; i < CLIENTS; i++) {
+			assertTrue(waitForManager(i));
+			assertEquals(clients[0].getLocalID(), recorders[i].getManager());
+		}
+		assertEquals(0, disconnects.get());
+	}
+
+	public void testCoordinatorOutsideMembershipDoesNotTakeOver() throws Exception {
+		// as on a shared channel, where the coordinator is of another group
+		replicateMembership(1, 2);
+		manager.disconnect();
+		manager = null;
+		assertTrue(waitForDisconnects());
+		for (int i = 0; i < CLIENTS; i++) {
+			assertNull(recorders[i].getManager());
+			assertFalse(clients[i].isActingManager());
+			assertEquals(1, clients[i].getErrors());
+		}
+	}
+
+	public void testJoinAfterFailoverFails() throws Exception {
+		manager.disconnect();
+		manager = null;
+		assertTrue(waitForManager(0));
+		final JGroupsClientConnection joiner = new JGroupsClientConnection(
+				new TestJGroupsConnection.Handler(TestJGroupsConnection.createID("failoverjoiner")),
+				TestJGroupsConnection.createLoopbackChannel());
+		final long start = System.currentTimeMillis();
+		try {
+			// the acting manager does not take over the manager's id
+			joiner.connect(managerID, "connect", TIMEOUT);
+			fail("join should fail without the manager");
+		} catch (final ECFException e) {
+			// expected
+		} finally {
+			joiner.disconnect();
+		}
+		assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+		assertEquals(0, clients[0].getErrors());
+	}
+
+	public void testWithoutFailoverClientsDisconnect() throws Exception {
+		for (int i = 0; i < CLIENTS; i++)
+			clients[i].setManagerFailover(false);
+		manager.disconnect();
+		manager = null;
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (disconnects.get() < CLIENTS && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(CLIENTS, disconnects.get());
+		assertNull(recorders[0].getManager());
+	}
+}
@@ -0,0 +1,105 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.MemberIndex;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.View;
+import org.jgroups.util.NameCache;
+import org.jgroups.util.UUID;
+
+public class MemberIndexTest extends TestCase {
+
+	private static final long TIMEOUT = 5000;
+
+	private Address a;
+	private Address b;
+	private Address c;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		a = UUID.randomUUID();
+		b = UUID.randomUUID();
+		c = UUID.randomUUID();
+		NameCache.add(a, "jgroups:indexa");
+		NameCache.add(b, "jgroups:indexb");
+	}
+
+	protected void tearDown() throws Exception {
+		NameCache.removeAll(Arrays.asList(a, b, c));
+		super.tearDown();
+	}
+
+	private static View view(long id, Address... members) {
+		return View.create(members[0], id, members);
+	}
+
+	public void testViewChanges() throws Exception {
+		final MemberIndex index = new MemberIndex();
+		index.viewAccepted(view(1, a, b));
+		assertEquals(a, index.get("jgroups:indexa"));
+		assertEquals(b, index.get("jgroups:indexb"));
+		index.viewAccepted(view(2, b, c));
+		assertNull(index.get("jgroups:indexa"));
+		assertEquals(b, index.get("jgroups:indexb"));
+		// c has no logical name
+		assertEquals(1, index.size());
+	}
+
+	public void testAddedFromMessages() throws Exception {
+		final MemberIndex index = new MemberIndex();
+		index.viewAccepted(view(1, a, c));
+		index.add("jgroups:indexc", c);
+		assertEquals(c, index.get("jgroups:indexc"));
+		// not in the view
+		index.add("jgroups:indexb", b);
+		assertNull(index.get("jgroups:indexb"));
+		index.viewAccepted(view(2, a));
+		assertNull(index.get("jgroups:indexc"));
+	}
+
+	public void testTargetedSendIsUnicast() throws Exception {
+		final JGroupsID groupID = TestJGroupsConnection.createID("indexgroup");
+		final TestJGroupsConnection first = new TestJGroupsConnection(TestJGroupsConnection.createID("indexfirst"));
+		final TestJGroupsConnection second = new TestJGroupsConnection(TestJGroupsConnection.createID("indexsecond"));
+		try {
+			first.setup(groupID);
+			second.setup(groupID);
+			assertTrue(first.waitForMembers(2, TIMEOUT));
+			final List<Message> captured = new ArrayList<Message>();
+			first.setCapture(captured);
+			// as received from another member, without an address
+			first.sendAsynch(TestJGroupsConnection.createID("indexsecond"), new byte[] {1});
+			assertEquals(1, captured.size());
+			assertEquals(second.getLocalAddress(), captured.get(0).getDest());
+			try {
+				first.sendAsynch(TestJGroupsConnection.createID("indexnone"), new byte[] {1});
+				fail("send to a non-member should fail");
+			} catch (final IOException e) {
+				// expected
+			}
+			assertEquals(1, captured.size());
+		} finally {
+			second.disconnect();
+			first.disconnect();
+		}
+	}
+}
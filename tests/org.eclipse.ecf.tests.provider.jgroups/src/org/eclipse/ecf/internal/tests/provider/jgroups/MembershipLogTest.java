@@ -0,0 +1,370 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.ConnectRequestMessage;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsClientConnection;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerConnection;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsMessageHeader;
+import org.eclipse.ecf.provider.jgroups.container.MembershipLog;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.container.SyncMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Message;
+import org.jgroups.util.Buffer;
+import org.jgroups.util.UUID;
+
+public class MembershipLogTest extends TestCase {
+
+	private static final int MEMBERS = 1000;
+	private static final long TIMEOUT = 5000;
+
+	private static final List<JGroupsID> NONE = Collections.<JGroupsID> emptyList();
+
+	static class Changes implements JGroupsClientConnection.MembershipListener {
+		final List<JGroupsID> members = new ArrayList<JGroupsID>();
+
+		public synchronized void membershipChanged(List<JGroupsID> joined, List<JGroupsID> left) {
+			members.addAll(joined);
+			members.removeAll(left);
+			notifyAll();
+		}
+
+		synchronized boolean waitFor(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (members.size() != count && System.currentTimeMillis() < end)
+				wait(10);
+			return members.size() == count;
+		}
+	}
+
+	private static List<JGroupsID> createIDs(String prefix, int count) throws Exception {
+		final List<JGroupsID> result = new ArrayList<JGroupsID>(count);
+		for (int i = 0; i < count; i++)
+			result.add(TestJGroupsConnection.createID(prefix + i));
+		return result;
+	}
+
+	private static MembershipLog.Update apply(MembershipLog replica, byte[] encoded) throws Exception {
+		return replica.apply(encoded, 0, encoded.length);
+	}
+
+	public void testDeltasReplicate() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final MembershipLog replica = new MembershipLog();
+		final List<JGroupsID> ids = createIDs("member", 3);
+		MembershipLog.Update update = apply(replica, log.record(ids, NONE));
+		assertEquals(1, update.getEpoch());
+		assertEquals(ids, update.getJoined());
+		update = apply(replica, log.record(NONE, Arrays.asList(ids.get(1))));
+		assertEquals(2, update.getEpoch());
+		assertEquals(Arrays.asList(ids.get(1)), update.getLeft());
+		assertEquals(log.getMembers(), replica.getMembers());
+		assertFalse(replica.hasGap());
+	}
+
+	public void testUnchangedRecordsNothing() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final List<JGroupsID> ids = createIDs("member", 2);
+		assertNotNull(log.record(ids, NONE));
+		assertNull(log.record(ids, NONE));
+		assertNull(log.record(NONE, createIDs("stranger", 1)));
+		assertEquals(1, log.getEpoch());
+	}
+
+	public void testDeparturesAreIndices() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final List<JGroupsID> ids = createIDs("averylongmembername", 100);
+		log.record(ids, NONE);
+		// a kind byte, the epoch, two counts and a byte per member
+		final byte[] delta = log.record(NONE, ids);
+		assertEquals(4 + ids.size(), delta.length);
+	}
+
+	public void testSnapshotIsSmallerThanSerializedIDs() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final List<JGroupsID> ids = createIDs("member", MEMBERS);
+		log.record(ids, NONE);
+		final byte[] snapshot = log.snapshot();
+		// what a view change message carries
+		final byte[] serialized = new MessageCodec().serializeToBytes(ids.toArray(new ID[ids.size()]));
+		assertTrue(snapshot.length * 2 < serialized.length);
+	}
+
+	public void testIndicesAreNotReused() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final MembershipLog replica = new MembershipLog();
+		final List<JGroupsID> first = createIDs("first", 10);
+		final List<JGroupsID> second = createIDs("second", 10);
+		apply(replica, log.record(first, NONE));
+		apply(replica, log.record(NONE, first));
+		apply(replica, log.record(second, NONE));
+		apply(replica, log.record(first.subList(0, 5), second.subList(0, 5)));
+		assertEquals(log.getMembers(), replica.getMembers());
+		assertEquals(10, replica.size());
+		assertEquals(15, log.indexOf(second.get(5)));
+		// members that come back have new indices
+		assertEquals(20, log.indexOf(first.get(0)));
+		assertEquals(-1, log.indexOf(second.get(0)));
+		assertNull(log.get(0));
+		// and so do replicas, including those that start from a snapshot
+		final byte[] snapshot = log.snapshot();
+		final MembershipLog copy = new MembershipLog();
+		apply(copy, snapshot);
+		assertEquals(log.getMembers(), copy.getMembers());
+		for (final JGroupsID memberID : log.getMembers()) {
+			assertEquals(log.indexOf(memberID), replica.indexOf(memberID));
+			assertEquals(log.indexOf(memberID), copy.indexOf(memberID));
+			assertSame(memberID, copy.get(copy.indexOf(memberID)));
+		}
+	}
+
+	public void testGapNeedsSnapshot() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final MembershipLog replica = new MembershipLog();
+		final List<JGroupsID> ids = createIDs("member", 4);
+		apply(replica, log.record(ids.subList(0, 1), NONE));
+		final byte[] lost = log.record(ids.subList(1, 2), NONE);
+		assertNull(apply(replica, log.record(ids.subList(2, 3), NONE)));
+		assertTrue(replica.hasGap());
+		assertEquals(1, replica.getEpoch());
+		final MembershipLog.Update update = apply(replica, log.snapshot());
+		assertEquals(ids.subList(1, 3), update.getJoined());
+		assertTrue(update.getLeft().isEmpty());
+		assertFalse(replica.hasGap());
+		// stale deltas are ignored, and later ones apply
+		assertNull(apply(replica, lost));
+		assertNotNull(apply(replica, log.record(ids.subList(3, 4), NONE)));
+		assertEquals(log.getMembers(), replica.getMembers());
+	}
+
+	public void testSnapshotReportsLeft() throws Exception {
+		final MembershipLog log = new MembershipLog();
+		final MembershipLog replica = new MembershipLog();
+		final List<JGroupsID> ids = createIDs("member", 3);
+		apply(replica, log.record(ids, NONE));
+		log.record(ids.subList(0, 1), NONE);
+		log.record(NONE, ids.subList(0, 2));
+		final MembershipLog.Update update = apply(replica, log.snapshot());
+		assertTrue(update.getJoined().isEmpty());
+		assertEquals(ids.subList(0, 2), update.getLeft());
+		assertEquals(ids.subList(2, 3), replica.getMembers());
+	}
+
+	public void testUnicastsUseIndices() throws Exception {
+		final JGroupsID managerID = TestJGroupsConnection.createID("indexmanager");
+		final JGroupsID clientID = TestJGroupsConnection.createID("indexclient");
+		final TestJGroupsConnection.Handler managerEvents = new TestJGroupsConnection.Handler(managerID);
+		final TestJGroupsConnection.Handler clientEvents = new TestJGroupsConnection.Handler(clientID);
+		final JGroupsManagerConnection manager = new JGroupsManagerConnection(managerEvents,
+				TestJGroupsConnection.createLoopbackChannel());
+		final JGroupsClientConnection client = new JGroupsClientConnection(clientEvents,
+				TestJGroupsConnection.createLoopbackChannel());
+		try {
+			final byte[] response = new MessageCodec().serializeToBytes(
+					ContainerMessage.createViewChangeMessage(managerID, null, 0, new ID[] { managerID }, true, null));
+			manager.setAdmissionHandler(new JGroupsManagerConnection.AdmissionHandler() {
+				public CompletableFuture<byte[]> admit(ConnectRequestMessage request) {
+					return CompletableFuture.completedFuture(response);
+				}
+			});
+			manager.start();
+			client.connectAsync(managerID, "connect", (int) TIMEOUT).get(TIMEOUT, TimeUnit.MILLISECONDS);
+			// what the connect response carries from a manager container
+			manager.publishMembership(createIDs("indexmember", 3), NONE);
+			manager.publishMembership(Arrays.asList(clientID), NONE);
+			client.applySnapshot(manager.getMembershipLog().snapshot());
+			client.start();
+			final JGroupsMessageHeader header = MessageCodec.getHeader(client.getMessageCodec()
+					.encode(UUID.randomUUID(), new SyncMessage(clientID, managerID, null)));
+			assertEquals(4, header.getFromIndex());
+			assertEquals(0, header.getTargetIndex());
+			client.sendAsynch(managerID, new byte[] { 1 });
+			manager.sendAsynch(clientID, new byte[] { 2 });
+			assertTrue(waitForEvent(managerEvents));
+			assertTrue(waitForEvent(clientEvents));
+		} finally {
+			client.disconnect();
+			manager.disconnect();
+		}
+	}
+
+	public void testLegacyClientGetsViewChanges() throws Exception {
+		final JGroupsID managerID = TestJGroupsConnection.createID("mixedmanager");
+		final JGroupsID clientID = TestJGroupsConnection.createID("mixedclient");
+		final JGroupsID legacyID = TestJGroupsConnection.createID("mixedlegacy");
+		final JGroupsManagerConnection manager = new JGroupsManagerConnection(
+				new TestJGroupsConnection.Handler(managerID), TestJGroupsConnection.createLoopbackChannel());
+		final JGroupsClientConnection client = new JGroupsClientConnection(
+				new TestJGroupsConnection.Handler(clientID), TestJGroupsConnection.createLoopbackChannel());
+		final TestJGroupsConnection.Handler legacyEvents = new TestJGroupsConnection.Handler(legacyID);
+		// sends java serialized messages, as members before the binary format
+		final JGroupsClientConnection legacy = new JGroupsClientConnection(legacyEvents,
+				TestJGroupsConnection.createLoopbackChannel()) {
+			{
+				setJavaSerialization(true);
+			}
+		};
+		try {
+			final byte[] response = new MessageCodec().serializeToBytes(
+					ContainerMessage.createViewChangeMessage(managerID, null, 0, new ID[] { managerID }, true, null));
+			manager.setAdmissionHandler(new JGroupsManagerConnection.AdmissionHandler() {
+				public CompletableFuture<byte[]> admit(ConnectRequestMessage request) {
+					return CompletableFuture.completedFuture(response);
+				}
+			});
+			manager.start();
+			client.connectAsync(managerID, "connect", (int) TIMEOUT).get(TIMEOUT, TimeUnit.MILLISECONDS);
+			legacy.connectAsync(managerID, "connect", (int) TIMEOUT).get(TIMEOUT, TimeUnit.MILLISECONDS);
+			final Changes changes = new Changes();
+			client.setMembershipListener(changes);
+			client.start();
+			final Changes legacyChanges = new Changes();
+			legacy.setMembershipListener(legacyChanges);
+			legacy.start();
+			manager.publishMembership(Arrays.asList(clientID, legacyID), NONE);
+			assertTrue(changes.waitFor(2));
+			assertTrue(legacyChanges.waitFor(2));
+			// what the connect response carries from a manager container
+			client.applySnapshot(manager.getMembershipLog().snapshot());
+			assertFalse(manager.isLegacyMember(clientID));
+			assertTrue(manager.isLegacyMember(legacyID));
+			// the clients of a manager container
+			manager.new Client(clientID);
+			manager.new Client(legacyID);
+			manager.publishMembership(createIDs("mixedmember", 2), NONE);
+			assertTrue(changes.waitFor(4));
+			assertTrue(waitForEvent(legacyEvents));
+			final Buffer buffer;
+			synchronized (legacyEvents.events) {
+				assertEquals(1, legacyEvents.events.size());
+				buffer = (Buffer) legacyEvents.events.get(0).getData();
+			}
+			final ObjectInputStream in = new ObjectInputStream(
+					new ByteArrayInputStream(buffer.getBuf(), buffer.getOffset(), buffer.getLength()));
+			assertTrue(in.readObject() instanceof ContainerMessage);
+			assertEquals(1, legacy.getMembershipLog().getEpoch());
+		} finally {
+			legacy.disconnect();
+			client.disconnect();
+			manager.disconnect();
+		}
+	}
+
+	private static boolean waitForEvent(TestJGroupsConnection.Handler handler) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < end) {
+			synchronized (handler.events) {
+				if (!handler.events.isEmpty())
+					return true;
+			}
+			Thread.sleep(10);
+		}
+		return false;
+	}
+
+	// a manager whose sends wait for the gate, as if out of flow control credits
+	static class GatedManager extends JGroupsManagerConnection {
+		final CountDownLatch gate = new CountDownLatch(1);
+		final CountDownLatch sending = new CountDownLatch(1);
+
+		GatedManager(JGroupsID managerID) throws Exception {
+			super(new TestJGroupsConnection.Handler(managerID), TestJGroupsConnection.createLoopbackChannel());
+		}
+
+		protected void transmit(Message msg) throws IOException {
+			sending.countDown();
+			try {
+				gate.await();
+			} catch (final InterruptedException e) {
+				throw new IOException("interrupted");
+			}
+			super.transmit(msg);
+		}
+	}
+
+	public void testBlockedSendDoesNotHoldLog() throws Exception {
+		final GatedManager manager = new GatedManager(TestJGroupsConnection.createID("gatedmanager"));
+		try {
+			final List<JGroupsID> ids = createIDs("gatedmember", 2);
+			final CompletableFuture<byte[]> snapshot = CompletableFuture.supplyAsync(() -> {
+				try {
+					manager.publishMembership(ids.subList(0, 1), NONE);
+					// the first delta is stuck in the channel
+					manager.sending.await();
+					manager.publishMembership(ids.subList(1, 2), NONE);
+					return manager.getMembershipLog().snapshot();
+				} catch (final Exception e) {
+					throw new CompletionException(e);
+				}
+			});
+			assertNotNull(snapshot.get(TIMEOUT, TimeUnit.MILLISECONDS));
+			assertEquals(2, manager.getMembershipLog().getEpoch());
+		} finally {
+			manager.gate.countDown();
+			manager.disconnect();
+		}
+	}
+
+	public void testClientReplicatesAndRecovers() throws Exception {
+		final JGroupsID managerID = TestJGroupsConnection.createID("membershipmanager");
+		final JGroupsManagerConnection manager = new JGroupsManagerConnection(
+				new TestJGroupsConnection.Handler(managerID), TestJGroupsConnection.createLoopbackChannel());
+		final JGroupsClientConnection client = new JGroupsClientConnection(
+				new TestJGroupsConnection.Handler(TestJGroupsConnection.createID("membershipclient")),
+				TestJGroupsConnection.createLoopbackChannel());
+		try {
+			final byte[] response = new MessageCodec().serializeToBytes(
+					ContainerMessage.createViewChangeMessage(managerID, null, 0, new ID[] { managerID }, true, null));
+			manager.setAdmissionHandler(new JGroupsManagerConnection.AdmissionHandler() {
+				public CompletableFuture<byte[]> admit(ConnectRequestMessage request) {
+					return CompletableFuture.completedFuture(response);
+				}
+			});
+			manager.start();
+			client.connectAsync(managerID, "connect", (int) TIMEOUT).get(TIMEOUT, TimeUnit.MILLISECONDS);
+			final Changes changes = new Changes();
+			client.setMembershipListener(changes);
+			client.start();
+			final List<JGroupsID> ids = createIDs("member", 5);
+			manager.publishMembership(ids.subList(0, 2), NONE);
+			assertTrue(changes.waitFor(2));
+			assertEquals(0, client.getSnapshotRequestCount());
+			// a delta that never goes out leaves a gap at the next one
+			manager.getMembershipLog().record(ids.subList(2, 4), NONE);
+			manager.publishMembership(ids.subList(4, 5), ids.subList(0, 1));
+			assertTrue(changes.waitFor(4));
+			assertEquals(1, client.getSnapshotRequestCount());
+			assertEquals(manager.getMembershipLog().getMembers(), client.getMembershipLog().getMembers());
+			assertFalse(client.getMembershipLog().hasGap());
+		} finally {
+			client.disconnect();
+			manager.disconnect();
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.provider.jgroups.container.AbstractMessage;
+import org.eclipse.ecf.provider.jgroups.container.ConnectRequestMessage;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsMessageHeader;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.container.SyncMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
+import org.jgroups.Message;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.ByteArrayDataOutputStream;
+import org.jgroups.util.UUID;
+
+public class MessageCodecTest extends TestCase {
+
+	private static final int ITERATIONS = 10000;
+
+	private MessageCodec codec;
+	private JGroupsID fromID;
+	private JGroupsID targetID;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		JGroupsMessageHeader.register();
+		codec = new MessageCodec();
+		fromID = (JGroupsID) IDFactory.getDefault().createID(JGroupsNamespace.NAME, "jgroups:client1");
+		targetID = (JGroupsID) IDFactory.getDefault().createID(JGroupsNamespace.NAME, JGroups.TARGET_NAME);
+	}
+
+	// Send the message through its wire representation, headers included
+	private Message wire(Message message) throws Exception {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream((int) message.size());
+		message.writeTo(out);
+		final Message result = new Message();
+		result.readFrom(new ByteArrayDataInputStream(out.buffer(), 0, out.position()));
+		return result;
+	}
+
+	private void assertMessageEquals(AbstractMessage expected, AbstractMessage actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getFromID(), actual.getFromID());
+		assertEquals(expected.getTargetID(), actual.getTargetID());
+		assertTrue(Arrays.equals(expected.getData(), actual.getData()));
+	}
+
+	private int wireSize(Message message) {
+		return (int) message.size();
+	}
+
+	public void testHeaderRouting() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, targetID, new byte[] { 1 });
+		final JGroupsMessageHeader header = MessageCodec.getHeader(wire(codec.encode(null, message)));
+		assertNotNull(header);
+		assertEquals(MessageCodec.VERSION, header.getVersion());
+		assertEquals(fromID.getChannelName(), header.getFromName());
+		assertEquals(targetID.getChannelName(), header.getTargetName());
+	}
+
+	// Indices for the IDs of this test, as a connection would agree them
+	private MessageCodec.IDDictionary createDictionary() {
+		return new MessageCodec.IDDictionary() {
+			public int indexOf(JGroupsID id, JGroupsID target) {
+				return id.equals(fromID) ? 0 : id.equals(targetID) ? 1 : -1;
+			}
+
+			public JGroupsID get(int index) {
+				return (index == 0) ? fromID : (index == 1) ? targetID : null;
+			}
+		};
+	}
+
+	public void testDictionaryRoundTrip() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, targetID, new byte[] { 1, 2, 3 });
+		final int namedLength = wireSize(codec.encode(UUID.randomUUID(), message));
+		codec.setIDDictionary(createDictionary());
+		final Message msg = wire(codec.encode(UUID.randomUUID(), message));
+		final JGroupsMessageHeader header = MessageCodec.getHeader(msg);
+		assertEquals(0, header.getFromIndex());
+		assertEquals(1, header.getTargetIndex());
+		assertNull(header.getFromName());
+		assertNull(header.getTargetName());
+		assertTrue(wireSize(msg) < namedLength);
+		final AbstractMessage decoded = codec.decode(msg);
+		assertMessageEquals(message, decoded);
+		assertSame(fromID, decoded.getFromID());
+	}
+
+	public void testDictionaryNotUsedToConnect() throws Exception {
+		codec.setIDDictionary(createDictionary());
+		final SyncMessage request = new ConnectRequestMessage(fromID, targetID, new byte[] { 1 });
+		final JGroupsMessageHeader header = MessageCodec.getHeader(wire(codec.encode(null, request)));
+		assertEquals(-1, header.getFromIndex());
+		assertEquals(fromID.getChannelName(), header.getFromName());
+		// nor for the group, which has not agreed it
+		final JGroupsMessageHeader multicast = MessageCodec
+				.getHeader(wire(codec.encode(null, new SyncMessage(fromID, null, null))));
+		assertEquals(-1, multicast.getFromIndex());
+		assertEquals(fromID.getChannelName(), multicast.getFromName());
+	}
+
+	public void testDictionaryNotUsedForMulticast() throws Exception {
+		codec.setIDDictionary(createDictionary());
+		// a message for one member that can't be addressed to it
+		final JGroupsMessageHeader header = MessageCodec
+				.getHeader(wire(codec.encode(null, new SyncMessage(fromID, targetID, null))));
+		assertEquals(-1, header.getTargetIndex());
+		assertEquals(targetID.getChannelName(), header.getTargetName());
+		assertEquals(fromID.getChannelName(), header.getFromName());
+	}
+
+	public void testUnknownIndexRejected() throws Exception {
+		codec.setIDDictionary(createDictionary());
+		final Message msg = wire(codec.encode(UUID.randomUUID(), new SyncMessage(fromID, targetID, null)));
+		final MessageCodec receiver = new MessageCodec();
+		try {
+			receiver.decode(msg);
+			fail("decoded an index without a dictionary");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	public void testBinaryRoundTrip() throws Exception {
+		final SyncMessage message = new ConnectRequestMessage(fromID, targetID, new byte[] { 1, 2, 3 });
+		final AbstractMessage decoded = codec.decode(wire(codec.encode(null, message)));
+		assertMessageEquals(message, decoded);
+	}
+
+	// as a member running the given version would send it
+	private Message encode(byte version, SyncMessage message, long requestId) throws Exception {
+		final Message msg = codec.encode(null, message);
+		msg.putHeader(JGroupsMessageHeader.HEADER_ID, new JGroupsMessageHeader(version,
+				MessageCodec.getHeader(msg).getType(), fromID, targetID, requestId));
+		return wire(msg);
+	}
+
+	public void testOlderVersionsAccepted() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, targetID, new byte[] { 1, 2, 3 });
+		for (byte version = 2; version < MessageCodec.VERSION; version++) {
+			final Message msg = encode(version, message, 7);
+			assertEquals(version, MessageCodec.getHeader(msg).getVersion());
+			final SyncMessage decoded = (SyncMessage) codec.decode(msg);
+			assertMessageEquals(message, decoded);
+			// request ids were added with version 3
+			assertEquals((version < 3) ? 0 : 7, decoded.getRequestId());
+		}
+	}
+
+	public void testNewerVersionRejected() throws Exception {
+		final Message msg = encode((byte) (MessageCodec.VERSION + 1), new SyncMessage(fromID, targetID, null), 0);
+		try {
+			codec.decode(msg);
+			fail("decoded a message of a newer version");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	public void testNullTargetAndData() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, null, null);
+		final AbstractMessage decoded = codec.decode(wire(codec.encode(null, message)));
+		assertMessageEquals(message, decoded);
+	}
+
+	public void testJavaSerializationFallback() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, targetID, new byte[] { 4, 5 });
+		final Message msg = wire(codec.encode(null, message, true));
+		assertNull(MessageCodec.getHeader(msg));
+		assertTrue(MessageCodec.isJavaSerialized(msg.getRawBuffer(), msg.getOffset(), msg.getLength()));
+		assertMessageEquals(message, codec.decode(msg));
+	}
+
+	public void testBinarySmallerThanSerialization() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, targetID, new byte[128]);
+		final int binaryLength = wireSize(codec.encode(null, message));
+		final int serializedLength = wireSize(codec.encode(null, message, true));
+		assertTrue(binaryLength < serializedLength);
+	}
+
+	public void testStatistics() throws Exception {
+		final SyncMessage message = new SyncMessage(fromID, targetID, new byte[128]);
+		for (int i = 0; i < ITERATIONS; i++) {
+			codec.decode(wire(codec.encode(null, message)));
+			codec.decode(wire(codec.encode(null, message, true)));
+		}
+		final MessageCodec.Statistics binary = codec.getBinaryStatistics();
+		final MessageCodec.Statistics serialization = codec.getSerializationStatistics();
+		assertEquals(ITERATIONS, binary.getEncodedMessages());
+		assertEquals(ITERATIONS, binary.getDecodedMessages());
+		assertEquals(ITERATIONS, serialization.getEncodedMessages());
+		assertEquals(ITERATIONS, serialization.getDecodedMessages());
+		assertTrue(binary.getEncodedBytes() < serialization.getEncodedBytes());
+	}
+}
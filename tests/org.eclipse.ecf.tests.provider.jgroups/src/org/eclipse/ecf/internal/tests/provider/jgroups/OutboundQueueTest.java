@@ -0,0 +1,168 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.OutboundQueue;
+import org.eclipse.ecf.provider.jgroups.container.SyncMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+public class OutboundQueueTest extends TestCase {
+
+	private static final int CAPACITY = 4;
+	private static final byte[] DATA = new byte[16];
+
+	private TestJGroupsConnection connection;
+	private CountDownLatch gate;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID localID = TestJGroupsConnection.createID("queuetest");
+		connection = new TestJGroupsConnection(localID);
+		connection.setup(localID);
+		gate = new CountDownLatch(1);
+		connection.setTransmitGate(gate);
+	}
+
+	protected void tearDown() throws Exception {
+		gate.countDown();
+		connection.disconnect();
+		super.tearDown();
+	}
+
+	private OutboundQueue createQueue(OutboundQueue.Policy policy, long blockTimeout) throws Exception {
+		final OutboundQueue queue = new OutboundQueue(connection, CAPACITY, policy, blockTimeout);
+		connection.setOutboundQueue(queue);
+		// one message held in the channel, as if out of credits
+		connection.sendAsynch(null, DATA);
+		final long end = System.currentTimeMillis() + 5000;
+		while (!queue.isSendBlocked() && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertTrue(queue.isSendBlocked());
+		for (int i = 0; i < CAPACITY; i++)
+			connection.sendAsynch(null, DATA);
+		assertTrue(queue.isFull());
+		assertTrue(queue.isSaturated());
+		assertEquals(1.0, queue.getOccupancy(), 0.0);
+		return queue;
+	}
+
+	private void assertAllSent(OutboundQueue queue, int count) throws Exception {
+		gate.countDown();
+		final long end = System.currentTimeMillis() + 5000;
+		while (queue.getSent() < count && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertEquals(count, queue.getSent());
+		assertEquals(0, queue.getSize());
+		assertFalse(queue.isSaturated());
+	}
+
+	public void testDropPolicy() throws Exception {
+		final OutboundQueue queue = createQueue(OutboundQueue.Policy.DROP, 0);
+		for (int i = 0; i < 10; i++)
+			connection.sendAsynch(null, DATA);
+		assertEquals(10, queue.getDropped());
+		assertAllSent(queue, CAPACITY + 1);
+	}
+
+	public void testFailPolicy() throws Exception {
+		final OutboundQueue queue = createQueue(OutboundQueue.Policy.FAIL, 0);
+		try {
+			connection.sendAsynch(null, DATA);
+			fail("send to a full queue should fail");
+		} catch (final IOException e) {
+			// expected
+		}
+		assertEquals(1, queue.getRejected());
+		assertAllSent(queue, CAPACITY + 1);
+	}
+
+	public void testBlockPolicyTimesOut() throws Exception {
+		final OutboundQueue queue = createQueue(OutboundQueue.Policy.BLOCK, 100);
+		final long start = System.currentTimeMillis();
+		try {
+			connection.sendAsynch(null, DATA);
+			fail("send to a full queue should time out");
+		} catch (final IOException e) {
+			// expected
+		}
+		assertTrue(System.currentTimeMillis() - start >= 90);
+		assertEquals(1, queue.getRejected());
+		assertAllSent(queue, CAPACITY + 1);
+	}
+
+	public void testResponseBypassesFullQueue() throws Exception {
+		final OutboundQueue queue = createQueue(OutboundQueue.Policy.BLOCK, 0);
+		final TestJGroupsConnection requester = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("queuerequester"));
+		try {
+			requester.setup(connection.getLocalID());
+			assertTrue(requester.waitForMembers(2, 5000));
+			// answered on the receive thread while the queue is full
+			final SyncMessage response = requester.request(connection.getLocalID(), DATA, 5000).get(5000,
+					TimeUnit.MILLISECONDS);
+			assertEquals(DATA.length, response.getLength());
+			assertTrue(queue.isFull());
+			assertEquals(0, requester.getPendingRequests());
+		} finally {
+			requester.disconnect();
+		}
+		assertAllSent(queue, CAPACITY + 1);
+	}
+
+	public void testBlockPolicyWaitsForSpace() throws Exception {
+		final OutboundQueue queue = createQueue(OutboundQueue.Policy.BLOCK, 0);
+		new Thread(new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (final InterruptedException e) {
+					// continue
+				}
+				gate.countDown();
+			}
+		}).start();
+		connection.sendAsynch(null, DATA);
+		assertAllSent(queue, CAPACITY + 2);
+		assertTrue(queue.getBlockedSends() >= 1);
+	}
+
+	private static boolean isSenderRunning(TestJGroupsConnection c) {
+		for (final Thread t : Thread.getAllStackTraces().keySet())
+			if (t.getName().equals("JGroups sender " + c.getLocalID().getName()))
+				return true;
+		return false;
+	}
+
+	public void testSenderStartsWithFirstMessage() throws Exception {
+		final OutboundQueue queue = new OutboundQueue(connection, CAPACITY, OutboundQueue.Policy.BLOCK, 0);
+		connection.setOutboundQueue(queue);
+		assertFalse(isSenderRunning(connection));
+		gate.countDown();
+		connection.sendAsynch(null, DATA);
+		assertTrue(isSenderRunning(connection));
+		assertAllSent(queue, 1);
+	}
+
+	public void testUnusedQueueHasNoSender() throws Exception {
+		final TestJGroupsConnection unconnected = new TestJGroupsConnection(
+				TestJGroupsConnection.createID("queueunused"), null);
+		final OutboundQueue queue = new OutboundQueue(unconnected, CAPACITY, OutboundQueue.Policy.BLOCK, 0);
+		assertFalse(isSenderRunning(unconnected));
+		assertTrue(queue.close(0));
+	}
+}
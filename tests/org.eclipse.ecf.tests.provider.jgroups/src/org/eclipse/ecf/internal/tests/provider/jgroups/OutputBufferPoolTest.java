@@ -0,0 +1,59 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.container.OutputBufferPool;
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+public class OutputBufferPoolTest extends TestCase {
+
+	private static final int BUFFER_SIZE = 256;
+	private static final int ITERATIONS = 10000;
+
+	private OutputBufferPool pool;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		pool = new OutputBufferPool(BUFFER_SIZE, 4);
+	}
+
+	public void testReuse() throws Exception {
+		final ByteArrayDataOutputStream out = pool.acquire();
+		assertEquals(BUFFER_SIZE, out.buffer().length);
+		out.writeInt(42);
+		pool.release(out);
+		final ByteArrayDataOutputStream again = pool.acquire();
+		assertSame(out, again);
+		assertEquals(0, again.position());
+		assertEquals(1, pool.getAllocated());
+	}
+
+	public void testOversizedBufferNotRetained() throws Exception {
+		final ByteArrayDataOutputStream out = pool.acquire();
+		out.write(new byte[pool.getMaxRetainedSize() + 1]);
+		pool.release(out);
+		assertNotSame(out, pool.acquire());
+		assertEquals(2, pool.getAllocated());
+	}
+
+	public void testSteadyStateSerialization() throws Exception {
+		final MessageCodec codec = new MessageCodec(pool);
+		final String payload = "steady state payload";
+		for (int i = 0; i < ITERATIONS; i++)
+			assertTrue(codec.serializeToBytes(payload).length > payload.length());
+		assertEquals(ITERATIONS, pool.getAcquired());
+		assertEquals(1, pool.getAllocated());
+	}
+}
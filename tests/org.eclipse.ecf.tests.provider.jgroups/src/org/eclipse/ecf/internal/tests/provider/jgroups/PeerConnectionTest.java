@@ -0,0 +1,111 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.JGroupsPeerConnection;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Address;
+import org.jgroups.Message;
+
+public class PeerConnectionTest extends TestCase {
+
+	private static final int PEERS = 3;
+	private static final long TIMEOUT = 5000;
+
+	static class Peer extends JGroupsPeerConnection implements JGroupsPeerConnection.Listener {
+		final List<JGroupsID> joined = new ArrayList<JGroupsID>();
+		final List<Address> destinations = new ArrayList<Address>();
+
+		Peer(JGroupsID localID, JGroupsID groupID) throws Exception {
+			super(new TestJGroupsConnection.Handler(localID), TestJGroupsConnection.createLoopbackChannel(), null,
+					groupID);
+			start();
+			setListener(this);
+		}
+
+		public void peersJoined(List<JGroupsID> peerIDs) {
+			synchronized (joined) {
+				joined.addAll(peerIDs);
+			}
+		}
+
+		protected void transmit(Message msg) throws IOException {
+			synchronized (destinations) {
+				destinations.add(msg.getDest());
+			}
+			super.transmit(msg);
+		}
+
+		Address getAddress() {
+			return getLocalAddress();
+		}
+
+		int getJoined() {
+			synchronized (joined) {
+				return joined.size();
+			}
+		}
+
+		boolean waitForJoined(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			while (getJoined() < count && System.currentTimeMillis() < end)
+				Thread.sleep(10);
+			return getJoined() == count;
+		}
+	}
+
+	private Peer[] peers;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID groupID = TestJGroupsConnection.createID("peergroup");
+		peers = new Peer[PEERS];
+		for (int i = 0; i < PEERS; i++)
+			peers[i] = new Peer(TestJGroupsConnection.createID("peer" + i), groupID);
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i = 0; i < PEERS; i++)
+			if (peers[i] != null)
+				peers[i].disconnect();
+		super.tearDown();
+	}
+
+	public void testEveryPeerSeesTheOthers() throws Exception {
+		for (int i = 0; i < PEERS; i++) {
+			assertTrue(peers[i].waitForJoined(PEERS - 1));
+			for (final JGroupsID peerID : peers[i].joined) {
+				assertFalse(peerID.equals(peers[i].getLocalID()));
+				assertNotNull(peers[i].new Client(peerID).getAddress());
+			}
+		}
+	}
+
+	public void testIDWithoutAddressIsSentPointToPoint() throws Exception {
+		assertTrue(peers[0].waitForJoined(PEERS - 1));
+		// as an id read off the wire would be
+		final JGroupsID target = TestJGroupsConnection.createID("peer1");
+		assertNull(target.getAddress());
+		peers[0].sendAsynch(target, new byte[] { 1, 2, 3 });
+		synchronized (peers[0].destinations) {
+			assertEquals(1, peers[0].destinations.size());
+			assertEquals(peers[1].getAddress(), peers[0].destinations.get(0));
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.provider.generic.ContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.AbstractMessage;
+import org.eclipse.ecf.provider.jgroups.container.AsyncContainerMessage;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsMessageHeader;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.container.SyncMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
+import org.jgroups.Message;
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+/**
+ * Checks that a payload read in place is not copied out of the receive
+ * buffer, by the bytes allocated per received message.
+ */
+public class ReceiveAllocationTest extends TestCase {
+
+	private static final int WARMUP = 10000;
+	private static final int ITERATIONS = 100000;
+	private static final int PAYLOAD = 1024;
+	// Received messages usually sit at an offset in a larger buffer
+	private static final int OFFSET = 64;
+
+	private MessageCodec codec;
+	private Message message;
+	// A container message alone in its buffer, at an offset, and in a frame
+	private Message containerMessage;
+	private Message containerMessageAtOffset;
+	private Message frame;
+	private ThreadMXBean threadBean;
+	private Method getThreadAllocatedBytes;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		JGroupsMessageHeader.register();
+		codec = new MessageCodec();
+		final JGroupsID fromID = (JGroupsID) IDFactory.getDefault().createID(JGroupsNamespace.NAME, "jgroups:client1");
+		final JGroupsID targetID = (JGroupsID) IDFactory.getDefault().createID(JGroupsNamespace.NAME,
+				JGroups.TARGET_NAME);
+		final Message encoded = codec.encode(null, new SyncMessage(fromID, targetID, null));
+		message = new Message(null, new byte[OFFSET + PAYLOAD + OFFSET], OFFSET, PAYLOAD);
+		message.putHeader(JGroupsMessageHeader.HEADER_ID, MessageCodec.getHeader(encoded));
+		final AsyncContainerMessage async = new AsyncContainerMessage(fromID, targetID,
+				ContainerMessage.createViewChangeMessage(fromID, targetID, 0, null, true, new byte[PAYLOAD]));
+		containerMessage = codec.encode(null, async);
+		final int length = containerMessage.getLength();
+		final byte[] padded = new byte[OFFSET + length + OFFSET];
+		System.arraycopy(containerMessage.getRawBuffer(), containerMessage.getOffset(), padded, OFFSET, length);
+		containerMessageAtOffset = new Message(null, padded, OFFSET, length);
+		containerMessageAtOffset.putHeader(JGroupsMessageHeader.HEADER_ID, MessageCodec.getHeader(containerMessage));
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(length + OFFSET);
+		codec.writeFrameEntry(async, out);
+		frame = codec.encodeFrame(null, fromID, targetID, out.buffer(), out.position());
+		threadBean = ManagementFactory.getThreadMXBean();
+		try {
+			// com.sun.management.ThreadMXBean, not available on every VM
+			final Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+			getThreadAllocatedBytes = beanClass.isInstance(threadBean)
+					? beanClass.getMethod("getThreadAllocatedBytes", long.class) : null;
+		} catch (final ClassNotFoundException e) {
+			getThreadAllocatedBytes = null;
+		}
+	}
+
+	private long allocatedBytes() throws Exception {
+		return ((Long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId())).longValue();
+	}
+
+	private long receiveInPlace(int count) throws Exception {
+		long length = 0;
+		for (int i = 0; i < count; i++) {
+			final AbstractMessage m = codec.decode(message);
+			length += m.getRawData()[m.getOffset()] + m.getLength();
+		}
+		return length;
+	}
+
+	private long receiveCopy(int count) throws Exception {
+		long length = 0;
+		for (int i = 0; i < count; i++) {
+			final byte[] data = codec.decode(message).getData();
+			length += data[0] + data.length;
+		}
+		return length;
+	}
+
+	private long receiveContainerMessage(Message m, int count) throws Exception {
+		long length = 0;
+		for (int i = 0; i < count; i++)
+			length += ((byte[]) ((AsyncContainerMessage) codec.decode(m)).getContainerMessage().getData()).length;
+		return length;
+	}
+
+	private long receiveFrame(int count) throws Exception {
+		long length = 0;
+		for (int i = 0; i < count; i++)
+			length += ((byte[]) ((AsyncContainerMessage) codec.decodeFrame(frame).get(0)).getContainerMessage()
+					.getData()).length;
+		return length;
+	}
+
+	public void testInPlaceReceiveIsNotCopied() throws Exception {
+		final AbstractMessage m = codec.decode(message);
+		assertSame(message.getRawBuffer(), m.getRawData());
+		assertEquals(OFFSET, m.getOffset());
+		assertEquals(PAYLOAD, m.getLength());
+		assertEquals(PAYLOAD, m.getData().length);
+	}
+
+	public void testAllocationPerMessage() throws Exception {
+		assertNotNull("thread allocation counters not supported by this VM", getThreadAllocatedBytes);
+		receiveInPlace(WARMUP);
+		receiveCopy(WARMUP);
+		long start = allocatedBytes();
+		assertEquals((long) ITERATIONS * PAYLOAD, receiveInPlace(ITERATIONS));
+		final long inPlace = (allocatedBytes() - start) / ITERATIONS;
+		start = allocatedBytes();
+		assertEquals((long) ITERATIONS * PAYLOAD, receiveCopy(ITERATIONS));
+		final long copy = (allocatedBytes() - start) / ITERATIONS;
+		// only a copy allocates the payload again
+		assertTrue(copy >= PAYLOAD);
+		assertTrue(inPlace < PAYLOAD);
+	}
+
+	public void testContainerMessageAllocation() throws Exception {
+		assertNotNull("thread allocation counters not supported by this VM", getThreadAllocatedBytes);
+		receiveContainerMessage(containerMessage, WARMUP);
+		receiveContainerMessage(containerMessageAtOffset, WARMUP);
+		receiveFrame(WARMUP);
+		long start = allocatedBytes();
+		assertEquals((long) ITERATIONS * PAYLOAD, receiveContainerMessage(containerMessage, ITERATIONS));
+		final long whole = (allocatedBytes() - start) / ITERATIONS;
+		start = allocatedBytes();
+		assertEquals((long) ITERATIONS * PAYLOAD, receiveContainerMessage(containerMessageAtOffset, ITERATIONS));
+		final long atOffset = (allocatedBytes() - start) / ITERATIONS;
+		start = allocatedBytes();
+		assertEquals((long) ITERATIONS * PAYLOAD, receiveFrame(ITERATIONS));
+		final long inFrame = (allocatedBytes() - start) / ITERATIONS;
+		// read in place, a container message costs no more than one that
+		// spans its buffer, where no copy is needed
+		assertTrue("atOffset=" + atOffset + " whole=" + whole, atOffset - whole < PAYLOAD / 2);
+		assertTrue("inFrame=" + inFrame + " whole=" + whole, inFrame - whole < PAYLOAD / 2);
+	}
+}
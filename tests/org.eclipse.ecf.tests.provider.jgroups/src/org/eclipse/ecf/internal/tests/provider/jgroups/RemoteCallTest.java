@@ -0,0 +1,136 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.RemoteCall;
+import org.eclipse.ecf.provider.jgroups.container.RemoteCallRegistry;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+
+public class RemoteCallTest extends TestCase {
+
+	private static final int CALLS = 2000;
+	private static final long TIMEOUT = 10000;
+
+	public static class Calculator {
+		private final CompletableFuture<Integer> pending = new CompletableFuture<Integer>();
+		private final CountDownLatch called = new CountDownLatch(1);
+
+		public int add(int a, int b) {
+			return a + b;
+		}
+
+		public String concat(String a, String b) {
+			return a + b;
+		}
+
+		public CompletableFuture<Integer> later() {
+			called.countDown();
+			return pending;
+		}
+
+		public void fail(String message) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	private TestJGroupsConnection caller;
+	private TestJGroupsConnection callee;
+	private JGroupsID calleeID;
+	private Calculator calculator;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID groupID = TestJGroupsConnection.createID("callgroup");
+		calleeID = TestJGroupsConnection.createID("callee");
+		callee = new TestJGroupsConnection(calleeID);
+		final RemoteCallRegistry registry = new RemoteCallRegistry();
+		calculator = new Calculator();
+		registry.registerService("calculator", calculator);
+		callee.setRemoteCallRegistry(registry);
+		callee.setup(groupID);
+		caller = new TestJGroupsConnection(TestJGroupsConnection.createID("caller"));
+		caller.setup(groupID);
+	}
+
+	protected void tearDown() throws Exception {
+		caller.disconnect();
+		callee.disconnect();
+		super.tearDown();
+	}
+
+	private CompletableFuture<Object> call(String method, Object... parameters) {
+		return caller.callAsync(calleeID, new RemoteCall("calculator", method, parameters), TIMEOUT);
+	}
+
+	public void testCall() throws Exception {
+		assertEquals(Integer.valueOf(5), call("add", Integer.valueOf(2), Integer.valueOf(3)).get());
+		assertEquals("ab", call("concat", "a", "b").get());
+	}
+
+	public void testManyCallsInFlight() throws Exception {
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[CALLS];
+		for (int i = 0; i < CALLS; i++)
+			futures[i] = call("add", Integer.valueOf(i), Integer.valueOf(1));
+		CompletableFuture.allOf(futures).get();
+		for (int i = 0; i < CALLS; i++)
+			assertEquals(Integer.valueOf(i + 1), futures[i].get());
+		assertEquals(0, caller.getPendingRequests());
+	}
+
+	public void testAsyncServiceMethod() throws Exception {
+		final CompletableFuture<Object> future = call("later");
+		assertTrue(calculator.called.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		// the callee has the call, and answers only when its result completes
+		assertFalse(future.isDone());
+		assertEquals(1, caller.getPendingRequests());
+		calculator.pending.complete(Integer.valueOf(42));
+		assertEquals(Integer.valueOf(42), future.get());
+	}
+
+	public void testExceptionIsReturned() throws Exception {
+		try {
+			call("fail", "expected").get();
+			fail("call should fail");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertEquals("expected", e.getCause().getMessage());
+		}
+	}
+
+	public void testUnknownService() throws Exception {
+		try {
+			caller.callAsync(calleeID, new RemoteCall("none", "add", null), TIMEOUT).get();
+			fail("call should fail");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof NoSuchMethodException);
+		}
+	}
+
+	public void testObjectMethodsAreNotCallable() throws Exception {
+		final String[] methods = {"getClass", "hashCode", "notify", "wait"};
+		for (int i = 0; i < methods.length; i++) {
+			try {
+				call(methods[i]).get();
+				fail(methods[i] + " should not be callable");
+			} catch (final ExecutionException e) {
+				assertTrue(e.getCause() instanceof NoSuchMethodException);
+			}
+		}
+	}
+}
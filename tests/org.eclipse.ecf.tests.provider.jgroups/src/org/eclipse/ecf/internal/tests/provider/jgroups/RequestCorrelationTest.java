@@ -0,0 +1,105 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.jgroups.container.SyncMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Message;
+
+public class RequestCorrelationTest extends TestCase {
+
+	private static final int REQUESTS = 64;
+	private static final long TIMEOUT = 10000;
+
+	private JGroupsID serverID;
+	private TestJGroupsConnection server;
+	private TestJGroupsConnection client;
+	// a member that never answers, as it keeps its responses
+	private JGroupsID silentID;
+	private TestJGroupsConnection silent;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final JGroupsID groupID = TestJGroupsConnection.createID("correlationgroup");
+		serverID = TestJGroupsConnection.createID("correlationserver");
+		server = new TestJGroupsConnection(serverID);
+		server.setup(groupID);
+		client = new TestJGroupsConnection(TestJGroupsConnection.createID("correlationclient"));
+		client.setup(groupID);
+		silentID = TestJGroupsConnection.createID("correlationsilent");
+		silent = new TestJGroupsConnection(silentID);
+		silent.setup(groupID);
+		silent.setCapture(Collections.synchronizedList(new ArrayList<Message>()));
+		assertTrue(client.waitForMembers(3, TIMEOUT));
+	}
+
+	protected void tearDown() throws Exception {
+		silent.disconnect();
+		client.disconnect();
+		server.disconnect();
+		super.tearDown();
+	}
+
+	public void testConcurrentRequests() throws Exception {
+		final CompletableFuture[] futures = new CompletableFuture[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++)
+			futures[i] = client.request(serverID, new byte[] { (byte) i, (byte) (i >> 8) }, TIMEOUT);
+		for (int i = 0; i < REQUESTS; i++) {
+			final SyncMessage response = (SyncMessage) futures[i].get(TIMEOUT, TimeUnit.MILLISECONDS);
+			assertTrue(Arrays.equals(new byte[] { (byte) i, (byte) (i >> 8) }, response.getData()));
+		}
+		assertEquals(0, client.getPendingRequests());
+	}
+
+	public void testRequestTimeout() throws Exception {
+		final long start = System.currentTimeMillis();
+		final CompletableFuture<SyncMessage> future = client.request(silentID, new byte[] { 1 }, 200);
+		try {
+			future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			fail("request to missing member should time out");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+		assertEquals(0, client.getPendingRequests());
+	}
+
+	public void testRequestToNonMemberFails() throws Exception {
+		final CompletableFuture<SyncMessage> future = client.request(TestJGroupsConnection.createID("nobody"),
+				new byte[] { 1 }, TIMEOUT);
+		try {
+			future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			fail("request to non-member should fail");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertEquals(0, client.getPendingRequests());
+	}
+
+	public void testDisconnectFailsPendingRequests() throws Exception {
+		final CompletableFuture<SyncMessage> future = client.request(silentID, new byte[] { 1 }, TIMEOUT);
+		client.disconnect();
+		assertTrue(future.isCompletedExceptionally());
+		assertEquals(0, client.getPendingRequests());
+	}
+}
@@ -0,0 +1,232 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.comm.AsynchEvent;
+import org.eclipse.ecf.provider.jgroups.container.ChannelPresets;
+import org.eclipse.ecf.provider.jgroups.container.MessageCodec;
+import org.eclipse.ecf.provider.jgroups.container.SharedChannelRegistry;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.fork.ForkChannel;
+import org.jgroups.util.Buffer;
+
+public class SharedChannelTest extends TestCase {
+
+	private static final int GROUPS = 4;
+	private static final long TIMEOUT = 5000;
+
+	static class LoopbackRegistry extends SharedChannelRegistry {
+		protected JChannel createMainChannel(String config) throws Exception {
+			return TestJGroupsConnection.createLoopbackChannel();
+		}
+	}
+
+	// as if in two processes
+	private LoopbackRegistry registry;
+	private LoopbackRegistry otherRegistry;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		registry = new LoopbackRegistry();
+		otherRegistry = new LoopbackRegistry();
+	}
+
+	private TestJGroupsConnection join(SharedChannelRegistry r, String name, String group) throws Exception {
+		final TestJGroupsConnection connection = new TestJGroupsConnection(TestJGroupsConnection.createID(name), null);
+		connection.setSharedChannelRegistry(r);
+		connection.setup(TestJGroupsConnection.createID(group));
+		return connection;
+	}
+
+	private static boolean waitForEvents(TestJGroupsConnection connection, int events) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		while (connection.getEvents().size() < events && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		return connection.getEvents().size() >= events;
+	}
+
+	private static void assertPayload(int expected, AsynchEvent event) {
+		final Buffer buffer = (Buffer) event.getData();
+		assertEquals(1, buffer.getLength());
+		assertEquals(expected, buffer.getBuf()[buffer.getOffset()]);
+	}
+
+	public void testGroupsShareOneChannel() throws Exception {
+		final TestJGroupsConnection[] connections = new TestJGroupsConnection[GROUPS];
+		for (int i = 0; i < GROUPS; i++)
+			connections[i] = join(registry, "sharedmember" + i, "sharedgroup" + i);
+		assertEquals(1, registry.getMainChannelCount());
+		assertEquals(GROUPS, registry.getForkChannelCount());
+		for (int i = 0; i < GROUPS; i++) {
+			assertTrue(connections[i].isConnected());
+			assertEquals(connections[0].getLocalAddress(), connections[i].getLocalAddress());
+		}
+		for (int i = 0; i < GROUPS; i++)
+			connections[i].disconnect();
+		assertEquals(0, registry.getMainChannelCount());
+		assertEquals(0, registry.getForkChannelCount());
+	}
+
+	public void testGroupsAreIsolated() throws Exception {
+		final TestJGroupsConnection sender = join(registry, "sharedsender", "sharedgroupa");
+		// on the receiver's channel, so that group a's messages reach its process
+		final TestJGroupsConnection other = join(otherRegistry, "sharedother", "sharedgroupb");
+		final TestJGroupsConnection receiver = join(otherRegistry, "sharedreceiver", "sharedgroupa");
+		try {
+			assertTrue(sender.waitForMembers(2, TIMEOUT));
+			final JGroupsID receiverID = TestJGroupsConnection.createID("sharedreceiver");
+			sender.sendAsynch(receiverID, new byte[] { 1 });
+			assertTrue(waitForEvents(receiver, 1));
+			// not a member of group a, so multicast there
+			final JGroupsID otherID = TestJGroupsConnection.createID("sharedother");
+			sender.sendAsynch(otherID, new byte[] { 2 });
+			// delivered in order after the message for other
+			sender.sendAsynch(null, new byte[] { 3 });
+			assertTrue(waitForEvents(receiver, 2));
+			assertEquals(2, receiver.getEvents().size());
+			assertPayload(3, receiver.getEvents().get(1));
+			assertTrue(other.getEvents().isEmpty());
+		} finally {
+			sender.disconnect();
+			other.disconnect();
+			receiver.disconnect();
+		}
+	}
+
+	// Indices agreed with one member, which others would read differently
+	static class Dictionary implements MessageCodec.IDDictionary {
+		private final List<JGroupsID> ids;
+
+		Dictionary(JGroupsID... ids) {
+			this.ids = Arrays.asList(ids);
+		}
+
+		public int indexOf(JGroupsID id, JGroupsID targetID) {
+			return ids.indexOf(id);
+		}
+
+		public JGroupsID get(int index) {
+			return (index < ids.size()) ? ids.get(index) : null;
+		}
+	}
+
+	public void testUnindexedMemberGetsNames() throws Exception {
+		final TestJGroupsConnection sender = join(registry, "sharedindexsender", "sharedgroupd");
+		final TestJGroupsConnection receiver = join(otherRegistry, "sharedindexreceiver", "sharedgroupd");
+		final TestJGroupsConnection bystander = join(new LoopbackRegistry(), "sharedbystander", "sharedgroupd");
+		try {
+			assertTrue(sender.waitForMembers(3, TIMEOUT));
+			final JGroupsID receiverID = TestJGroupsConnection.createID("sharedindexreceiver");
+			sender.getMessageCodec().setIDDictionary(new Dictionary(receiverID, sender.getLocalID()));
+			receiver.getMessageCodec().setIDDictionary(new Dictionary(receiverID, sender.getLocalID()));
+			bystander.getMessageCodec().setIDDictionary(new Dictionary(bystander.getLocalID(), sender.getLocalID()));
+			// the receiver has not sent anything, so it is reached by multicast
+			final List<Message> captured = new ArrayList<Message>();
+			sender.setCapture(captured);
+			sender.sendAsynch(receiverID, new byte[] { 1 });
+			sender.setCapture(null);
+			assertNull(captured.get(0).getDest());
+			assertEquals(-1, MessageCodec.getHeader(captured.get(0)).getTargetIndex());
+			sender.sendAsynch(receiverID, new byte[] { 1 });
+			// multicast too, so delivered in order after the message for the
+			// receiver
+			sender.sendAsynch(null, new byte[] { 2 });
+			assertTrue(waitForEvents(receiver, 2));
+			assertPayload(1, receiver.getEvents().get(0));
+			assertTrue(waitForEvents(bystander, 1));
+			assertEquals(1, bystander.getEvents().size());
+			assertPayload(2, bystander.getEvents().get(0));
+		} finally {
+			sender.disconnect();
+			receiver.disconnect();
+			bystander.disconnect();
+		}
+	}
+
+	public void testSameGroupTwiceNeedsOwnChannel() throws Exception {
+		final JChannel first = registry.getChannel(null, "sharedgroupc");
+		try {
+			assertTrue(first instanceof ForkChannel);
+			assertNull(registry.getChannel(null, "sharedgroupc"));
+		} finally {
+			first.close();
+		}
+		assertEquals(0, registry.getMainChannelCount());
+	}
+
+	public void testOverridesGetOwnMainChannel() throws Exception {
+		final JChannel overridden = registry.getChannel(null,
+				Collections.singletonMap(ChannelPresets.THREAD_POOL_MAX_THREADS_PROP, "7"), "sharedgroupe");
+		try {
+			// the same group again, but over a main channel without overrides
+			final JChannel plain = registry.getChannel(null, "sharedgroupe");
+			assertNotNull(plain);
+			assertEquals(2, registry.getMainChannelCount());
+			plain.close();
+		} finally {
+			overridden.close();
+		}
+		assertEquals(0, registry.getMainChannelCount());
+	}
+
+	public void testSlowJoinDoesNotBlockOtherChannels() throws Exception {
+		final CountDownLatch joining = new CountDownLatch(1);
+		final CountDownLatch gate = new CountDownLatch(1);
+		final LoopbackRegistry slowRegistry = new LoopbackRegistry() {
+			protected JChannel createMainChannel(String config) throws Exception {
+				if ("slow".equals(config)) {
+					joining.countDown();
+					gate.await();
+				}
+				return super.createMainChannel(config);
+			}
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<JChannel> slow = executor.submit(new Callable<JChannel>() {
+				public JChannel call() throws Exception {
+					return slowRegistry.getChannel("slow", "sharedgroupf");
+				}
+			});
+			assertTrue(joining.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			final Future<JChannel> other = executor.submit(new Callable<JChannel>() {
+				public JChannel call() throws Exception {
+					return slowRegistry.getChannel(null, "sharedgroupg");
+				}
+			});
+			// the other main channel is connected while the slow one still waits
+			other.get(TIMEOUT, TimeUnit.MILLISECONDS).close();
+			assertFalse(slow.isDone());
+			gate.countDown();
+			slow.get(TIMEOUT, TimeUnit.MILLISECONDS).close();
+		} finally {
+			gate.countDown();
+			executor.shutdownNow();
+		}
+		assertEquals(0, slowRegistry.getMainChannelCount());
+	}
+}
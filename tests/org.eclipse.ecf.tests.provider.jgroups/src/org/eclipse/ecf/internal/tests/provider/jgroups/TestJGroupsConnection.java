@@ -0,0 +1,222 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.comm.AsynchEvent;
+import org.eclipse.ecf.provider.comm.ConnectionEvent;
+import org.eclipse.ecf.provider.comm.DisconnectEvent;
+import org.eclipse.ecf.provider.comm.IAsynchConnection;
+import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
+import org.eclipse.ecf.provider.comm.SynchEvent;
+import org.eclipse.ecf.provider.jgroups.container.AbstractJGroupsConnection;
+import org.eclipse.ecf.provider.jgroups.container.SyncMessage;
+import org.eclipse.ecf.provider.jgroups.container.SyncResponseMessage;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsNamespace;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.MessageBatch;
+
+/**
+ * Connection over an in-JVM shared loopback stack for tests that exercise
+ * {@link AbstractJGroupsConnection} without containers. Sync requests are
+ * answered with their own data, and async events are recorded.
+ */
+public class TestJGroupsConnection extends AbstractJGroupsConnection {
+
+	public static JGroupsID createID(String name) throws Exception {
+		return (JGroupsID) IDFactory.getDefault().createID(JGroupsNamespace.NAME, JGroupsNamespace.SCHEME + ":" + name);
+	}
+
+	public static JChannel createLoopbackChannel() throws Exception {
+		return new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+				new STABLE(), new GMS(), new FRAG2());
+	}
+
+	static class Handler implements ISynchAsynchEventHandler {
+		private final JGroupsID localID;
+		final List<AsynchEvent> events = new ArrayList<AsynchEvent>();
+
+		Handler(JGroupsID localID) {
+			this.localID = localID;
+		}
+
+		public void handleAsynchEvent(AsynchEvent event) throws IOException {
+			synchronized (events) {
+				events.add(event);
+			}
+		}
+
+		public Object handleSynchEvent(SynchEvent event) throws IOException {
+			return null;
+		}
+
+		public void handleDisconnectEvent(DisconnectEvent event) {
+		}
+
+		public void handleSuspectEvent(ConnectionEvent event) {
+		}
+
+		public ID getEventHandlerID() {
+			return localID;
+		}
+	}
+
+	private List<Message> captured;
+	private boolean batchDelivery;
+	private volatile CountDownLatch transmitGate;
+
+	public TestJGroupsConnection(JGroupsID localID) throws Exception {
+		this(localID, createLoopbackChannel());
+	}
+
+	/**
+	 * @param channel
+	 *            channel to use, or null to create one when joining
+	 */
+	public TestJGroupsConnection(JGroupsID localID, JChannel channel) throws Exception {
+		super(new Handler(localID), channel);
+	}
+
+	public Address getLocalAddress() {
+		return super.getLocalAddress();
+	}
+
+	public List<AsynchEvent> getEvents() {
+		final List<AsynchEvent> events = ((Handler) getEventHandler()).events;
+		synchronized (events) {
+			return new ArrayList<AsynchEvent>(events);
+		}
+	}
+
+	/**
+	 * Keep encoded outbound messages in the given list instead of sending
+	 * them, or send them again if null.
+	 */
+	public void setCapture(List<Message> captured) {
+		this.captured = captured;
+	}
+
+	/**
+	 * Send as a member that only understands java serialization would.
+	 */
+	public void setJavaSerialization(boolean javaSerialization) {
+		super.setJavaSerialization(javaSerialization);
+	}
+
+	public void setBatchDelivery(boolean batchDelivery) {
+		this.batchDelivery = batchDelivery;
+	}
+
+	protected boolean isBatchDelivery() {
+		return batchDelivery;
+	}
+
+	/**
+	 * Hand a batch to the connection as the JGroups receiver would.
+	 */
+	public void receive(MessageBatch batch) {
+		handleJGroupsReceive(batch);
+	}
+
+	/**
+	 * Hold messages about to go to the channel until the gate opens, as if
+	 * the channel were out of credits. Messages sent without flow control
+	 * are not held.
+	 */
+	public void setTransmitGate(CountDownLatch transmitGate) {
+		this.transmitGate = transmitGate;
+	}
+
+	protected void transmit(Message msg) throws IOException {
+		final CountDownLatch gate = transmitGate;
+		if (gate != null && !msg.isFlagSet(Message.Flag.NO_FC))
+			try {
+				gate.await();
+			} catch (final InterruptedException e) {
+				throw new IOException("interrupted");
+			}
+		super.transmit(msg);
+	}
+
+	protected void sendMessage(Message msg) throws IOException {
+		if (captured == null)
+			super.sendMessage(msg);
+		else {
+			msg.setSrc(getLocalAddress());
+			captured.add(msg);
+		}
+	}
+
+	/**
+	 * Connect the channel to the given group and start the connection.
+	 */
+	public void setup(JGroupsID groupID) throws ECFException {
+		setupJGroups(groupID);
+		start();
+	}
+
+	public CompletableFuture<SyncMessage> request(JGroupsID targetID, byte[] data, long timeout) {
+		return sendRequest(targetID, new SyncMessage(getLocalID(), targetID, data), timeout);
+	}
+
+	/**
+	 * Wait until the channel's view has the given number of members.
+	 */
+	public boolean waitForMembers(int members, long timeout) throws InterruptedException {
+		final long end = System.currentTimeMillis() + timeout;
+		while (System.currentTimeMillis() < end) {
+			final JChannel ch = getChannel();
+			if (ch != null && ch.getView() != null && ch.getView().size() == members)
+				return true;
+			Thread.sleep(10);
+		}
+		return false;
+	}
+
+	public int getPendingRequests() {
+		return getPendingRequestCount();
+	}
+
+	public Object connect(ID targetID, Object data, int timeout) throws ECFException {
+		throw new ECFException("not supported");
+	}
+
+	protected void handleSyncMessage(SyncMessage sm) {
+		try {
+			sendResponse(sm, new SyncResponseMessage(getLocalID(), sm.getFromID(), sm.getData()));
+		} catch (final IOException e) {
+			logException("handleSyncMessage", e);
+		}
+	}
+
+	protected IAsynchConnection getClientForAddress(Address addr) {
+		return null;
+	}
+}
@@ -0,0 +1,137 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.tests.provider.jgroups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.comm.DisconnectEvent;
+import org.eclipse.ecf.provider.jgroups.container.JGroupsManagerConnection;
+import org.eclipse.ecf.provider.jgroups.container.ViewDelta;
+import org.eclipse.ecf.provider.jgroups.identity.JGroupsID;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.View;
+import org.jgroups.util.UUID;
+
+public class ViewDeltaTest extends TestCase {
+
+	private static final int MEMBERS = 200;
+	private static final long TIMEOUT = 5000;
+
+	static class Manager extends JGroupsManagerConnection {
+		Manager(TestJGroupsConnection.Handler handler, JChannel channel) throws ECFException {
+			super(handler, channel);
+		}
+
+		void viewChange(View previous, View view) {
+			handleViewAccepted(view, new ViewDelta(previous, view));
+		}
+
+		Address getAddress() {
+			return getLocalAddress();
+		}
+	}
+
+	private static View view(long id, List<Address> members) {
+		return new View(members.get(0), id, members);
+	}
+
+	public void testDelta() throws Exception {
+		final Address a = UUID.randomUUID();
+		final Address b = UUID.randomUUID();
+		final Address c = UUID.randomUUID();
+		final Address d = UUID.randomUUID();
+		final View first = view(1, Arrays.asList(a, b, c));
+		ViewDelta delta = new ViewDelta(null, first);
+		assertEquals(Arrays.asList(a, b, c), delta.getJoined());
+		assertTrue(delta.getLeft().isEmpty());
+		delta = new ViewDelta(first, view(2, Arrays.asList(a, c, d)));
+		assertEquals(Arrays.asList(d), delta.getJoined());
+		assertEquals(Arrays.asList(b), delta.getLeft());
+		assertTrue(new ViewDelta(first, view(3, Arrays.asList(a, b, c))).isEmpty());
+	}
+
+	public void testDeparturesReportedInOneBatch() throws Exception {
+		final List<DisconnectEvent> disconnects = new ArrayList<DisconnectEvent>();
+		final JGroupsID managerID = TestJGroupsConnection.createID("deltamanager");
+		final Manager manager = new Manager(new TestJGroupsConnection.Handler(managerID) {
+			public void handleDisconnectEvent(DisconnectEvent event) {
+				synchronized (disconnects) {
+					disconnects.add(event);
+				}
+			}
+		}, TestJGroupsConnection.createLoopbackChannel());
+		try {
+			final List<Address> members = new ArrayList<Address>();
+			members.add(manager.getAddress());
+			for (int i = 0; i < MEMBERS; i++) {
+				final Address clientAddress = UUID.randomUUID();
+				manager.new Client(TestJGroupsConnection.createID("deltaclient" + i), clientAddress);
+				members.add(clientAddress);
+			}
+			final View before = view(10, members);
+			final View after = view(11, members.subList(0, 1));
+			final CountDownLatch batches = new CountDownLatch(1);
+			final List<JGroupsManagerConnection.Client> left = new ArrayList<JGroupsManagerConnection.Client>();
+			final List<String> threads = new ArrayList<String>();
+			manager.setDepartureListener(new JGroupsManagerConnection.DepartureListener() {
+				public void clientsLeft(List<JGroupsManagerConnection.Client> clients) {
+					left.addAll(clients);
+					threads.add(Thread.currentThread().getName());
+					batches.countDown();
+				}
+			});
+			manager.viewChange(before, after);
+			assertTrue(batches.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			assertEquals(MEMBERS, left.size());
+			assertEquals(1, threads.size());
+			assertTrue(threads.get(0).startsWith("JGroups membership"));
+			// already handled, so not reported again
+			left.get(0).handleDisconnect();
+			synchronized (disconnects) {
+				assertTrue(disconnects.isEmpty());
+			}
+		} finally {
+			manager.disconnect();
+		}
+	}
+
+	public void testDeparturesWithoutListener() throws Exception {
+		final CountDownLatch disconnects = new CountDownLatch(MEMBERS);
+		final JGroupsID managerID = TestJGroupsConnection.createID("deltamanager2");
+		final Manager manager = new Manager(new TestJGroupsConnection.Handler(managerID) {
+			public void handleDisconnectEvent(DisconnectEvent event) {
+				disconnects.countDown();
+			}
+		}, TestJGroupsConnection.createLoopbackChannel());
+		try {
+			final List<Address> members = new ArrayList<Address>();
+			members.add(manager.getAddress());
+			for (int i = 0; i < MEMBERS; i++) {
+				final Address clientAddress = UUID.randomUUID();
+				manager.new Client(TestJGroupsConnection.createID("deltaclient" + i), clientAddress);
+				members.add(clientAddress);
+			}
+			manager.viewChange(view(10, members), view(11, members.subList(0, 1)));
+			assertTrue(disconnects.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		} finally {
+			manager.disconnect();
+		}
+	}
+}